@@ -1,6 +1,8 @@
+-- Resets the database to the schema the server's migrations (tenmo-server/src/main/resources/db/migration) build.
+-- Keep the two in step: the server baselines a database set up from this script at V1 and re-runs V2 onwards.
 BEGIN TRANSACTION;
 
-DROP TABLE IF EXISTS transfer, account, tenmo_user, transfer_type, transfer_status;
+DROP TABLE IF EXISTS transfer, account, tenmo_user, transfer_type, transfer_status, balance_engine_checkpoint, flyway_schema_history;
 DROP SEQUENCE IF EXISTS seq_user_id, seq_account_id, seq_transfer_id;
 
 
@@ -39,6 +41,7 @@ CREATE TABLE account (
 	account_id int NOT NULL DEFAULT nextval('seq_account_id'),
 	user_id int NOT NULL,
 	balance decimal(13, 2) NOT NULL,
+	version int NOT NULL DEFAULT 0,
 	CONSTRAINT PK_account PRIMARY KEY (account_id),
 	CONSTRAINT FK_account_tenmo_user FOREIGN KEY (user_id) REFERENCES tenmo_user (user_id)
 );
@@ -64,6 +67,24 @@ CREATE TABLE transfer (
 	CONSTRAINT CK_transfer_amount_gt_0 CHECK (amount > 0)
 );
 
+-- History pages are read per account in transfer_id order
+CREATE INDEX IX_transfer_account_from ON transfer (account_from, transfer_id);
+CREATE INDEX IX_transfer_account_to ON transfer (account_to, transfer_id);
+
+-- Every transfer query resolves the user's account with account.user_id = ?
+CREATE INDEX IX_account_user_id ON account (user_id);
+
+-- Pending requests are read per paying account, filtered on status, in transfer_id order
+CREATE INDEX IX_transfer_account_from_status ON transfer (account_from, transfer_status_id, transfer_id);
+
+-- Balances are looked up by username without regard to case
+CREATE INDEX IX_tenmo_user_lower_username ON tenmo_user (lower(username));
+
+-- Last journal sequence the in-memory balance engine has written to the tables (tenmo.transfers.engine=sequenced)
+CREATE TABLE balance_engine_checkpoint (
+	last_sequence bigint NOT NULL
+);
+
 INSERT INTO transfer_status (transfer_status_desc) VALUES ('Pending');
 INSERT INTO transfer_status (transfer_status_desc) VALUES ('Approved');
 INSERT INTO transfer_status (transfer_status_desc) VALUES ('Rejected');
@@ -71,4 +92,6 @@ INSERT INTO transfer_status (transfer_status_desc) VALUES ('Rejected');
 INSERT INTO transfer_type (transfer_type_desc) VALUES ('Request');
 INSERT INTO transfer_type (transfer_type_desc) VALUES ('Send');
 
+INSERT INTO balance_engine_checkpoint (last_sequence) VALUES (0);
+
 COMMIT;
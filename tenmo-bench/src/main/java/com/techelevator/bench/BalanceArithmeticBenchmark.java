@@ -0,0 +1,98 @@
+package com.techelevator.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+    The balance checks and updates JdbcTransferDao.sendTransfers runs in memory for a batch: compare the sender's
+    balance with the amount, subtract it and add it to the recipient, with balances held as BigDecimal in a map by
+    user id. The same loop over long cents in an array shows what the BigDecimal arithmetic and boxing cost on top.
+
+    java -jar tenmo-bench/target/benchmarks.jar BalanceArithmeticBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BalanceArithmeticBenchmark {
+
+    private static final int ACCOUNTS = 100;
+    private static final int FIRST_USER_ID = 1001;
+
+    @Param({"100", "10000"})
+    private int transfers;
+
+    private int[] senders;
+    private int[] recipients;
+    private BigDecimal[] amounts;
+    private long[] amountCents;
+
+    @Setup(Level.Trial)
+    public void createBatch() {
+        SplittableRandom random = new SplittableRandom(42);
+        senders = new int[transfers];
+        recipients = new int[transfers];
+        amounts = new BigDecimal[transfers];
+        amountCents = new long[transfers];
+        for (int i = 0; i < transfers; i++) {
+            senders[i] = FIRST_USER_ID + random.nextInt(ACCOUNTS);
+            recipients[i] = FIRST_USER_ID + (senders[i] - FIRST_USER_ID + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            amountCents[i] = 1 + random.nextInt(50000);
+            amounts[i] = BigDecimal.valueOf(amountCents[i], 2);
+        }
+    }
+
+    @Benchmark
+    public int bigDecimalBalances() {
+        Map<Integer, BigDecimal> balances = new HashMap<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            balances.put(FIRST_USER_ID + i, new BigDecimal("1000.00"));
+        }
+        int applied = 0;
+        for (int i = 0; i < transfers; i++) {
+            BigDecimal senderBalance = balances.get(senders[i]);
+            if (senderBalance.compareTo(amounts[i]) >= 0) {
+                balances.put(senders[i], senderBalance.subtract(amounts[i]));
+                balances.put(recipients[i], balances.get(recipients[i]).add(amounts[i]));
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    @Benchmark
+    public int longCentsBalances() {
+        long[] balances = new long[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            balances[i] = 100000;
+        }
+        int applied = 0;
+        for (int i = 0; i < transfers; i++) {
+            int sender = senders[i] - FIRST_USER_ID;
+            if (balances[sender] >= amountCents[i]) {
+                balances[sender] -= amountCents[i];
+                balances[recipients[i] - FIRST_USER_ID] += amountCents[i];
+                applied++;
+            }
+        }
+        return applied;
+    }
+}
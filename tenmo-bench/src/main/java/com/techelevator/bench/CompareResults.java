@@ -0,0 +1,115 @@
+package com.techelevator.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+    Compares two JMH result files benchmark by benchmark, for example a new run against the committed baseline:
+
+    java -jar tenmo-bench/target/benchmarks.jar -rf json -rff new.json
+    java -cp tenmo-bench/target/benchmarks.jar com.techelevator.bench.CompareResults tenmo-bench/baseline.json new.json
+
+    A benchmark is marked faster or slower when its score moved by more than the threshold (10% unless a third
+    argument gives another percentage) and the two scores' error intervals don't overlap; anything less is noise.
+    Exits with 1 if any benchmark got slower, so a build step can fail on it.
+ */
+public class CompareResults {
+
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <current.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        int slower = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s %14s %9s%n", entry.getKey(), "-", now, "new");
+                continue;
+            }
+            if (!before.unit.equals(now.unit)) {
+                System.out.printf("%-70s %14s %14s %9s%n", entry.getKey(), before, now, "unit?");
+                continue;
+            }
+            double change = (now.score - before.score) / before.score * 100;
+            boolean overlaps = Math.abs(now.score - before.score) <= now.error + before.error;
+            String verdict = "";
+            if (Math.abs(change) > threshold && !overlaps) {
+                // Lower is better for times, higher is better for throughput
+                boolean worse = now.higherIsBetter ? change < 0 : change > 0;
+                verdict = worse ? "  SLOWER" : "  faster";
+                if (worse) {
+                    slower++;
+                }
+            }
+            System.out.printf("%-70s %14s %14s %+8.1f%%%s%n", entry.getKey(), before, now, change, verdict);
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("%-70s %14s %14s %9s%n", name, baseline.get(name), "-", "missing");
+            }
+        }
+
+        if (slower > 0) {
+            System.out.printf("%d benchmark(s) slower than the baseline by more than %.0f%%%n", slower, threshold);
+            System.exit(1);
+        }
+    }
+
+    // Results by benchmark name and parameters, e.g. TransferJsonBenchmark.writeTransferList(transfers=50)
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new TreeMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            String benchmark = run.get("benchmark").asText();
+            String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            JsonNode params = run.get("params");
+            if (params != null && params.size() > 0) {
+                Map<String, String> values = new LinkedHashMap<>();
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    values.put(param.getKey(), param.getValue().asText());
+                }
+                name += values.toString().replace('{', '(').replace('}', ')');
+            }
+            JsonNode metric = run.get("primaryMetric");
+            double error = metric.get("scoreError").asDouble();
+            results.put(name, new Result(metric.get("score").asDouble(), Double.isNaN(error) ? 0 : error,
+                    metric.get("scoreUnit").asText(), "thrpt".equals(run.get("mode").asText())));
+        }
+        return results;
+    }
+
+    private static class Result {
+        private final double score;
+        private final double error;
+        private final String unit;
+        private final boolean higherIsBetter;
+
+        private Result(double score, double error, String unit, boolean higherIsBetter) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3f %s", score, unit);
+        }
+    }
+}
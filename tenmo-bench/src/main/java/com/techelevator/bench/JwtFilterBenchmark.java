@@ -0,0 +1,123 @@
+package com.techelevator.bench;
+
+import com.techelevator.tenmo.security.jwt.JWTFilter;
+import com.techelevator.tenmo.security.jwt.TokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import javax.servlet.FilterChain;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+    What JWTFilter costs per authenticated request: the way it used to work (validateToken and getAuthentication each
+    building a parser and verifying the HS512 signature), parsing once with the shared parser (cache size 0), and
+    parsing once with the verified-claims cache warm.
+
+    java -jar tenmo-bench/target/benchmarks.jar JwtFilterBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private Key key;
+    private String token;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private JWTFilter parseOnceFilter;
+    private JWTFilter cachedFilter;
+
+    @Setup(Level.Trial)
+    public void createToken() {
+        // Without a logging config logback logs at DEBUG, and the filter's debug line would be most of the cost
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.INFO);
+
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        String base64Secret = Base64.getEncoder().encodeToString(secret);
+        key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
+
+        TokenProvider uncached = tokenProvider(base64Secret, 0);
+        TokenProvider cached = tokenProvider(base64Secret, 10000);
+        parseOnceFilter = new JWTFilter(uncached);
+        cachedFilter = new JWTFilter(cached);
+
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        token = cached.createToken(new UsernamePasswordAuthenticationToken(new User("user1", "", authorities), "", authorities), false);
+
+        request = new MockHttpServletRequest("GET", "/accounts");
+        request.addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Authentication previousFilter() {
+        // What JWTFilter did: validateToken parsed the token with a new parser, then getAuthentication did it again
+        String jwt = request.getHeader(JWTFilter.AUTHORIZATION_HEADER).substring(7);
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt);
+        Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt).getBody();
+        Collection<? extends GrantedAuthority> authorities = Arrays.stream(claims.get("auth").toString().split(","))
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                new User(claims.getSubject(), "", authorities), jwt, authorities);
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return authentication;
+    }
+
+    @Benchmark
+    public Authentication parseOnce() throws Exception {
+        return filter(parseOnceFilter);
+    }
+
+    @Benchmark
+    public Authentication parseOnceCached() throws Exception {
+        return filter(cachedFilter);
+    }
+
+    private Authentication filter(JWTFilter filter) throws Exception {
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static TokenProvider tokenProvider(String base64Secret, long claimsCacheSize) {
+        TokenProvider tokenProvider = new TokenProvider(base64Secret, 86400, 108000, claimsCacheSize);
+        tokenProvider.afterPropertiesSet();
+        return tokenProvider;
+    }
+}
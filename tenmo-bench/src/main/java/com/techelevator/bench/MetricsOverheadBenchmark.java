@@ -0,0 +1,124 @@
+package com.techelevator.bench;
+
+import com.techelevator.tenmo.dao.UserDao;
+import com.techelevator.tenmo.metrics.DaoMetricsPostProcessor;
+import com.techelevator.tenmo.metrics.TransferMetrics;
+import com.techelevator.tenmo.model.User;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    What the metrics cost per call: a DAO method called directly and through the DaoMetricsPostProcessor proxy, with
+    and without the histogram buckets application.properties turns on, and counting a transfer outcome. The DAO does
+    no work, so the difference is all overhead; a real DAO call takes a database round trip of 100 us or more.
+
+    java -jar tenmo-bench/target/benchmarks.jar MetricsOverheadBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private UserDao direct;
+    private UserDao timed;
+    private UserDao timedWithHistogram;
+    private TransferMetrics transferMetrics;
+
+    @Setup(Level.Trial)
+    public void createDaos() {
+        direct = new StubUserDao();
+        timed = timed(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+
+        PrometheusMeterRegistry histogramRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        histogramRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+        timedWithHistogram = timed(histogramRegistry);
+
+        transferMetrics = new TransferMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+    }
+
+    @Benchmark
+    public User direct() {
+        return direct.getUserById(1001);
+    }
+
+    @Benchmark
+    public User timed() {
+        return timed.getUserById(1001);
+    }
+
+    @Benchmark
+    public User timedWithHistogram() {
+        return timedWithHistogram.getUserById(1001);
+    }
+
+    @Benchmark
+    public void countTransfer() {
+        transferMetrics.recordSent(TransferMetrics.Source.SEND);
+    }
+
+    private static UserDao timed(MeterRegistry registry) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        DaoMetricsPostProcessor postProcessor =
+                new DaoMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+        postProcessor.setBeanFactory(beanFactory);
+        return (UserDao) postProcessor.postProcessAfterInitialization(new StubUserDao(), "userDao");
+    }
+
+    private static class StubUserDao implements UserDao {
+
+        private final User user = new User(1001, "user1", "password", "USER");
+
+        @Override
+        public List<User> getUsers() {
+            return List.of(user);
+        }
+
+        @Override
+        public User getUserById(int id) {
+            return user;
+        }
+
+        @Override
+        public User getUserByUsername(String username) {
+            return user;
+        }
+
+        @Override
+        public User createUser(String username, String passwordHash) {
+            return this.user;
+        }
+
+        @Override
+        public int importUsers(List<User> users) {
+            return users.size();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.techelevator.bench;
+
+import com.techelevator.tenmo.security.jwt.TokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    TokenProvider on its own: signing a token at login, and turning a token back into an Authentication with and
+    without the verified-claims cache.
+
+    java -jar tenmo-bench/target/benchmarks.jar TokenProviderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenProviderBenchmark {
+
+    private TokenProvider uncached;
+    private TokenProvider cached;
+    private Authentication authentication;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void createProviders() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.INFO);
+
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        String base64Secret = Base64.getEncoder().encodeToString(secret);
+        uncached = tokenProvider(base64Secret, 0);
+        cached = tokenProvider(base64Secret, 10000);
+
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        authentication = new UsernamePasswordAuthenticationToken(new User("user1", "", authorities), "", authorities);
+        token = cached.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return uncached.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication() {
+        return uncached.getAuthentication(token);
+    }
+
+    @Benchmark
+    public Authentication getAuthenticationCached() {
+        return cached.getAuthentication(token);
+    }
+
+    private static TokenProvider tokenProvider(String base64Secret, long claimsCacheSize) {
+        TokenProvider tokenProvider = new TokenProvider(base64Secret, 86400, 108000, claimsCacheSize);
+        tokenProvider.afterPropertiesSet();
+        return tokenProvider;
+    }
+}
@@ -0,0 +1,93 @@
+package com.techelevator.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Jackson with the settings Spring Boot gives the server's ObjectMapper: one transfer as a POST body is read and
+    answered, and a list of transfers as a history page is written. 50 is the default page size.
+
+    java -jar tenmo-bench/target/benchmarks.jar TransferJsonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Transfer transfer;
+    private byte[] transferJson;
+
+    @Setup(Level.Trial)
+    public void createTransfer() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        transfer = transfer(0);
+        transferJson = objectMapper.writeValueAsBytes(transfer);
+    }
+
+    @Benchmark
+    public byte[] writeTransfer() throws Exception {
+        return objectMapper.writeValueAsBytes(transfer);
+    }
+
+    @Benchmark
+    public Transfer readTransfer() throws Exception {
+        return objectMapper.readValue(transferJson, Transfer.class);
+    }
+
+    @Benchmark
+    public byte[] writeTransferList(History history) throws Exception {
+        return objectMapper.writeValueAsBytes(history.page.getTransfers());
+    }
+
+    @Benchmark
+    public byte[] writeTransferPage(History history) throws Exception {
+        return objectMapper.writeValueAsBytes(history.page);
+    }
+
+    private static Transfer transfer(int n) {
+        return new Transfer(3001 + n, 1001 + n % 100, 1101 + n % 100, BigDecimal.valueOf(n % 10000 + 1, 2),
+                "Send", "Approved", "sender" + n % 100, "recipient" + n % 100);
+    }
+
+    // Its own state so only the benchmarks that write a history run once per size
+    @State(Scope.Benchmark)
+    public static class History {
+
+        @Param({"50", "1000"})
+        private int transfers;
+
+        private TransferPage page;
+
+        @Setup(Level.Trial)
+        public void createPage() {
+            List<Transfer> list = new ArrayList<>(transfers);
+            for (int n = 0; n < transfers; n++) {
+                list.add(transfer(n));
+            }
+            page = new TransferPage(list, 3001 + transfers);
+        }
+    }
+}
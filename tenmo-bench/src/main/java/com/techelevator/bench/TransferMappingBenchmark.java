@@ -0,0 +1,130 @@
+package com.techelevator.bench;
+
+import com.techelevator.tenmo.dao.TransferLookups;
+import com.techelevator.tenmo.dao.TransferRowMapper;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferStatus;
+import com.techelevator.tenmo.model.TransferType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Compares the old way the DAO read transfers, copying the whole result into a SqlRowSet and mapping each row by
+    column name, with TransferRowMapper reading the live result by column index into a list sized up front. An
+    in-memory CachedRowSet stands in for the driver's result set so the numbers cover mapping only, not the database.
+
+    java -jar tenmo-bench/target/benchmarks.jar TransferMappingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferMappingBenchmark {
+
+    private static final String[] COLUMNS = {"transfer_id", "transfer_type_id", "transfer_status_id", "amount",
+            "sender_id", "recipient_id", "sender_username", "recipient_username"};
+    private static final int[] TYPES = {Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.NUMERIC,
+            Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR};
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    private CachedRowSet result;
+    private TransferLookups lookups;
+    private TransferRowMapper mapper;
+
+    @Setup(Level.Trial)
+    public void createResult() throws SQLException {
+        Map<TransferType, Integer> typeIds = new EnumMap<>(TransferType.class);
+        typeIds.put(TransferType.REQUEST, 1);
+        typeIds.put(TransferType.SEND, 2);
+        Map<TransferStatus, Integer> statusIds = new EnumMap<>(TransferStatus.class);
+        statusIds.put(TransferStatus.PENDING, 1);
+        statusIds.put(TransferStatus.APPROVED, 2);
+        statusIds.put(TransferStatus.REJECTED, 3);
+        lookups = TransferLookups.of(typeIds, statusIds);
+        mapper = new TransferRowMapper(lookups);
+
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(COLUMNS.length);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            metaData.setColumnName(i + 1, COLUMNS[i]);
+            metaData.setColumnLabel(i + 1, COLUMNS[i]);
+            metaData.setColumnType(i + 1, TYPES[i]);
+        }
+
+        result = RowSetProvider.newFactory().createCachedRowSet();
+        result.setMetaData(metaData);
+        for (int n = 0; n < rows; n++) {
+            result.moveToInsertRow();
+            result.updateInt(1, n + 1);
+            result.updateInt(2, n % 2 + 1);
+            result.updateInt(3, n % 3 + 1);
+            result.updateBigDecimal(4, BigDecimal.valueOf(n % 10000, 2));
+            result.updateInt(5, 1001 + n % 100);
+            result.updateInt(6, 1101 + n % 100);
+            result.updateString(7, "sender" + n % 100);
+            result.updateString(8, "recipient" + n % 100);
+            result.insertRow();
+        }
+        result.moveToCurrentRow();
+    }
+
+    @Benchmark
+    public List<Transfer> sqlRowSetByName() throws SQLException {
+        result.beforeFirst();
+        // What queryForRowSet did: copy every row into a disconnected row set before mapping any of them
+        SqlRowSet rowSet = new SqlRowSetResultSetExtractor().extractData(result);
+        List<Transfer> transfers = new ArrayList<>();
+        while (rowSet.next()) {
+            Transfer transfer = new Transfer();
+            transfer.setTransferId(rowSet.getInt("transfer_id"));
+            transfer.setSenderUsername(rowSet.getString("sender_username"));
+            transfer.setSenderId(rowSet.getInt("sender_id"));
+            transfer.setRecipientId(rowSet.getInt("recipient_id"));
+            transfer.setRecipientUsername(rowSet.getString("recipient_username"));
+            transfer.setAmount(rowSet.getBigDecimal("amount"));
+            transfer.setTransferType(lookups.type(rowSet.getInt("transfer_type_id")));
+            transfer.setTransferStatus(lookups.status(rowSet.getInt("transfer_status_id")));
+            transfers.add(transfer);
+        }
+        return transfers;
+    }
+
+    @Benchmark
+    public List<Transfer> rowMapperByIndex() throws SQLException {
+        result.beforeFirst();
+        List<Transfer> transfers = new ArrayList<>(rows);
+        int rowNum = 0;
+        while (result.next()) {
+            transfers.add(mapper.mapRow(result, rowNum++));
+        }
+        return transfers;
+    }
+}
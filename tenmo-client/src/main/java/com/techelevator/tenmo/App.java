@@ -4,9 +4,11 @@ import com.techelevator.tenmo.model.*;
 import com.techelevator.tenmo.services.AuthenticationService;
 import com.techelevator.tenmo.services.ConsoleService;
 import com.techelevator.tenmo.services.TenmoService;
+import com.techelevator.tenmo.services.TransferEventListener;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class App {
 
@@ -14,7 +16,8 @@ public class App {
 
     private final ConsoleService consoleService = new ConsoleService();
     private final AuthenticationService authenticationService = new AuthenticationService(API_BASE_URL);
-    private final TenmoService tenmoService = new TenmoService();
+    private final TenmoService tenmoService = new TenmoService(API_BASE_URL);
+    private final TransferEventListener transferEventListener = new TransferEventListener(API_BASE_URL, this::showTransferEvent);
 
     private AuthenticatedUser currentUser;
 
@@ -28,6 +31,7 @@ public class App {
         loginMenu();
         if (currentUser != null) {
             mainMenu();
+            transferEventListener.stop();
         }
     }
     private void loginMenu() {
@@ -63,9 +67,18 @@ public class App {
             consoleService.printErrorMessage();
         } else {
             tenmoService.setAuthToken(currentUser.getToken());
+            // Incoming transfers and requests are printed as they happen, whatever menu is showing
+            transferEventListener.start(currentUser.getToken());
+            tenmoService.prefetch(currentUser.getUser().getId());
         }
     }
 
+    private void showTransferEvent(String event, Transfer transfer) {
+        // The balance and transfer lists the client has cached are out of date now
+        tenmoService.invalidateCache();
+        consoleService.printTransferNotification(event, transfer, currentUser.getUser().getId());
+    }
+
     private void mainMenu() {
         int menuSelection = -1;
         while (menuSelection != 0) {
@@ -96,19 +109,29 @@ public class App {
 	}
 
 	private void viewTransferHistory() {
-		Transfer[] transfers = tenmoService.retrieveListOfTransfers(currentUser.getUser().getId());
-
-        // pass list to console to print
-        consoleService.printListOfTransfers(transfers, currentUser.getUser().getUsername());
-        if (transfers == null){
-            return;
-        }
-        int userResponse = consoleService.promptForInt("Please enter transfer ID to view details (0 to cancel): ");
-        if (userResponse == 0){
+        int afterId = 0;
+        while (true) {
+            TransferPage page = tenmoService.retrieveListOfTransfers(currentUser.getUser().getId(), afterId);
+            Transfer[] transfers = page == null ? null : page.getTransfers();
+
+            // pass list to console to print
+            consoleService.printListOfTransfers(transfers, currentUser.getUser().getUsername());
+            if (transfers == null){
+                return;
+            }
+            int userResponse = consoleService.promptForInt(page.hasNextPage()
+                    ? "Please enter transfer ID to view details (-1 for more, 0 to cancel): "
+                    : "Please enter transfer ID to view details (0 to cancel): ");
+            if (userResponse == -1 && page.hasNextPage()) {
+                afterId = page.getNextCursor();
+                continue;
+            }
+            if (userResponse == 0){
+                return;
+            }
+            viewTransferById(userResponse);
             return;
         }
-        viewTransferById(userResponse);
-
 	}
     private void viewTransferById(int transferId){
         Transfer transfer = tenmoService.retrieveTransferById(transferId);
@@ -121,13 +144,29 @@ public class App {
     }
 
 	private void viewPendingRequests() {
-        Transfer[] transfers = tenmoService.retrieveListOfPendingTransfers(currentUser.getUser().getId());
-        if (transfers == null) {
-            consoleService.printValidationMessage("No Pending Transfers at this time.");
-            return;
+        int afterId = 0;
+        int transferId;
+        // Fetched alongside the first page, to show whether there's enough to approve
+        CompletableFuture<Account> account = tenmoService.retrieveAccountBalanceAsync();
+        while (true) {
+            TransferPage page = tenmoService.retrieveListOfPendingTransfers(currentUser.getUser().getId(), afterId);
+            if (page == null) {
+                consoleService.printValidationMessage("No Pending Transfers at this time.");
+                return;
+            }
+            consoleService.printListOfPendingTransfers(page.getTransfers());
+            if (afterId == 0 && account.join() != null) {
+                consoleService.printCurrentBalance(account.join().getBalance());
+            }
+            transferId = consoleService.promptForInt(page.hasNextPage()
+                    ? "Please enter transfer ID to approve/reject (-1 for more, 0 to cancel): "
+                    : "Please enter transfer ID to approve/reject (0 to cancel): ");
+            if (transferId == -1 && page.hasNextPage()) {
+                afterId = page.getNextCursor();
+                continue;
+            }
+            break;
         }
-        consoleService.printListOfPendingTransfers(transfers);
-        int transferId = consoleService.promptForInt("Please enter transfer ID to approve/reject (0 to cancel): ");
         if (transferId == 0) {
             return;
         }
@@ -152,13 +191,19 @@ public class App {
 	}
 
 	private void sendBucks() {
-        // Print list of users
+        // Fetch the users and the balance at the same time
+        CompletableFuture<Account> account = tenmoService.retrieveAccountBalanceAsync();
         User[] users = tenmoService.retrieveListOfUsers();
         if(users == null) {
             consoleService.printValidationMessage("No other users at this time.");
             return;
         }
+        // Print list of users
         consoleService.printListOfUsers(users, currentUser.getUser().getId());
+        BigDecimal balance = account.join() == null ? null : account.join().getBalance();
+        if (balance != null) {
+            consoleService.printCurrentBalance(balance);
+        }
 
         // Prompt user for recipient user Id
         int recipientUserId = consoleService.promptForInt("Enter ID of user you are sending to (0 to cancel): ");
@@ -0,0 +1,27 @@
+package com.techelevator.tenmo.model;
+
+public class TransferPage {
+
+    private Transfer[] transfers;
+    private Integer nextCursor;
+
+    public Transfer[] getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(Transfer[] transfers) {
+        this.transfers = transfers;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNextPage() {
+        return nextCursor != null;
+    }
+}
@@ -16,7 +16,7 @@ import com.techelevator.tenmo.model.UserCredentials;
 public class AuthenticationService {
 
     private final String baseUrl;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate = HttpTransport.shared().getRestTemplate();
 
     public AuthenticationService(String url) {
         this.baseUrl = url;
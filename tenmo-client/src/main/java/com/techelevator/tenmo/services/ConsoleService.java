@@ -155,6 +155,25 @@ public class ConsoleService {
         System.out.println("Amount: $" + transfer.getAmount());
     }
 
+    // Only what someone else did to the user: their own sends, requests and approvals were already confirmed
+    public void printTransferNotification(String event, Transfer transfer, int userId) {
+        String message = null;
+        if (event.equals("sent") && transfer.getRecipientId() == userId) {
+            message = transfer.getSenderUsername() + " sent you $" + transfer.getAmount() + ".";
+        } else if (event.equals("requested") && transfer.getSenderId() == userId) {
+            message = transfer.getRecipientUsername() + " requested $" + transfer.getAmount()
+                    + " from you. See your pending requests to approve or reject it.";
+        } else if (event.equals("approved") && transfer.getRecipientId() == userId) {
+            message = transfer.getSenderUsername() + " approved your request for $" + transfer.getAmount() + ".";
+        } else if (event.equals("rejected") && transfer.getRecipientId() == userId) {
+            message = transfer.getSenderUsername() + " rejected your request for $" + transfer.getAmount() + ".";
+        }
+        if (message != null) {
+            System.out.println();
+            System.out.println("*** " + message + " ***");
+        }
+    }
+
     public BigDecimal promptForBigDecimal(String prompt) {
         System.out.print(prompt);
         while (true) {
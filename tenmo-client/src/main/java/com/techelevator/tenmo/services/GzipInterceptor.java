@@ -0,0 +1,101 @@
+package com.techelevator.tenmo.services;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Asks for gzip on every RestTemplate request that doesn't name an encoding itself, and unpacks gzipped responses
+ * before RestTemplate reads them. HttpURLConnection does neither on its own.
+ */
+public class GzipInterceptor implements ClientHttpRequestInterceptor {
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        ClientHttpResponse response = execution.execute(request, body);
+        return isGzip(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))
+                ? new UnpackedResponse(response) : response;
+    }
+
+    static boolean isGzip(String contentEncoding) {
+        return "gzip".equalsIgnoreCase(contentEncoding);
+    }
+
+    /**
+     * The gzipped body unpacked. A 304 or a HEAD can say gzip and still have no body, which GZIPInputStream can't
+     * open, so an empty body is returned as it is.
+     */
+    static InputStream unpack(InputStream gzipped) throws IOException {
+        PushbackInputStream body = new PushbackInputStream(gzipped);
+        int first = body.read();
+        if (first == -1) {
+            return body;
+        }
+        body.unread(first);
+        return new GZIPInputStream(body);
+    }
+
+    private static class UnpackedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private final HttpHeaders headers = new HttpHeaders();
+        private InputStream body;
+
+        UnpackedResponse(ClientHttpResponse response) {
+            this.response = response;
+            // They describe the gzipped body, not the one RestTemplate reads
+            response.getHeaders().forEach((name, values) -> {
+                if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_ENCODING)
+                        && !name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+                    headers.addAll(name, values);
+                }
+            });
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = unpack(response.getBody());
+            }
+            return body;
+        }
+
+        // The wrapped response drains what's left of the raw body, so HttpURLConnection can reuse the connection
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.techelevator.tenmo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The HTTP client the console client's services share, with one ObjectMapper for every body. Its RestTemplate runs on
+ * HttpURLConnection, which keeps connections to the server open between calls and was the fastest transport in
+ * TransportBenchmark; GzipInterceptor adds gzip, and the factory times out connecting and reading. getAsync goes
+ * through a java.net.http.HttpClient instead, because it's the one that waits on no thread at all.
+ */
+public class HttpTransport {
+
+    public static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration READ_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final HttpTransport SHARED = new HttpTransport(CONNECT_TIMEOUT, READ_TIMEOUT);
+
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    // Configured as Spring configures RestTemplate's own, e.g. ignoring properties the model doesn't have
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final RestTemplate restTemplate;
+
+    public HttpTransport(Duration connectTimeout, Duration readTimeout) {
+        // HTTP/1.1 up front, rather than offering every new connection an upgrade the server doesn't take
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+        this.readTimeout = readTimeout;
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) connectTimeout.toMillis());
+        requestFactory.setReadTimeout((int) readTimeout.toMillis());
+        this.restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(new GzipInterceptor());
+        for (HttpMessageConverter<?> converter : restTemplate.getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                ((MappingJackson2HttpMessageConverter) converter).setObjectMapper(objectMapper);
+            }
+        }
+    }
+
+    public static HttpTransport shared() {
+        return SHARED;
+    }
+
+    /**
+     * Thread-safe, so every service uses this one.
+     */
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * GETs the url with the token and reads the body as the type. Completes exceptionally with a
+     * RestClientResponseException for a status other than 2xx, as RestTemplate would throw.
+     */
+    public <T> CompletableFuture<T> getAsync(String url, String authToken, Class<T> type) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(readTimeout)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + authToken)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .GET()
+                .build();
+        // The whole body arrives before the callback, so unpacking and parsing it only reads memory
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> read(response, type));
+    }
+
+    private <T> T read(HttpResponse<byte[]> response, Class<T> type) {
+        String encoding = response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null);
+        try {
+            byte[] body = GzipInterceptor.isGzip(encoding)
+                    ? GzipInterceptor.unpack(new ByteArrayInputStream(response.body())).readAllBytes()
+                    : response.body();
+            if (response.statusCode() / 100 != 2) {
+                HttpStatus status = HttpStatus.resolve(response.statusCode());
+                HttpHeaders headers = new HttpHeaders();
+                response.headers().map().forEach(headers::addAll);
+                throw new RestClientResponseException(response.statusCode() + " from GET " + response.uri(),
+                        response.statusCode(), status != null ? status.getReasonPhrase() : "",
+                        headers, body, StandardCharsets.UTF_8);
+            }
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.techelevator.tenmo.services;
+
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.User;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What TenmoService has already fetched this session, so a menu can show it again without waiting on the server.
+ *
+ * Approved and rejected transfers never change, so they're kept by id for as long as there's room. The balance and
+ * the pages of transfers change with every transfer: they're dropped when the user sends, requests, approves or
+ * rejects, when the server pushes a transfer event, and after MAX_AGE in case an event was missed. The user list is
+ * used for USERS_MAX_AGE, after which the server is asked whether it changed.
+ */
+public class ResponseCache {
+
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long USERS_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final int MAX_TRANSFERS = 500;
+
+    private final boolean enabled;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<Integer, Transfer> finalizedTransfers = new LinkedHashMap<Integer, Transfer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Transfer> eldest) {
+            return size() > MAX_TRANSFERS;
+        }
+    };
+    // Bumped by every invalidation, so a fetch that started before one can't put back what it dropped
+    private long generation;
+    private User[] users;
+    private String usersETag;
+    private long usersFetchedAt;
+
+    public ResponseCache() {
+        this(true);
+    }
+
+    private ResponseCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * A cache that holds nothing, so every call goes to the server (as the load generator needs).
+     */
+    public static ResponseCache disabled() {
+        return new ResponseCache(false);
+    }
+
+    /**
+     * To pass to put once the fetch it's taken before has finished.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @return the value, or null if there is none or it's older than MAX_AGE
+     */
+    public synchronized <T> T get(String key, Class<T> type) {
+        Entry entry = entries.get(key);
+        if (entry == null || System.nanoTime() - entry.fetchedAt > MAX_AGE_NANOS) {
+            return null;
+        }
+        return type.cast(entry.value);
+    }
+
+    public synchronized void put(String key, Object value, long fetchGeneration) {
+        if (enabled && value != null && fetchGeneration == generation) {
+            entries.put(key, new Entry(value, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Drops everything a transfer can change: the balance and the pages of transfers.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized Transfer getTransfer(int transferId) {
+        return finalizedTransfers.get(transferId);
+    }
+
+    /**
+     * Keeps the ones that are approved or rejected.
+     */
+    public synchronized void putTransfers(Transfer... transfers) {
+        if (!enabled || transfers == null) {
+            return;
+        }
+        for (Transfer transfer : transfers) {
+            if (transfer != null && !"Pending".equalsIgnoreCase(transfer.getStatus())) {
+                finalizedTransfers.put(transfer.getTransferId(), transfer);
+            }
+        }
+    }
+
+    /**
+     * @return the user list if it was fetched within USERS_MAX_AGE, otherwise null
+     */
+    public synchronized User[] getFreshUsers() {
+        return users != null && System.nanoTime() - usersFetchedAt <= USERS_MAX_AGE_NANOS ? users : null;
+    }
+
+    /**
+     * @return the last user list fetched, however old, to use when the server answers that it hasn't changed
+     */
+    public synchronized User[] getUsers() {
+        return users;
+    }
+
+    public synchronized String getUsersETag() {
+        return usersETag;
+    }
+
+    /**
+     * Records the user list and its ETag, or only that it was checked when the server answered 304.
+     */
+    public synchronized void putUsers(User[] users, String eTag) {
+        this.users = users;
+        this.usersETag = eTag;
+        // Without the cache the list is still revalidated with its ETag, just on every call
+        this.usersFetchedAt = enabled ? System.nanoTime() : System.nanoTime() - USERS_MAX_AGE_NANOS - 1;
+    }
+
+    private static class Entry {
+
+        final Object value;
+        final long fetchedAt;
+
+        Entry(Object value, long fetchedAt) {
+            this.value = value;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.techelevator.tenmo.services;
 
 import com.techelevator.tenmo.model.Account;
 import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
 import com.techelevator.tenmo.model.User;
 import com.techelevator.util.BasicLogger;
 import org.springframework.http.*;
@@ -11,23 +12,79 @@ import org.springframework.web.client.RestTemplate;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class TenmoService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final String API_BASE_URL = "http://localhost:8080/";
-    private String authToken = null;
+    private final RestTemplate restTemplate;
+    private final HttpTransport transport;
+    private final String API_BASE_URL;
+    private static final int PAGE_SIZE = 20;
+    private volatile String authToken = null;
+    private final ResponseCache cache;
+
+    // Runs the calls a screen makes at the same time, so it waits for the slowest rather than for each in turn
+    private static final AtomicInteger FETCH_THREAD_NUMBER = new AtomicInteger();
+    private static final ExecutorService FETCHES = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "tenmo-fetch-" + FETCH_THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TenmoService(String baseUrl) {
+        this(baseUrl, new ResponseCache());
+    }
+
+    public TenmoService(String baseUrl, ResponseCache cache) {
+        this.API_BASE_URL = baseUrl;
+        this.cache = cache;
+        this.transport = HttpTransport.shared();
+        this.restTemplate = transport.getRestTemplate();
+    }
 
     public void setAuthToken(String authToken){
         this.authToken = authToken;
     }
 
+    /**
+     * Makes the call on one of the fetch threads, so calls that don't depend on each other can be made at once.
+     */
+    public <T> CompletableFuture<T> fetchAsync(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, FETCHES);
+    }
+
+    /**
+     * Starts fetching what the main menu's screens show first, so they can be shown from the cache.
+     */
+    public void prefetch(int userId) {
+        retrieveAccountBalanceAsync();
+        fetchAsync(this::retrieveListOfUsers);
+        fetchAsync(() -> retrieveListOfTransfers(userId, 0));
+        fetchAsync(() -> retrieveListOfPendingTransfers(userId, 0));
+    }
+
+    /**
+     * Drops the cached balance and transfer pages, e.g. when the server reports a transfer involving the user.
+     */
+    public void invalidateCache() {
+        cache.invalidate();
+    }
+
     public Account retrieveAccountBalance() {
-        Account retreivedAccount = null;
+        Account retreivedAccount = cache.get("accounts", Account.class);
+        if (retreivedAccount != null) {
+            return retreivedAccount;
+        }
 
         try {
+            long generation = cache.generation();
             ResponseEntity<Account> response = restTemplate.exchange(API_BASE_URL + "accounts", HttpMethod.GET, makeAuthEntity(), Account.class);
             retreivedAccount = response.getBody();
+            cache.put("accounts", retreivedAccount, generation);
         }
         catch (Exception e) {
             BasicLogger.log(e.getMessage());
@@ -36,12 +93,50 @@ public class TenmoService {
         return retreivedAccount;
     }
 
+    /**
+     * The balance as retrieveAccountBalance returns it, without taking a thread while the server answers.
+     */
+    public CompletableFuture<Account> retrieveAccountBalanceAsync() {
+        Account cachedAccount = cache.get("accounts", Account.class);
+        if (cachedAccount != null) {
+            return CompletableFuture.completedFuture(cachedAccount);
+        }
+
+        long generation = cache.generation();
+        return transport.getAsync(API_BASE_URL + "accounts", authToken, Account.class)
+                .handle((account, e) -> {
+                    if (e != null) {
+                        BasicLogger.log(e.getMessage());
+                        return null;
+                    }
+                    cache.put("accounts", account, generation);
+                    return account;
+                });
+    }
+
     public User[] retrieveListOfUsers() {
-        User[] users = null;
+        User[] users = cache.getFreshUsers();
+        if (users != null) {
+            return users;
+        }
 
         try {
-            ResponseEntity<User[]> response = restTemplate.exchange(API_BASE_URL + "users", HttpMethod.GET, makeAuthEntity(), User[].class);
-            users = response.getBody();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(authToken);
+            // The ETag of the list we have, so the server can answer 304 if it hasn't changed
+            String usersETag = cache.getUsersETag();
+            if (usersETag != null) {
+                headers.setIfNoneMatch(usersETag);
+            }
+            ResponseEntity<User[]> response = restTemplate.exchange(API_BASE_URL + "users", HttpMethod.GET, new HttpEntity<>(headers), User[].class);
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                // Nobody has registered since the last call
+                users = cache.getUsers();
+                cache.putUsers(users, usersETag);
+            } else {
+                users = response.getBody();
+                cache.putUsers(users, response.getHeaders().getETag());
+            }
         }
         catch (Exception e) {
             BasicLogger.log(e.getMessage());
@@ -62,39 +157,53 @@ public class TenmoService {
             BasicLogger.log(e.getMessage());
         }
 
+        // Once the write is done, so a fetch still running from before it can't cache what it read
+        finally {
+            cache.invalidate();
+        }
+
         return transfer;
     }
 
-    public Transfer[] retrieveListOfTransfers(int userId){
-        Transfer[] transfers = null;
-        try {
-            ResponseEntity<Transfer[]> response = restTemplate.exchange(API_BASE_URL + "transfers?userId=" + userId, HttpMethod.GET, makeAuthEntity(), Transfer[].class);
-            transfers = response.getBody();
+    public TransferPage retrieveListOfTransfers(int userId, int afterId){
+        return retrieveTransferPage("transfers?userId=" + userId + "&afterId=" + afterId);
+    }
 
-        } catch(Exception e) {
-            BasicLogger.log(e.getMessage());
-        }
-        return transfers;
+    public TransferPage retrieveListOfPendingTransfers(int userId, int afterId){
+        return retrieveTransferPage("transfers?userId=" + userId + "&wantsPending=true&afterId=" + afterId);
     }
 
-    public Transfer[] retrieveListOfPendingTransfers(int userId){
-        Transfer[] transfers = null;
+    private TransferPage retrieveTransferPage(String path) {
+        TransferPage page = cache.get(path, TransferPage.class);
+        if (page != null) {
+            return page;
+        }
         try {
-            ResponseEntity<Transfer[]> response = restTemplate.exchange(API_BASE_URL + "transfers?userId=" + userId + "&wantsPending=true", HttpMethod.GET, makeAuthEntity(), Transfer[].class);
-            transfers = response.getBody();
+            long generation = cache.generation();
+            ResponseEntity<TransferPage> response = restTemplate.exchange(API_BASE_URL + path + "&limit=" + PAGE_SIZE, HttpMethod.GET, makeAuthEntity(), TransferPage.class);
+            page = response.getBody();
+            cache.put(path, page, generation);
+            if (page != null) {
+                cache.putTransfers(page.getTransfers());
+            }
 
         } catch(Exception e) {
             BasicLogger.log(e.getMessage());
         }
-        return transfers;
+        return page;
     }
 
     public Transfer retrieveTransferById(int transferId){
-        Transfer transfer = null;
+        // Usually listed on the page the id was picked from
+        Transfer transfer = cache.getTransfer(transferId);
+        if (transfer != null) {
+            return transfer;
+        }
 
         try {
             ResponseEntity<Transfer> response = restTemplate.exchange(API_BASE_URL + "transfers/" + transferId, HttpMethod.GET, makeAuthEntity(), Transfer.class);
             transfer = response.getBody();
+            cache.putTransfers(transfer);
         }
         catch(Exception e) {
             BasicLogger.log(e.getMessage());
@@ -109,6 +218,8 @@ public class TenmoService {
             return response.getBody();
         } catch (Exception e) {
             BasicLogger.log(e.getMessage());
+        } finally {
+            cache.invalidate();
         }
         return false;
     }
@@ -0,0 +1,146 @@
+package com.techelevator.tenmo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.util.BasicLogger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * Listens to the server's GET /transfers/events on a background thread and hands each event to the handler: its
+ * name (sent, requested, approved or rejected) and the transfer. When the stream ends or fails it connects again,
+ * waiting twice as long each time it can't, up to 30 seconds. Events published while it was disconnected are missed.
+ */
+public class TransferEventListener {
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    // The server sends a heartbeat every 20 seconds, so a stream this quiet has gone away
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+    private final String baseUrl;
+    private final BiConsumer<String, Transfer> handler;
+    private final ObjectMapper objectMapper = HttpTransport.shared().getObjectMapper();
+
+    private volatile boolean running;
+    private volatile HttpURLConnection connection;
+    private Thread thread;
+
+    public TransferEventListener(String baseUrl, BiConsumer<String, Transfer> handler) {
+        this.baseUrl = baseUrl;
+        this.handler = handler;
+    }
+
+    public synchronized void start(String authToken) {
+        stop();
+        running = true;
+        thread = new Thread(() -> listen(authToken), "transfer-events");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        HttpURLConnection current = connection;
+        if (current != null) {
+            // Unblocks the read the listening thread is waiting in
+            current.disconnect();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void listen(String authToken) {
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        while (running) {
+            try {
+                HttpURLConnection current = (HttpURLConnection) new URL(baseUrl + "transfers/events").openConnection();
+                current.setRequestProperty("Authorization", "Bearer " + authToken);
+                current.setRequestProperty("Accept", "text/event-stream");
+                current.setConnectTimeout((int) HttpTransport.CONNECT_TIMEOUT.toMillis());
+                current.setReadTimeout(READ_TIMEOUT_MILLIS);
+                connection = current;
+                int status = current.getResponseCode();
+                if (status == HttpURLConnection.HTTP_UNAUTHORIZED || status == HttpURLConnection.HTTP_FORBIDDEN) {
+                    // The token has expired; logging in again starts a new listener
+                    log("Transfer events refused with " + status);
+                    return;
+                }
+                if (status == HttpURLConnection.HTTP_OK) {
+                    backoffMillis = INITIAL_BACKOFF_MILLIS;
+                    read(current);
+                } else {
+                    log("Transfer events failed with " + status);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log("Transfer events disconnected: " + e.getMessage());
+                }
+            } finally {
+                connection = null;
+            }
+
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    // Lines of "event:" and "data:" make up an event, which ends at a blank line; lines starting with ':' are comments
+    private void read(HttpURLConnection current) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(current.getInputStream(), StandardCharsets.UTF_8))) {
+            String event = "message";
+            StringBuilder data = new StringBuilder();
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    if (data.length() > 0) {
+                        dispatch(event, data.toString());
+                    }
+                    event = "message";
+                    data.setLength(0);
+                } else if (line.startsWith("event:")) {
+                    event = field(line, "event:");
+                } else if (line.startsWith("data:")) {
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(field(line, "data:"));
+                }
+            }
+        }
+    }
+
+    private void dispatch(String event, String data) {
+        try {
+            handler.accept(event, objectMapper.readValue(data, Transfer.class));
+        } catch (IOException e) {
+            log("Unreadable transfer event " + event + ": " + e.getMessage());
+        }
+    }
+
+    private static String field(String line, String name) {
+        String value = line.substring(name.length());
+        return value.startsWith(" ") ? value.substring(1) : value;
+    }
+
+    private static void log(String message) {
+        try {
+            BasicLogger.log(message);
+        } catch (RuntimeException e) {
+            // No logs directory; the listener carries on without one
+        }
+    }
+}
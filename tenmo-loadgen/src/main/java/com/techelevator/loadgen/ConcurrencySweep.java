@@ -0,0 +1,122 @@
+package com.techelevator.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Finds how many concurrent clients a server sustains: runs the load generator with more and more of the same set of
+ * users, each thinking between operations like a person would, until the p99 latency or the error rate of a step
+ * goes over its limit. Run it once against each server configuration to compare them.
+ */
+public class ConcurrencySweep {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -cp loadgen.jar " + ConcurrencySweep.class.getName() + " [--name=value ...]",
+            "  --steps=50,100,200,400,800      concurrent users in each step, in increasing order",
+            "  --p99-ms=500                    highest p99 latency a step may have to count as sustained",
+            "  --max-error-percent=1           highest share of failed operations a step may have",
+            "and any option of loadgen.jar except --users, with --think-ms=1000 --warmup=10 --duration=30 unless given.");
+
+    private static final String[] DEFAULTS = {"--think-ms=1000", "--warmup=10", "--duration=30"};
+
+    private final int[] steps;
+    private final double p99Millis;
+    private final double maxErrorPercent;
+    private final LoadOptions options;
+
+    public ConcurrencySweep(int[] steps, double p99Millis, double maxErrorPercent, LoadOptions options) {
+        this.steps = steps;
+        this.p99Millis = p99Millis;
+        this.maxErrorPercent = maxErrorPercent;
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        ConcurrencySweep sweep;
+        try {
+            sweep = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(sweep.run() ? 0 : 1);
+    }
+
+    /**
+     * @throws IllegalArgumentException if an argument isn't valid for the sweep or the load generator
+     */
+    static ConcurrencySweep parse(String[] args) {
+        int[] steps = {50, 100, 200, 400, 800};
+        double p99Millis = 500;
+        double maxErrorPercent = 1;
+        List<String> generatorArgs = new ArrayList<>(Arrays.asList(DEFAULTS));
+        for (String arg : args) {
+            if (arg.startsWith("--steps=")) {
+                steps = Arrays.stream(arg.substring("--steps=".length()).split(","))
+                        .map(String::trim).mapToInt(Integer::parseInt).sorted().toArray();
+            } else if (arg.startsWith("--p99-ms=")) {
+                p99Millis = Double.parseDouble(arg.substring("--p99-ms=".length()));
+            } else if (arg.startsWith("--max-error-percent=")) {
+                maxErrorPercent = Double.parseDouble(arg.substring("--max-error-percent=".length()));
+            } else if (arg.startsWith("--users=")) {
+                throw new IllegalArgumentException("--users is set by --steps");
+            } else {
+                generatorArgs.add(arg);
+            }
+        }
+        if (steps.length == 0 || steps[0] <= 0) {
+            throw new IllegalArgumentException("--steps needs at least one number of users above 0");
+        }
+        generatorArgs.add("--users=" + steps[steps.length - 1]);
+        return new ConcurrencySweep(steps, p99Millis, maxErrorPercent,
+                LoadOptions.parse(generatorArgs.toArray(new String[0])));
+    }
+
+    /**
+     * @return false if not every simulated user could be set up
+     */
+    public boolean run() throws InterruptedException {
+        System.setProperty("http.maxConnections", String.valueOf(options.getUsers()));
+        LoadGenerator generator = new LoadGenerator(options);
+        List<VirtualUser> users = generator.setUp();
+        if (users == null) {
+            return false;
+        }
+
+        System.out.printf("Sweeping %s users against %s, %d s each after %d s warm-up, %d ms think time, mix %s%n",
+                Arrays.stream(steps).mapToObj(String::valueOf).collect(Collectors.joining(",")), options.getUrl(),
+                options.getDurationSeconds(), options.getWarmupSeconds(), options.getThinkMillis(), options.getMix());
+        System.out.printf("%8s %9s %8s %9s %9s %9s  %s%n", "users", "ops/s", "errors %", "p50 ms", "p99 ms", "max ms",
+                "sustained");
+        int sustained = 0;
+        for (int step : steps) {
+            LoadReport report = generator.measure(users.subList(0, step), false);
+            Histogram latencies = report.totalLatencies();
+            double errorPercent = latencies.getTotalCount() == 0 ? 100
+                    : 100.0 * report.totalErrors() / latencies.getTotalCount();
+            double p99 = LoadReport.millis(latencies, 99);
+            boolean ok = latencies.getTotalCount() > 0 && p99 <= p99Millis && errorPercent <= maxErrorPercent;
+            System.out.printf("%8d %9.1f %8.2f %9.2f %9.2f %9.2f  %s%n", step,
+                    latencies.getTotalCount() / (double) options.getDurationSeconds(), errorPercent,
+                    LoadReport.millis(latencies, 50), p99, LoadReport.millis(latencies, 100), ok ? "yes" : "no");
+            if (!ok) {
+                break;
+            }
+            sustained = step;
+        }
+        System.out.println();
+        System.out.printf("Sustained %d concurrent users with p99 within %.0f ms and at most %.1f%% errors%n",
+                sustained, p99Millis, maxErrorPercent);
+        return true;
+    }
+}
@@ -0,0 +1,279 @@
+package com.techelevator.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Holds more and more keep-alive connections open to a server, each one sending GET /accounts as one of the logged-in
+ * users every --request-interval-ms, and reports the latency at each step. The connections stay open from one step to
+ * the next, so a server's memory per connection is the growth between steps.
+ * <p>
+ * The simulated users of LoadGenerator can't do this: their calls share HttpURLConnection's pool, which only keeps as
+ * many connections open as are busy at once. Here every connection is its own socket, all of them handled by one
+ * selector thread, and latency is measured from when a request was due as with --rate.
+ */
+public class ConnectionSweep {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -cp loadgen.jar " + ConnectionSweep.class.getName() + " [--name=value ...]",
+            "  --steps=1000,2500,5000,10000    open connections in each step, in increasing order",
+            "  --request-interval-ms=30000     time between requests on each connection",
+            "and --url, --auth-url, --existing-users, --accounts (200 unless given), --password, --warmup, --duration",
+            "and --setup-threads as for loadgen.jar.");
+
+    private static final int RESPONSE_BUFFER_BYTES = 16 * 1024;
+
+    private final int[] steps;
+    private final long intervalNanos;
+    private final LoadOptions options;
+    private final LoadReport report = new LoadReport();
+    private final List<Connection> connections = new ArrayList<>();
+    private final PriorityQueue<Connection> schedule = new PriorityQueue<>((a, b) -> Long.compare(a.due, b.due));
+    private Selector selector;
+    private InetSocketAddress address;
+    private List<byte[]> requests;
+    private int reconnects;
+
+    public ConnectionSweep(int[] steps, long intervalMillis, LoadOptions options) {
+        this.steps = steps;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        ConnectionSweep sweep;
+        try {
+            sweep = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(sweep.run() ? 0 : 1);
+    }
+
+    /**
+     * @throws IllegalArgumentException if an argument isn't valid for the sweep or the load generator
+     */
+    static ConnectionSweep parse(String[] args) {
+        int[] steps = {1000, 2500, 5000, 10000};
+        long intervalMillis = 30_000;
+        List<String> generatorArgs = new ArrayList<>(List.of("--accounts=200"));
+        for (String arg : args) {
+            if (arg.startsWith("--steps=")) {
+                steps = Arrays.stream(arg.substring("--steps=".length()).split(","))
+                        .map(String::trim).mapToInt(Integer::parseInt).sorted().toArray();
+            } else if (arg.startsWith("--request-interval-ms=")) {
+                intervalMillis = Long.parseLong(arg.substring("--request-interval-ms=".length()));
+            } else if (arg.startsWith("--users=")) {
+                throw new IllegalArgumentException("--users is set by --accounts");
+            } else {
+                generatorArgs.add(arg);
+            }
+        }
+        if (steps.length == 0 || steps[0] <= 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("--steps needs at least one number above 0, and the interval must be too");
+        }
+        // Only the accounts log in; every connection uses one of their tokens
+        List<String> accountArgs = new ArrayList<>(generatorArgs);
+        accountArgs.add("--users=" + steps[steps.length - 1]);
+        LoadOptions accounts = LoadOptions.parse(accountArgs.toArray(new String[0]));
+        generatorArgs.add("--users=" + accounts.getAccounts());
+        return new ConnectionSweep(steps, intervalMillis, LoadOptions.parse(generatorArgs.toArray(new String[0])));
+    }
+
+    /**
+     * @return false if not every account could be logged in
+     */
+    public boolean run() throws IOException, InterruptedException {
+        List<VirtualUser> users = new LoadGenerator(options).setUp();
+        if (users == null) {
+            return false;
+        }
+        URI url = URI.create(options.getUrl());
+        address = new InetSocketAddress(url.getHost(), url.getPort() > 0 ? url.getPort() : 80);
+        String host = url.getHost() + (url.getPort() > 0 ? ":" + url.getPort() : "");
+        requests = users.stream()
+                .map(user -> ("GET " + url.getPath() + "accounts HTTP/1.1\r\nHost: " + host + "\r\n" +
+                        "Authorization: Bearer " + user.getToken() + "\r\nAccept: application/json\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII))
+                .collect(Collectors.toList());
+        selector = Selector.open();
+
+        System.out.printf("Sweeping %s connections to %s, each sending GET /accounts every %d ms, %d s after %d s warm-up%n",
+                Arrays.stream(steps).mapToObj(String::valueOf).collect(Collectors.joining(",")), options.getUrl(),
+                TimeUnit.NANOSECONDS.toMillis(intervalNanos), options.getDurationSeconds(), options.getWarmupSeconds());
+        System.out.printf("%11s %9s %8s %10s %9s %9s %9s %9s%n", "connections", "req/s", "errors", "reconnects",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (int step : steps) {
+            long opened = System.nanoTime();
+            while (connections.size() < step) {
+                Connection connection = new Connection(connections.size());
+                connection.open();
+                connections.add(connection);
+            }
+            // Each step's connections take turns through the interval, so requests arrive at an even rate
+            for (Connection connection : connections) {
+                connection.due = opened + intervalNanos * connection.index / step;
+            }
+            schedule.clear();
+            schedule.addAll(connections);
+
+            long warmupEnd = opened + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+            long end = warmupEnd + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+            runUntil(warmupEnd);
+            report.collect();
+            report.reset();
+            reconnects = 0;
+            System.out.printf("# measuring %d connections%n", step);
+            System.out.flush();
+            runUntil(end);
+            report.collect();
+
+            Histogram latencies = report.totalLatencies();
+            System.out.printf("%11d %9.1f %8d %10d %9.2f %9.2f %9.2f %9.2f%n", step,
+                    latencies.getTotalCount() / (double) options.getDurationSeconds(), report.totalErrors(), reconnects,
+                    LoadReport.millis(latencies, 50), LoadReport.millis(latencies, 99),
+                    LoadReport.millis(latencies, 99.9), LoadReport.millis(latencies, 100));
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        return true;
+    }
+
+    private void runUntil(long end) throws IOException {
+        for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+            while (!schedule.isEmpty() && schedule.peek().due <= now) {
+                Connection connection = schedule.poll();
+                connection.send();
+                connection.due += intervalNanos;
+                schedule.add(connection);
+            }
+            long untilDue = schedule.isEmpty() ? end - now : Math.min(schedule.peek().due, end) - now;
+            selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(untilDue)));
+            for (SelectionKey key : selector.selectedKeys()) {
+                ((Connection) key.attachment()).read();
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    private class Connection {
+
+        private final int index;
+        private final ByteBuffer response = ByteBuffer.allocate(RESPONSE_BUFFER_BYTES);
+        private SocketChannel channel;
+        private long due;
+        private long sentAt;
+        private boolean waiting;
+
+        Connection(int index) {
+            this.index = index;
+        }
+
+        void open() throws IOException {
+            channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, this);
+            response.clear();
+            waiting = false;
+        }
+
+        // A connection still waiting for its last response skips a turn; that wait is in the latency it records
+        void send() throws IOException {
+            if (waiting) {
+                return;
+            }
+            ByteBuffer request = ByteBuffer.wrap(requests.get(index % requests.size()));
+            try {
+                while (request.hasRemaining()) {
+                    channel.write(request);
+                }
+            } catch (IOException e) {
+                failed();
+                return;
+            }
+            sentAt = due;
+            waiting = true;
+        }
+
+        void read() throws IOException {
+            int read;
+            try {
+                read = channel.read(response);
+            } catch (IOException e) {
+                read = -1;
+            }
+            if (read < 0) {
+                failed();
+                return;
+            }
+            String text = new String(response.array(), 0, response.position(), StandardCharsets.ISO_8859_1);
+            int headersEnd = text.indexOf("\r\n\r\n");
+            if (headersEnd < 0 || !complete(text, headersEnd)) {
+                return;
+            }
+            boolean ok = text.startsWith("HTTP/1.1 200");
+            report.record(Operation.BALANCE, System.nanoTime() - sentAt, ok);
+            response.clear();
+            waiting = false;
+            if (text.substring(0, headersEnd).toLowerCase(Locale.ROOT).contains("connection: close")) {
+                reopen();
+            }
+        }
+
+        private boolean complete(String text, int headersEnd) {
+            String headers = text.substring(0, headersEnd).toLowerCase(Locale.ROOT);
+            int lengthAt = headers.indexOf("content-length:");
+            if (lengthAt >= 0) {
+                int lineEnd = headers.indexOf("\r\n", lengthAt);
+                String length = headers.substring(lengthAt + "content-length:".length(),
+                        lineEnd < 0 ? headers.length() : lineEnd).trim();
+                return text.length() - headersEnd - 4 >= Integer.parseInt(length);
+            }
+            return !headers.contains("transfer-encoding: chunked") || text.endsWith("\r\n0\r\n\r\n");
+        }
+
+        private void failed() throws IOException {
+            if (waiting) {
+                report.record(Operation.BALANCE, System.nanoTime() - sentAt, false);
+            }
+            reopen();
+        }
+
+        private void reopen() throws IOException {
+            close();
+            reconnects++;
+            open();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+    }
+}
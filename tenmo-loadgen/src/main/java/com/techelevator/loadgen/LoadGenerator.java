@@ -0,0 +1,245 @@
+package com.techelevator.loadgen;
+
+import com.techelevator.tenmo.model.UserCredentials;
+import com.techelevator.tenmo.services.AuthenticationService;
+import com.techelevator.tenmo.services.ResponseCache;
+import com.techelevator.tenmo.services.TenmoService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a running server with simulated users, each one a thread making the same calls as the console client
+ * through its AuthenticationService and TenmoService, and reports throughput and latency percentiles per operation.
+ * <p>
+ * With no --rate each user starts its next operation as soon as the last one returns (closed loop). With a rate the
+ * users share it, each starting operations on a fixed schedule; latency is measured from when an operation was due
+ * rather than when it got sent, so a slow server isn't hidden by the users falling behind it.
+ */
+public class LoadGenerator {
+
+    private static final int SETUP_ATTEMPTS = 10;
+    private static final long SETUP_BACKOFF_MILLIS = 250;
+
+    private final LoadOptions options;
+    private final WorkloadMix mix;
+
+    public LoadGenerator(LoadOptions options) {
+        this.options = options;
+        this.mix = options.getMix();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(LoadOptions.USAGE);
+            return;
+        }
+        LoadGenerator generator;
+        try {
+            generator = new LoadGenerator(LoadOptions.parse(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(generator.run() ? 0 : 1);
+    }
+
+    /**
+     * @return false if not every simulated user could be set up
+     */
+    public boolean run() throws InterruptedException {
+        // HttpURLConnection keeps only 5 idle connections per server unless told otherwise, and every user needs one
+        System.setProperty("http.maxConnections", String.valueOf(options.getUsers()));
+
+        List<VirtualUser> users = setUp();
+        if (users == null) {
+            return false;
+        }
+        System.out.printf("Running %d users against %s for %d s after %d s warm-up, mix %s, %s%n",
+                users.size(), options.getUrl(), options.getDurationSeconds(), options.getWarmupSeconds(), mix,
+                options.getRate() > 0 ? "rate " + options.getRate() + " ops/s" : "closed loop");
+        LoadReport report = measure(users, true);
+        System.out.println();
+        report.printSummary(System.out, options.getDurationSeconds());
+        return true;
+    }
+
+    /**
+     * Runs the given users, already set up, for the warm-up and then the duration.
+     *
+     * @param progress whether to print a line every report interval
+     * @return what was recorded after the warm-up
+     */
+    LoadReport measure(List<VirtualUser> users, boolean progress) throws InterruptedException {
+        LoadReport report = new LoadReport();
+        int[] peerIds = users.stream().mapToInt(VirtualUser::getUserId).toArray();
+        long start = System.nanoTime();
+        long warmupEnd = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            VirtualUser user = users.get(i);
+            SplittableRandom random = new SplittableRandom(options.getSeed() * 31 + i);
+            // Paced users take turns through the rate's interval, and thinking ones through one think time, so they
+            // don't all arrive at once
+            long offset = options.getRate() > 0 ? (long) (i * 1e9 / options.getRate())
+                    : TimeUnit.MILLISECONDS.toNanos(options.getThinkMillis()) * i / users.size();
+            Thread thread = new Thread(() -> drive(user, report, random, peerIds, users.size(), start + offset, end),
+                    "user-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        reportUntil(report, progress, start, warmupEnd, end);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        return report;
+    }
+
+    /**
+     * Registers (unless the users already exist) and logs in one simulated user per account, a few at a time, retrying
+     * the ones the server turns away while it's busy hashing passwords.
+     */
+    List<VirtualUser> setUp() throws InterruptedException {
+        AuthenticationService authenticationService = new AuthenticationService(options.getAuthUrl());
+        AtomicInteger registrations = new AtomicInteger();
+        String existing = options.getExistingUsers();
+        String prefix = existing != null ? existing : "load_" + Long.toString(System.currentTimeMillis(), 36) + "_";
+        int accounts = options.getAccounts();
+
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < options.getUsers(); i++) {
+            UserCredentials credentials = new UserCredentials(prefix + (i % accounts), options.getPassword());
+            // Without the client's cache, so every operation reaches the server
+            users.add(new VirtualUser(authenticationService, new TenmoService(options.getUrl(), ResponseCache.disabled()),
+                    credentials, registrations));
+        }
+
+        System.out.printf("%s %d users as %s0..%d%n", existing != null ? "Logging in" : "Registering",
+                accounts, prefix, accounts - 1);
+        long started = System.nanoTime();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService setupPool = Executors.newFixedThreadPool(options.getSetupThreads());
+        for (VirtualUser user : users.subList(0, accounts)) {
+            setupPool.execute(() -> {
+                boolean ready = (existing != null || retry(user::register)) && retry(user::login);
+                if (!ready) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        setupPool.shutdown();
+        setupPool.awaitTermination(1, TimeUnit.HOURS);
+        if (failed.get() > 0) {
+            System.err.printf("%d of %d users couldn't be set up, see tenmo-client/logs for why%n",
+                    failed.get(), accounts);
+            return null;
+        }
+        // The rest share those logins
+        for (int i = accounts; i < users.size(); i++) {
+            users.get(i).shareLogin(users.get(i % accounts));
+        }
+        System.out.printf("Set up in %.1f s%n", (System.nanoTime() - started) / 1e9);
+        return users;
+    }
+
+    private interface Attempt {
+        boolean run();
+    }
+
+    private static boolean retry(Attempt attempt) {
+        for (int i = 1; i <= SETUP_ATTEMPTS; i++) {
+            try {
+                if (attempt.run()) {
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                // Nowhere to log it, e.g. no logs directory, so try again like any other failure
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SETUP_BACKOFF_MILLIS * i));
+        }
+        return false;
+    }
+
+    private void drive(VirtualUser user, LoadReport report, SplittableRandom random, int[] peerIds, int userCount,
+                       long firstDue, long end) {
+        long interval = options.getRate() > 0 ? (long) (userCount * 1e9 / options.getRate()) : 0;
+        long thinkNanos = TimeUnit.MILLISECONDS.toNanos(options.getThinkMillis());
+        long due = firstDue;
+        if (interval == 0) {
+            sleepUntil(firstDue);
+        }
+        while (true) {
+            long now = System.nanoTime();
+            if (interval > 0) {
+                if (due >= end) {
+                    return;
+                }
+                sleepUntil(due);
+            } else {
+                if (now >= end) {
+                    return;
+                }
+                due = now;
+            }
+
+            Operation operation = mix.pick(random);
+            boolean succeeded;
+            try {
+                succeeded = user.perform(operation, random, peerIds);
+            } catch (RuntimeException e) {
+                succeeded = false;
+            }
+            report.record(operation, System.nanoTime() - due, succeeded);
+
+            if (interval > 0) {
+                due += interval;
+            } else if (thinkNanos > 0) {
+                LockSupport.parkNanos(thinkNanos);
+            }
+        }
+    }
+
+    private void reportUntil(LoadReport report, boolean progress, long start, long warmupEnd, long end) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, options.getReportIntervalSeconds()));
+        long last = start;
+        boolean warm = options.getWarmupSeconds() == 0;
+        while (last < end) {
+            long next = Math.min(last + intervalNanos, warm ? end : warmupEnd);
+            sleepUntil(next);
+            double seconds = (next - last) / 1e9;
+            if (!warm) {
+                if (progress) {
+                    report.printInterval(System.out, "warm-up", seconds);
+                }
+                if (next >= warmupEnd) {
+                    report.reset();
+                    warm = true;
+                }
+            } else if (progress) {
+                report.printInterval(System.out, String.format("%.0f s", (next - warmupEnd) / 1e9), seconds);
+            } else {
+                report.collect();
+            }
+            last = next;
+        }
+    }
+
+    private static void sleepUntil(long deadline) {
+        for (long now = System.nanoTime(); now < deadline; now = System.nanoTime()) {
+            LockSupport.parkNanos(deadline - now);
+        }
+    }
+}
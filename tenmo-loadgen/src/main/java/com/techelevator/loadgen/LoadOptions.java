@@ -0,0 +1,129 @@
+package com.techelevator.loadgen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The command line: --name=value pairs, every one optional.
+ */
+public class LoadOptions {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar loadgen.jar [--name=value ...]",
+            "  --url=http://localhost:8080/    server to drive",
+            "  --auth-url=                     server to register and log in at, when not --url (e.g. tenmo-reactive)",
+            "  --users=100                     simulated users, each on its own thread",
+            "  --duration=60                   seconds to measure for",
+            "  --warmup=10                     seconds to run before measuring",
+            "  --rate=0                        operations per second across all users, 0 for as fast as they go",
+            "  --think-ms=0                    pause after each operation when --rate is 0",
+            "  --mix=" + LoadOptions.DEFAULT_MIX,
+            "                                  relative weight of each operation",
+            "  --existing-users=               log in as <prefix>0, <prefix>1, ... instead of registering users,",
+            "                                  e.g. gen_user_ for a database filled by tenmo.generate.users",
+            "  --password=password             password of every simulated user",
+            "  --accounts=0                    accounts the users log in as, shared round-robin; 0 for one each",
+            "  --setup-threads=8               threads registering and logging in users before the run",
+            "  --report-interval=10            seconds between progress lines",
+            "  --seed=1                        seed for picking operations, peers and amounts");
+
+    static final String DEFAULT_MIX = "register=1,login=4,balance=40,send=25,request=15,approve=15";
+
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * @throws IllegalArgumentException if an argument isn't --name=value or names an unknown option
+     */
+    public static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!USAGE.contains("--" + name + "=")) {
+                throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+            options.values.put(name, arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    public String getUrl() {
+        String url = get("url", "http://localhost:8080/");
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    public String getAuthUrl() {
+        String url = get("auth-url", "");
+        if (url.isEmpty()) {
+            return getUrl();
+        }
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    public int getUsers() {
+        return getInt("users", 100);
+    }
+
+    public int getDurationSeconds() {
+        return getInt("duration", 60);
+    }
+
+    public int getWarmupSeconds() {
+        return getInt("warmup", 10);
+    }
+
+    public double getRate() {
+        return Double.parseDouble(get("rate", "0"));
+    }
+
+    public long getThinkMillis() {
+        return getInt("think-ms", 0);
+    }
+
+    public WorkloadMix getMix() {
+        return WorkloadMix.parse(get("mix", DEFAULT_MIX));
+    }
+
+    /**
+     * @return the username prefix of users that already exist, or null to register new ones
+     */
+    public String getExistingUsers() {
+        String prefix = get("existing-users", "");
+        return prefix.isEmpty() ? null : prefix;
+    }
+
+    public String getPassword() {
+        return get("password", "password");
+    }
+
+    /**
+     * @return how many accounts to log in as, never more than there are users
+     */
+    public int getAccounts() {
+        int accounts = getInt("accounts", 0);
+        return accounts <= 0 ? getUsers() : Math.min(accounts, getUsers());
+    }
+
+    public int getSetupThreads() {
+        return getInt("setup-threads", 8);
+    }
+
+    public int getReportIntervalSeconds() {
+        return getInt("report-interval", 10);
+    }
+
+    public long getSeed() {
+        return Long.parseLong(get("seed", "1"));
+    }
+
+    private String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    private int getInt(String name, int defaultValue) {
+        return Integer.parseInt(get(name, String.valueOf(defaultValue)));
+    }
+}
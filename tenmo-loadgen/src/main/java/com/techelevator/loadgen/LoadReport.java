@@ -0,0 +1,136 @@
+package com.techelevator.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and failures per operation. Simulated users record into HdrHistogram Recorders without locking; the
+ * reporting thread swaps each one out every interval and adds it to the run's totals.
+ */
+public class LoadReport {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(2);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> totalLatencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, Long> totalErrors = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> intervalLatencies = new EnumMap<>(Operation.class);
+
+    public LoadReport() {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_MICROS, SIGNIFICANT_DIGITS));
+            errors.put(operation, new LongAdder());
+            totalLatencies.put(operation, new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS));
+            totalErrors.put(operation, 0L);
+        }
+    }
+
+    /**
+     * Safe to call from any number of threads.
+     */
+    public void record(Operation operation, long latencyNanos, boolean succeeded) {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(latencyNanos), 1), HIGHEST_MICROS);
+        recorders.get(operation).recordValue(micros);
+        if (!succeeded) {
+            errors.get(operation).increment();
+        }
+    }
+
+    /**
+     * Throws away everything recorded so far, e.g. at the end of the warm-up.
+     */
+    public void reset() {
+        for (Operation operation : Operation.values()) {
+            intervalLatencies.put(operation, recorders.get(operation).getIntervalHistogram(intervalLatencies.get(operation)));
+            errors.get(operation).reset();
+            totalLatencies.get(operation).reset();
+            totalErrors.put(operation, 0L);
+        }
+    }
+
+    /**
+     * Prints one line for what was recorded since the last call, and adds it to the totals.
+     */
+    public void printInterval(PrintStream out, String label, double seconds) {
+        Histogram all = new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        long failed = collect(all);
+        out.printf("%-10s %9.1f ops/s %7d errors   p50 %8.2f ms   p99 %8.2f ms   max %8.2f ms%n", label,
+                all.getTotalCount() / seconds, failed, millis(all, 50), millis(all, 99), millis(all.getMaxValue()));
+    }
+
+    /**
+     * Adds what was recorded since the last call to the totals without printing it.
+     */
+    public void collect() {
+        collect(new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS));
+    }
+
+    /**
+     * @return the latencies of every operation since the last reset, in microseconds
+     */
+    public Histogram totalLatencies() {
+        Histogram all = new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        totalLatencies.values().forEach(all::add);
+        return all;
+    }
+
+    public long totalErrors() {
+        return totalErrors.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Prints a row per operation for everything since the last reset.
+     */
+    public void printSummary(PrintStream out, double seconds) {
+        out.printf("%-10s %9s %8s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram all = new Histogram(HIGHEST_MICROS, SIGNIFICANT_DIGITS);
+        long failed = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram latencies = totalLatencies.get(operation);
+            if (latencies.getTotalCount() > 0) {
+                printRow(out, operation.label(), latencies, totalErrors.get(operation), seconds);
+                all.add(latencies);
+                failed += totalErrors.get(operation);
+            }
+        }
+        printRow(out, "all", all, failed, seconds);
+    }
+
+    // Adds each operation's interval to its totals and to all, and returns the interval's errors
+    private long collect(Histogram all) {
+        long failed = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram interval = recorders.get(operation).getIntervalHistogram(intervalLatencies.get(operation));
+            intervalLatencies.put(operation, interval);
+            long intervalErrors = errors.get(operation).sumThenReset();
+            totalLatencies.get(operation).add(interval);
+            totalErrors.merge(operation, intervalErrors, Long::sum);
+            all.add(interval);
+            failed += intervalErrors;
+        }
+        return failed;
+    }
+
+    private static void printRow(PrintStream out, String label, Histogram latencies, long failed, double seconds) {
+        out.printf("%-10s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", label, latencies.getTotalCount(), failed,
+                latencies.getTotalCount() / seconds, millis(latencies, 50), millis(latencies, 90),
+                millis(latencies, 99), millis(latencies, 99.9), millis(latencies.getMaxValue()));
+    }
+
+    static double millis(Histogram latencies, double percentile) {
+        return latencies.getTotalCount() == 0 ? 0 : millis(latencies.getValueAtPercentile(percentile));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,35 @@
+package com.techelevator.loadgen;
+
+/**
+ * What a simulated user can do in one step, each the same calls the console client makes for it.
+ */
+public enum Operation {
+    /** Registers a new user, who then takes no further part. */
+    REGISTER,
+    /** Logs in again for a fresh token. */
+    LOGIN,
+    BALANCE,
+    /** Sends a small amount to another simulated user. */
+    SEND,
+    /** Requests a small amount from another simulated user, which lands in their pending list. */
+    REQUEST,
+    /** Reads the first page of pending requests and approves the first one, if there is one. */
+    APPROVE;
+
+    public String label() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * @return the operation with this label, ignoring case
+     * @throws IllegalArgumentException if there is none
+     */
+    public static Operation fromLabel(String label) {
+        for (Operation operation : values()) {
+            if (operation.label().equalsIgnoreCase(label.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + label);
+    }
+}
@@ -0,0 +1,161 @@
+package com.techelevator.loadgen;
+
+import com.techelevator.tenmo.model.Account;
+import com.techelevator.tenmo.model.AuthenticatedUser;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.User;
+import com.techelevator.tenmo.model.UserCredentials;
+import com.techelevator.tenmo.services.AuthenticationService;
+import com.techelevator.tenmo.services.HttpTransport;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the console client's HTTP transports one call after another, as a single user clicking through the menus
+ * would make them: the plain RestTemplate the client used to create per service, against the shared HttpTransport,
+ * both through its RestTemplate (the same HttpURLConnection with gzip and timeouts) and through its async API on
+ * java.net.http.HttpClient. Each runs the same rotation of GET /accounts, a page of GET /transfers and GET /users.
+ */
+public class TransportBenchmark {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -cp loadgen.jar " + TransportBenchmark.class.getName() + " [--name=value ...]",
+            "  --url=http://localhost:8080/    server to call",
+            "  --username=gen_user_0           user to log in as",
+            "  --password=password",
+            "  --calls=10000                   calls timed per transport",
+            "  --warmup-calls=2000             calls made per transport before the timed ones");
+
+    private static final int PAGE_SIZE = 20;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int calls;
+    private final int warmupCalls;
+
+    public TransportBenchmark(String url, String username, String password, int calls, int warmupCalls) {
+        this.url = url.endsWith("/") ? url : url + "/";
+        this.username = username;
+        this.password = password;
+        this.calls = calls;
+        this.warmupCalls = warmupCalls;
+    }
+
+    public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        TransportBenchmark benchmark;
+        try {
+            benchmark = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(benchmark.run() ? 0 : 1);
+    }
+
+    /**
+     * @throws IllegalArgumentException if an argument isn't one of the benchmark's
+     */
+    static TransportBenchmark parse(String[] args) {
+        String url = "http://localhost:8080/";
+        String username = "gen_user_0";
+        String password = "password";
+        int calls = 10_000;
+        int warmupCalls = 2_000;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String value = arg.substring(equals + 1);
+            try {
+                switch (arg.substring(2, equals)) {
+                    case "url": url = value; break;
+                    case "username": username = value; break;
+                    case "password": password = value; break;
+                    case "calls": calls = Integer.parseInt(value); break;
+                    case "warmup-calls": warmupCalls = Integer.parseInt(value); break;
+                    default: throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + arg);
+            }
+        }
+        if (calls <= 0 || warmupCalls < 0) {
+            throw new IllegalArgumentException("--calls must be above 0 and --warmup-calls not below it");
+        }
+        return new TransportBenchmark(url, username, password, calls, warmupCalls);
+    }
+
+    /**
+     * @return false if the user couldn't log in or a call failed
+     */
+    public boolean run() {
+        AuthenticatedUser user = new AuthenticationService(url).login(new UserCredentials(username, password));
+        if (user == null) {
+            System.err.println("Couldn't log in as " + username);
+            return false;
+        }
+        String token = user.getToken();
+        String[] paths = {"accounts", "transfers?userId=" + user.getUser().getId() + "&afterId=0&limit=" + PAGE_SIZE,
+                "users"};
+        Class<?>[] types = {Account.class, TransferPage.class, User[].class};
+
+        RestTemplate urlConnection = new RestTemplate();
+        RestTemplate shared = HttpTransport.shared().getRestTemplate();
+        HttpEntity<Void> entity = authEntity(token);
+
+        System.out.printf("%d sequential calls per transport to %s after %d warm-up calls, rotating GET /%s, /%s, /%s%n",
+                calls, url, warmupCalls, paths[0], paths[1].substring(0, paths[1].indexOf('?')), paths[2]);
+        System.out.printf("%-18s %9s %9s %9s %9s %9s %9s%n",
+                "transport", "total s", "calls/s", "mean ms", "p50 ms", "p99 ms", "max ms");
+        try {
+            time("url-connection", i -> urlConnection.exchange(url + paths[i % 3], HttpMethod.GET, entity, types[i % 3]));
+            time("shared", i -> shared.exchange(url + paths[i % 3], HttpMethod.GET, entity, types[i % 3]));
+            time("shared-async", i -> HttpTransport.shared().getAsync(url + paths[i % 3], token, types[i % 3]).join());
+        } catch (RuntimeException e) {
+            System.err.println("Call failed: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private void time(String transport, Call call) {
+        for (int i = 0; i < warmupCalls; i++) {
+            call.make(i);
+        }
+        Histogram latencies = new Histogram(TimeUnit.SECONDS.toNanos(60), 3);
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            long callStart = System.nanoTime();
+            call.make(i);
+            latencies.recordValue(System.nanoTime() - callStart);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-18s %9.2f %9.1f %9.3f %9.3f %9.3f %9.3f%n", transport, seconds, calls / seconds,
+                latencies.getMean() / 1e6, latencies.getValueAtPercentile(50) / 1e6,
+                latencies.getValueAtPercentile(99) / 1e6, latencies.getMaxValue() / 1e6);
+    }
+
+    private static HttpEntity<Void> authEntity(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return new HttpEntity<>(headers);
+    }
+
+    private interface Call {
+        void make(int i);
+    }
+}
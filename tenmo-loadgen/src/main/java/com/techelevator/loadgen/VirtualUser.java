@@ -0,0 +1,126 @@
+package com.techelevator.loadgen;
+
+import com.techelevator.tenmo.model.AuthenticatedUser;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.UserCredentials;
+import com.techelevator.tenmo.services.AuthenticationService;
+import com.techelevator.tenmo.services.TenmoService;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One simulated person using the console client: their own TenmoService holding their token, and the
+ * AuthenticationService every user shares. The services return null, false or an unsaved transfer when a call fails,
+ * and that's what counts as a failed operation here.
+ */
+public class VirtualUser {
+
+    private static final int MAX_AMOUNT_CENTS = 100;
+
+    private final AuthenticationService authenticationService;
+    private final TenmoService tenmoService;
+    private final UserCredentials credentials;
+    private final AtomicInteger registrations;
+    private int userId;
+    private String token;
+
+    /**
+     * @param registrations numbers the extra users made by REGISTER operations, shared by every simulated user
+     */
+    public VirtualUser(AuthenticationService authenticationService, TenmoService tenmoService,
+                       UserCredentials credentials, AtomicInteger registrations) {
+        this.authenticationService = authenticationService;
+        this.tenmoService = tenmoService;
+        this.credentials = credentials;
+        this.registrations = registrations;
+    }
+
+    public boolean register() {
+        return authenticationService.register(credentials);
+    }
+
+    public boolean login() {
+        AuthenticatedUser user = authenticationService.login(credentials);
+        if (user == null) {
+            return false;
+        }
+        userId = user.getUser().getId();
+        token = user.getToken();
+        tenmoService.setAuthToken(token);
+        return true;
+    }
+
+    /**
+     * Acts as the same account as another user who has logged in, without logging in again.
+     */
+    public void shareLogin(VirtualUser other) {
+        userId = other.userId;
+        token = other.token;
+        tenmoService.setAuthToken(token);
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return the token from the last login, or null before one
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @param peerIds the user ids of every simulated user, this one included, to send to and request from
+     * @return whether the server did what was asked
+     */
+    public boolean perform(Operation operation, SplittableRandom random, int[] peerIds) {
+        switch (operation) {
+            case REGISTER:
+                String username = credentials.getUsername() + "_r" + registrations.incrementAndGet();
+                return authenticationService.register(new UserCredentials(username, credentials.getPassword()));
+            case LOGIN:
+                return login();
+            case BALANCE:
+                return tenmoService.retrieveAccountBalance() != null;
+            case SEND:
+                return post(transfer(userId, peer(random, peerIds), random, "Send", "Approved"));
+            case REQUEST:
+                return post(transfer(peer(random, peerIds), userId, random, "Request", "Pending"));
+            case APPROVE:
+                // The server answers 404 when nothing is pending, which the client sees as null, so as in App
+                // that counts as having nothing to approve
+                TransferPage page = tenmoService.retrieveListOfPendingTransfers(userId, 0);
+                if (page == null || page.getTransfers() == null || page.getTransfers().length == 0) {
+                    return true;
+                }
+                return tenmoService.updateTransferById(page.getTransfers()[0].getTransferId(), "Approved");
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private boolean post(Transfer transfer) {
+        // As in App, a transfer that came back without an id wasn't saved
+        Transfer posted = tenmoService.createTransfer(transfer);
+        return posted != null && posted.getTransferId() > 0;
+    }
+
+    private int peer(SplittableRandom random, int[] peerIds) {
+        int i = random.nextInt(peerIds.length);
+        return peerIds[i] != userId ? peerIds[i] : peerIds[(i + 1) % peerIds.length];
+    }
+
+    private static Transfer transfer(int senderId, int recipientId, SplittableRandom random, String type, String status) {
+        Transfer transfer = new Transfer();
+        transfer.setSenderId(senderId);
+        transfer.setRecipientId(recipientId);
+        transfer.setAmount(BigDecimal.valueOf(1 + random.nextInt(MAX_AMOUNT_CENTS), 2));
+        transfer.setType(type);
+        transfer.setStatus(status);
+        return transfer;
+    }
+}
@@ -0,0 +1,17 @@
+package com.techelevator.reactive;
+
+import com.techelevator.tenmo.security.jwt.TokenProvider;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+// TokenProvider comes from the servlet server, so tokens it issues at /login are accepted here as well
+@SpringBootApplication
+@Import(TokenProvider.class)
+public class TenmoReactiveApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(TenmoReactiveApplication.class, args);
+    }
+
+}
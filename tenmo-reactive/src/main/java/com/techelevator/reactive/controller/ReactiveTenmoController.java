@@ -0,0 +1,115 @@
+package com.techelevator.reactive.controller;
+
+import com.techelevator.reactive.dao.ReactiveTransferDao;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
+import com.techelevator.tenmo.model.Account;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.TransferStatus;
+import com.techelevator.tenmo.model.TransferType;
+import com.techelevator.tenmo.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.security.Principal;
+
+/**
+ * TenmoController's /accounts, /users and /transfers contract on WebFlux: the same paths, parameters, bodies and
+ * status codes, with nothing blocking a thread while the database works. Batches and exports are only served by the
+ * servlet server.
+ */
+@RestController
+public class ReactiveTenmoController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    private ReactiveTransferDao dao;
+
+
+    @RequestMapping(path = "/accounts", method = RequestMethod.GET)
+    public Mono<Account> retrieveAccountBalance(Principal principal) {
+        return dao.retrieveAccountBalance(principal.getName())
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account was not found for that Username")));
+    }
+
+    // Written out as the rows arrive; an empty table fails before anything has been sent, so it's still a 404
+    @RequestMapping(path = "/users", method = RequestMethod.GET)
+    public Flux<User> retrieveListOfUsers() {
+        return dao.retrieveListOfUsers()
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No users were found")));
+    }
+
+    @ResponseStatus(HttpStatus.CREATED)
+    @RequestMapping(path = "/transfers", method = RequestMethod.POST)
+    public Mono<Transfer> createTransfer(@Valid @RequestBody Transfer transfer) {
+
+        // Checking that the user is not targeting themselves for the request or send
+        if (transfer.getRecipientId() == transfer.getSenderId()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "You tried to send or request money to / from yourself :("));
+        }
+
+        // Path for sending money: the balance check, both balance updates and the insert happen in one statement
+        if (transfer.getTransferType() == TransferType.SEND) {
+            return dao.sendTransfer(transfer)
+                    .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not enough money in the account to send.")));
+        }
+
+        // Requests are only inserted into the transfer table
+        return dao.createTransfer(transfer);
+    }
+
+    @RequestMapping(path = "/transfers", method = RequestMethod.GET)
+    public Mono<TransferPage> retrieveListOfTransfers(@RequestParam int userId, @RequestParam(required = false) boolean wantsPending,
+                                                      @RequestParam(defaultValue = "0") int afterId,
+                                                      @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "The limit must be between 1 and " + MAX_PAGE_SIZE + "."));
+        }
+
+        Mono<TransferPage> page = wantsPending
+                ? dao.retrieveListOfPendingTransfers(userId, afterId, limit)
+                : dao.retrieveListOfTransfers(userId, afterId, limit);
+
+        return page.filter(transferPage -> !transferPage.getTransfers().isEmpty())
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unable to get list of transfers.")));
+    }
+
+    @RequestMapping(path = "/transfers/{id}", method = RequestMethod.GET)
+    public Mono<Transfer> retrieveTransferById(@PathVariable("id") int transferId) {
+        return dao.retrieveTransferById(transferId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unable to locate specific transfer.")));
+    }
+
+    @RequestMapping(path = "/transfers/{id}", method = RequestMethod.PUT)
+    public Mono<Boolean> updateTransferById(@PathVariable("id") int transferId, @RequestParam String status) {
+        return retrieveTransferById(transferId).flatMap(transfer -> {
+            if (status.equals(TransferStatus.APPROVED.getDescription())) {
+                return dao.validateTransfer(transfer).flatMap(canTransfer -> {
+                    if (!canTransfer) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not enough money in the account to send."));
+                    }
+                    return dao.approveTransfer(transfer);
+                }).flatMap(approved -> approved ? Mono.just(true)
+                        : Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Account balances were not updated successfully.")))
+                        .onErrorMap(TransferNotPendingException.class,
+                                e -> new ResponseStatusException(HttpStatus.CONFLICT, "This request has already been approved or rejected."));
+            }
+
+            else if (status.equals(TransferStatus.REJECTED.getDescription())) {
+                // Updating transfer status in database.
+                transfer.setTransferStatus(TransferStatus.REJECTED);
+                return dao.updateTransferStatus(transfer).flatMap(rowsAffected -> rowsAffected > 0 ? Mono.just(true)
+                        : Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Unable to locate transfer in database,.")));
+            }
+
+            return Mono.just(false);
+        });
+    }
+
+}
@@ -0,0 +1,326 @@
+package com.techelevator.reactive.dao;
+
+import com.techelevator.tenmo.dao.TransferLookups;
+import com.techelevator.tenmo.dao.TransferRowMapper;
+import com.techelevator.tenmo.exception.DaoException;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
+import com.techelevator.tenmo.model.Account;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.TransferStatus;
+import com.techelevator.tenmo.model.TransferType;
+import com.techelevator.tenmo.model.User;
+import io.r2dbc.spi.Row;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReactiveTransferDao on the non-blocking PostgreSQL driver. The SQL is JdbcTransferDao's, with named parameters;
+ * the balance cache and the replica routing stay with the servlet server.
+ */
+@Component
+public class R2dbcTransferDao implements ReactiveTransferDao {
+
+    // Every transfer read selects TransferRowMapper.COLUMNS from t joined to the accounts and users on both sides
+    private static final String USER_JOINS = "JOIN account AS af ON t.account_from = af.account_id " +
+            "JOIN account AS at ON t.account_to = at.account_id " +
+            "JOIN tenmo_user AS tuf ON af.user_id = tuf.user_id " +
+            "JOIN tenmo_user AS tut ON at.user_id = tut.user_id ";
+
+    private final DatabaseClient databaseClient;
+    // Read on first use and kept, like the lookups JdbcTransferDao loads when it's created. A failed load isn't kept,
+    // so a database that was down for the first request doesn't fail every later one.
+    private final Mono<TransferLookups> lookups;
+
+    public R2dbcTransferDao(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+        this.lookups = loadLookups().cache(loaded -> Duration.ofMillis(Long.MAX_VALUE), e -> Duration.ZERO,
+                () -> Duration.ZERO);
+    }
+
+    @Override
+    public Mono<Account> retrieveAccountBalance(String username) {
+        String sql = "SELECT balance FROM account " +
+                "JOIN tenmo_user ON account.user_id = tenmo_user.user_id " +
+                "WHERE lower(username) = lower(:username)";
+
+        return databaseClient.execute(sql)
+                .bind("username", username)
+                .map(row -> new Account(row.get(0, BigDecimal.class)))
+                .first()
+                .onErrorMap(e -> daoException(e, "Unable to reach database or account was not found"));
+    }
+
+    @Override
+    public Flux<User> retrieveListOfUsers() {
+        String sql = "SELECT user_id, username FROM tenmo_user ORDER BY user_id";
+
+        return databaseClient.execute(sql)
+                .map(row -> {
+                    User user = new User();
+                    user.setId(row.get(0, Integer.class));
+                    user.setUsername(row.get(1, String.class));
+                    return user;
+                })
+                .all()
+                .onErrorMap(e -> daoException(e, "There was an error fetching the list of users."));
+    }
+
+    @Override
+    public Mono<Transfer> createTransfer(Transfer transfer) {
+        String createSql = "INSERT INTO transfer (transfer_type_id, transfer_status_id, account_from, account_to, amount) " +
+                "VALUES (:typeId, :statusId, " +
+                "(SELECT account_id FROM account WHERE user_id = :senderId), " +
+                "(SELECT account_id FROM account WHERE user_id = :recipientId), " +
+                ":amount) RETURNING transfer_id";
+
+        return lookups.flatMap(lookups -> databaseClient.execute(createSql)
+                        .bind("typeId", lookups.typeId(transfer.getType()))
+                        .bind("statusId", lookups.statusId(transfer.getStatus()))
+                        .bind("senderId", transfer.getSenderId())
+                        .bind("recipientId", transfer.getRecipientId())
+                        .bind("amount", transfer.getAmount())
+                        .map(row -> row.get(0, Integer.class))
+                        .one())
+                .map(transferId -> {
+                    transfer.setTransferId(transferId);
+                    return transfer;
+                })
+                .onErrorMap(e -> daoException(e, "There was an error."));
+    }
+
+    @Override
+    public Mono<Transfer> sendTransfer(Transfer transfer) {
+        // Locks both accounts in account_id order so opposing sends can't deadlock, then debits the sender
+        // (only if the balance covers the amount), credits the recipient and inserts the transfer in one statement
+        String sendSql = "WITH locked AS (" +
+                    "SELECT account_id FROM account WHERE user_id IN (:senderId, :recipientId) ORDER BY account_id FOR UPDATE" +
+                "), debit AS (" +
+                    "UPDATE account SET balance = balance - :amount, version = version + 1 " +
+                    "WHERE user_id = :senderId AND balance >= :amount AND (SELECT COUNT(*) FROM locked) = 2 " +
+                    "RETURNING account_id" +
+                "), credit AS (" +
+                    "UPDATE account SET balance = balance + :amount, version = version + 1 " +
+                    "WHERE user_id = :recipientId AND EXISTS (SELECT 1 FROM debit) " +
+                    "RETURNING account_id" +
+                ") " +
+                "INSERT INTO transfer (transfer_type_id, transfer_status_id, account_from, account_to, amount) " +
+                "SELECT :typeId, :statusId, debit.account_id, credit.account_id, :amount " +
+                "FROM debit, credit RETURNING transfer_id";
+
+        return lookups.flatMap(lookups -> databaseClient.execute(sendSql)
+                        .bind("senderId", transfer.getSenderId())
+                        .bind("recipientId", transfer.getRecipientId())
+                        .bind("amount", transfer.getAmount())
+                        .bind("typeId", lookups.typeId(transfer.getType()))
+                        .bind("statusId", lookups.statusId(transfer.getStatus()))
+                        .map(row -> row.get(0, Integer.class))
+                        .first())
+                .map(transferId -> {
+                    transfer.setTransferId(transferId);
+                    return transfer;
+                })
+                .onErrorMap(e -> daoException(e, "There was an error sending the transfer."));
+    }
+
+    @Override
+    public Mono<Boolean> validateTransfer(Transfer transfer) {
+        String sql = "SELECT balance FROM account WHERE user_id = :userId";
+
+        return databaseClient.execute(sql)
+                .bind("userId", transfer.getSenderId())
+                .map(row -> row.get(0, BigDecimal.class))
+                .first()
+                .defaultIfEmpty(BigDecimal.ZERO)
+                .map(balance -> balance.compareTo(transfer.getAmount()) >= 0)
+                .onErrorMap(e -> daoException(e, "Was not able to get account balance"));
+    }
+
+    @Override
+    public Mono<Boolean> approveTransfer(Transfer transfer) {
+        // The send statement, locking the request as well so it can only be approved once. Where the servlet server
+        // reads the balances and writes them back under optimistic versions, this never has to retry. Whether the
+        // request was still pending is returned too, to tell an approval that came too late from a short balance.
+        String approveSql = "WITH locked AS (" +
+                    "SELECT account_id FROM account WHERE user_id IN (:senderId, :recipientId) ORDER BY account_id FOR UPDATE" +
+                "), pending AS (" +
+                    "SELECT transfer_id FROM transfer WHERE transfer_id = :transferId AND transfer_status_id = :pendingId FOR UPDATE" +
+                "), debit AS (" +
+                    "UPDATE account SET balance = balance - :amount, version = version + 1 " +
+                    "WHERE user_id = :senderId AND balance >= :amount AND (SELECT COUNT(*) FROM locked) = 2 " +
+                    "AND EXISTS (SELECT 1 FROM pending) " +
+                    "RETURNING account_id" +
+                "), credit AS (" +
+                    "UPDATE account SET balance = balance + :amount, version = version + 1 " +
+                    "WHERE user_id = :recipientId AND EXISTS (SELECT 1 FROM debit) " +
+                    "RETURNING account_id" +
+                "), approved AS (" +
+                    "UPDATE transfer SET transfer_status_id = :approvedId " +
+                    "WHERE transfer_id = :transferId AND EXISTS (SELECT 1 FROM credit) RETURNING transfer_id" +
+                ") " +
+                "SELECT EXISTS (SELECT 1 FROM pending), EXISTS (SELECT 1 FROM approved)";
+
+        return lookups.flatMap(lookups -> databaseClient.execute(approveSql)
+                        .bind("senderId", transfer.getSenderId())
+                        .bind("recipientId", transfer.getRecipientId())
+                        .bind("transferId", transfer.getTransferId())
+                        .bind("pendingId", lookups.statusId(TransferStatus.PENDING))
+                        .bind("approvedId", lookups.statusId(TransferStatus.APPROVED))
+                        .bind("amount", transfer.getAmount())
+                        .map(row -> Tuples.of(row.get(0, Boolean.class), row.get(1, Boolean.class)))
+                        .one())
+                .flatMap(result -> result.getT1() ? Mono.just(result.getT2())
+                        : Mono.error(new TransferNotPendingException(transfer.getTransferId())))
+                .doOnNext(approved -> {
+                    if (approved) {
+                        transfer.setTransferStatus(TransferStatus.APPROVED);
+                    }
+                })
+                .onErrorMap(e -> daoException(e, "There was an error with updating the balances."));
+    }
+
+    @Override
+    public Mono<TransferPage> retrieveListOfTransfers(int userId, int afterTransferId, int pageSize) {
+        // Each branch walks one of the (account, transfer_id) indexes from the cursor and stops after a page, so a
+        // page costs the same no matter how long the history is. One extra row is fetched to tell if there's more.
+        String sql = "SELECT " + TransferRowMapper.COLUMNS + " " +
+                "FROM (" +
+                    "(SELECT * FROM transfer WHERE account_from = (SELECT account_id FROM account WHERE user_id = :userId) " +
+                    "AND transfer_id > :afterId ORDER BY transfer_id LIMIT :limit) " +
+                    "UNION ALL " +
+                    "(SELECT * FROM transfer WHERE account_to = (SELECT account_id FROM account WHERE user_id = :userId) " +
+                    "AND transfer_id > :afterId ORDER BY transfer_id LIMIT :limit)" +
+                ") AS t " +
+                USER_JOINS +
+                "ORDER BY t.transfer_id LIMIT :limit";
+
+        return lookups.flatMap(lookups -> databaseClient.execute(sql)
+                        .bind("userId", userId)
+                        .bind("afterId", afterTransferId)
+                        .bind("limit", pageSize + 1)
+                        .map(row -> mapTransfer(row, lookups))
+                        .all()
+                        .collectList())
+                .map(transfers -> toPage(transfers, pageSize))
+                .onErrorMap(e -> daoException(e, "There was an error getting transfers."));
+    }
+
+    @Override
+    public Mono<TransferPage> retrieveListOfPendingTransfers(int userId, int afterTransferId, int pageSize) {
+        String sql = "SELECT " + TransferRowMapper.COLUMNS + " " +
+                "FROM transfer AS t " +
+                USER_JOINS +
+                "WHERE t.account_from = (SELECT account_id FROM account WHERE user_id = :userId) " +
+                "AND t.transfer_status_id = :statusId AND t.transfer_id > :afterId " +
+                "ORDER BY t.transfer_id LIMIT :limit";
+
+        return lookups.flatMap(lookups -> databaseClient.execute(sql)
+                        .bind("userId", userId)
+                        .bind("statusId", lookups.statusId(TransferStatus.PENDING))
+                        .bind("afterId", afterTransferId)
+                        .bind("limit", pageSize + 1)
+                        .map(row -> mapTransfer(row, lookups))
+                        .all()
+                        .collectList())
+                .map(transfers -> toPage(transfers, pageSize))
+                .onErrorMap(e -> daoException(e, "There was a problem with fetching the pending transactions."));
+    }
+
+    @Override
+    public Mono<Transfer> retrieveTransferById(int transferId) {
+        String sql = "SELECT " + TransferRowMapper.COLUMNS + " " +
+                "FROM transfer AS t " +
+                USER_JOINS +
+                "WHERE t.transfer_id = :transferId";
+
+        return lookups.flatMap(lookups -> databaseClient.execute(sql)
+                        .bind("transferId", transferId)
+                        .map(row -> mapTransfer(row, lookups))
+                        .first())
+                .onErrorMap(e -> daoException(e, "There was an error locating specific transfer."));
+    }
+
+    @Override
+    public Mono<Integer> updateTransferStatus(Transfer transfer) {
+        String sql = "UPDATE transfer SET transfer_status_id = :statusId WHERE transfer_id = :transferId";
+
+        return lookups.flatMap(lookups -> databaseClient.execute(sql)
+                        .bind("statusId", lookups.statusId(transfer.getStatus()))
+                        .bind("transferId", transfer.getTransferId())
+                        .fetch()
+                        .rowsUpdated())
+                .onErrorMap(e -> daoException(e, "There was an error updating the transfer."));
+    }
+
+    private Mono<TransferLookups> loadLookups() {
+        Mono<Map<TransferType, Integer>> typeIds = databaseClient
+                .execute("SELECT transfer_type_id, transfer_type_desc FROM transfer_type")
+                .map(row -> Map.entry(row.get(1, String.class), row.get(0, Integer.class)))
+                .all()
+                .collect(() -> new EnumMap<>(TransferType.class), (ids, entry) -> {
+                    TransferType type = TransferType.fromDescription(entry.getKey());
+                    if (type != null) {
+                        ids.put(type, entry.getValue());
+                    }
+                });
+        Mono<Map<TransferStatus, Integer>> statusIds = databaseClient
+                .execute("SELECT transfer_status_id, transfer_status_desc FROM transfer_status")
+                .map(row -> Map.entry(row.get(1, String.class), row.get(0, Integer.class)))
+                .all()
+                .collect(() -> new EnumMap<>(TransferStatus.class), (ids, entry) -> {
+                    TransferStatus status = TransferStatus.fromDescription(entry.getKey());
+                    if (status != null) {
+                        ids.put(status, entry.getValue());
+                    }
+                });
+
+        return Mono.zip(typeIds, statusIds)
+                .map(ids -> {
+                    if (ids.getT1().size() != TransferType.values().length
+                            || ids.getT2().size() != TransferStatus.values().length) {
+                        throw new DaoException("The transfer_type or transfer_status table is missing a row.");
+                    }
+                    return TransferLookups.of(ids.getT1(), ids.getT2());
+                })
+                .onErrorMap(e -> daoException(e, "Unable to load the transfer types and statuses"));
+    }
+
+    // Reads a row selected with TransferRowMapper.COLUMNS, by position as TransferRowMapper does
+    private static Transfer mapTransfer(Row row, TransferLookups lookups) {
+        return new Transfer(
+                row.get(0, Integer.class),
+                row.get(4, Integer.class),
+                row.get(5, Integer.class),
+                row.get(3, BigDecimal.class),
+                lookups.type(row.get(1, Integer.class)).getDescription(),
+                lookups.status(row.get(2, Integer.class)).getDescription(),
+                row.get(6, String.class),
+                row.get(7, String.class));
+    }
+
+    // Drops the extra row fetched past the page and, if there was one, points the cursor at the last row kept
+    private static TransferPage toPage(List<Transfer> transfers, int pageSize) {
+        if (transfers.size() <= pageSize) {
+            return new TransferPage(transfers, null);
+        }
+        transfers.remove(pageSize);
+        return new TransferPage(transfers, transfers.get(pageSize - 1).getTransferId());
+    }
+
+    // Wraps driver errors the way JdbcTransferDao does, leaving the DAO's own exceptions raised along the way as they are
+    private static Throwable daoException(Throwable e, String message) {
+        if (e instanceof DaoException || e instanceof TransferNotPendingException || !(e instanceof Exception)) {
+            return e;
+        }
+        return new DaoException(message, (Exception) e);
+    }
+}
@@ -0,0 +1,55 @@
+package com.techelevator.reactive.dao;
+
+import com.techelevator.tenmo.model.Account;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reads and writes behind the reactive API, as TransferDao has them for the servlet server. Failures arrive as
+ * DaoException errors.
+ */
+public interface ReactiveTransferDao {
+
+    /**
+     * @return empty if the user has no account
+     */
+    Mono<Account> retrieveAccountBalance(String username);
+
+    Flux<User> retrieveListOfUsers();
+
+    /**
+     * Inserts the transfer as it is, without moving money, e.g. for a request.
+     */
+    Mono<Transfer> createTransfer(Transfer transfer);
+
+    /**
+     * Moves the money and records the transfer in one statement.
+     *
+     * @return empty if the sender can't cover the amount or an account is missing
+     */
+    Mono<Transfer> sendTransfer(Transfer transfer);
+
+    Mono<Boolean> validateTransfer(Transfer transfer);
+
+    /**
+     * Moves the money for a pending request and marks it approved, in one statement. Fails with
+     * TransferNotPendingException if it was already approved or rejected, as TransferDao does.
+     *
+     * @return false if the sender can't cover it or an account is missing
+     */
+    Mono<Boolean> approveTransfer(Transfer transfer);
+
+    Mono<TransferPage> retrieveListOfTransfers(int userId, int afterTransferId, int pageSize);
+
+    Mono<TransferPage> retrieveListOfPendingTransfers(int userId, int afterTransferId, int pageSize);
+
+    /**
+     * @return empty if there's no such transfer
+     */
+    Mono<Transfer> retrieveTransferById(int transferId);
+
+    Mono<Integer> updateTransferStatus(Transfer transfer);
+}
@@ -0,0 +1,120 @@
+package com.techelevator.reactive.security;
+
+import com.techelevator.tenmo.security.jwt.TokenProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.reactive.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.MetricsEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authentication.ServerAuthenticationEntryPointFailureHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Accepts the same bearer tokens as the servlet server's JWTFilter, checked by its TokenProvider. Requests without a
+ * valid token get a 401. The actuator endpoints are guarded as on the servlet server (see its
+ * ManagementSecurityConfig): health is open, and metrics and prometheus take HTTP Basic with the scraper or admin
+ * account configured under tenmo.management.
+ */
+@Configuration
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String ADMIN = "ADMIN";
+    private static final String METRICS = "METRICS";
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityWebFilterChain managementWebFilterChain(
+            ServerHttpSecurity http,
+            @Value("${tenmo.management.admin-username:admin}") String adminUsername,
+            @Value("${tenmo.management.admin-password:}") String adminPassword,
+            @Value("${tenmo.management.scraper-username:prometheus}") String scraperUsername,
+            @Value("${tenmo.management.scraper-password:}") String scraperPassword) {
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        // An account without a password isn't created, so by default only health answers
+        Map<String, UserDetails> accounts = new HashMap<>();
+        if (!adminPassword.isEmpty()) {
+            accounts.put(adminUsername, User.withUsername(adminUsername)
+                    .password(passwordEncoder.encode(adminPassword)).roles(ADMIN).build());
+        }
+        if (!scraperPassword.isEmpty()) {
+            accounts.put(scraperUsername, User.withUsername(scraperUsername)
+                    .password(passwordEncoder.encode(scraperPassword)).roles(METRICS).build());
+        }
+        UserDetailsRepositoryReactiveAuthenticationManager authenticationManager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(
+                        username -> Mono.justOrEmpty(accounts.get(username)));
+        authenticationManager.setPasswordEncoder(passwordEncoder);
+
+        return http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf().disable()
+                .formLogin().disable()
+                .logout().disable()
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .httpBasic().authenticationManager(authenticationManager)
+                .and()
+                .authorizeExchange()
+                .matchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                .matchers(EndpointRequest.to(MetricsEndpoint.class, PrometheusScrapeEndpoint.class))
+                .hasAnyRole(ADMIN, METRICS)
+                .anyExchange().hasRole(ADMIN)
+                .and()
+                .build();
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, TokenProvider tokenProvider) {
+        HttpStatusServerEntryPoint unauthorized = new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED);
+
+        // TokenProvider has already verified the token by the time there's an Authentication to pass on
+        ReactiveAuthenticationManager verified = Mono::just;
+        AuthenticationWebFilter jwtFilter = new AuthenticationWebFilter(verified);
+        jwtFilter.setServerAuthenticationConverter(exchange -> {
+            String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (header == null || !header.startsWith(BEARER_PREFIX)) {
+                return Mono.empty();
+            }
+            return Mono.justOrEmpty(tokenProvider.getAuthentication(header.substring(BEARER_PREFIX.length())));
+        });
+        jwtFilter.setAuthenticationFailureHandler(new ServerAuthenticationEntryPointFailureHandler(unauthorized));
+
+        return http
+                .csrf().disable()
+                .httpBasic().disable()
+                .formLogin().disable()
+                .logout().disable()
+                // create no session
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling().authenticationEntryPoint(unauthorized)
+                .and()
+                .authorizeExchange()
+                .anyExchange().authenticated()
+                .and()
+                .addFilterAt(jwtFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
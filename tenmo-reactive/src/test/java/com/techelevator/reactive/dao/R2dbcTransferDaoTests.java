@@ -0,0 +1,185 @@
+package com.techelevator.reactive.dao;
+
+import com.techelevator.tenmo.exception.DaoException;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.User;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import org.flywaydb.core.Flyway;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Runs against a temporary database on the local PostgreSQL, built with the servlet server's migrations and filled
+ * with the same test data as its DAO tests before every test.
+ */
+public class R2dbcTransferDaoTests {
+
+    private static final String DB_NAME = "TestTenmoReactive";
+    private static final String ADMIN_URL = "jdbc:postgresql://localhost:5432/postgres";
+    private static final String JDBC_URL = "jdbc:postgresql://localhost:5432/" + DB_NAME;
+    private static final String USERNAME = "postgres";
+    private static final String PASSWORD = "postgres1";
+
+    private static ConnectionFactory connectionFactory;
+    private static DatabaseClient databaseClient;
+    private R2dbcTransferDao sut;
+
+    @BeforeClass
+    public static void createDatabase() throws SQLException {
+        adminUpdate("DROP DATABASE IF EXISTS \"" + DB_NAME + "\"");
+        adminUpdate("CREATE DATABASE \"" + DB_NAME + "\"");
+        connectionFactory = ConnectionFactories.get(
+                "r2dbc:postgresql://" + USERNAME + ":" + PASSWORD + "@localhost:5432/" + DB_NAME);
+        databaseClient = DatabaseClient.create(connectionFactory);
+    }
+
+    @AfterClass
+    public static void dropDatabase() throws SQLException {
+        adminUpdate("DROP DATABASE \"" + DB_NAME + "\"");
+    }
+
+    @Before
+    public void setup() throws SQLException {
+        Flyway flyway = Flyway.configure().dataSource(JDBC_URL, USERNAME, PASSWORD).load();
+        flyway.clean();
+        flyway.migrate();
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(JDBC_URL, USERNAME, PASSWORD, true);
+        ScriptUtils.executeSqlScript(dataSource.getConnection(), new ClassPathResource("test-data.sql"));
+        dataSource.destroy();
+
+        sut = new R2dbcTransferDao(databaseClient);
+    }
+
+    @Test
+    public void retrieveAccountBalance_ignores_case_and_is_empty_for_unknown_users() {
+        Assert.assertEquals(new BigDecimal("1000.00"), sut.retrieveAccountBalance("USER1").block().getBalance());
+        Assert.assertNull(sut.retrieveAccountBalance("nobody").block());
+    }
+
+    @Test
+    public void retrieveListOfUsers_returns_every_user_in_id_order() {
+        List<String> usernames = sut.retrieveListOfUsers().map(User::getUsername).collectList().block();
+
+        Assert.assertEquals(List.of("user1", "user2", "user3"), usernames);
+    }
+
+    @Test
+    public void sendTransfer_moves_the_money_only_when_the_sender_can_cover_it() {
+        Transfer sent = sut.sendTransfer(transfer(1002, 1001, "25.00", "Send", "Approved")).block();
+
+        Assert.assertNotNull(sent);
+        Assert.assertTrue(sent.getTransferId() > 3004);
+        Assert.assertEquals(new BigDecimal("1025.00"), balance("user1"));
+        Assert.assertEquals(new BigDecimal("1975.00"), balance("user2"));
+
+        Assert.assertNull(sut.sendTransfer(transfer(1001, 1002, "5000.00", "Send", "Approved")).block());
+        Assert.assertEquals(new BigDecimal("1025.00"), balance("user1"));
+    }
+
+    @Test
+    public void approveTransfer_applies_a_pending_request_once() {
+        Transfer request = sut.retrieveTransferById(3002).block();
+
+        Assert.assertTrue(sut.approveTransfer(request).block());
+        try {
+            sut.approveTransfer(request).block();
+            Assert.fail("Expected the second approval to find the request no longer pending");
+        } catch (TransferNotPendingException e) {
+            Assert.assertEquals(3002, e.getTransferId());
+        }
+
+        Assert.assertEquals("Approved", sut.retrieveTransferById(3002).block().getStatus());
+        Assert.assertEquals(new BigDecimal("800.00"), balance("user1"));
+        Assert.assertEquals(new BigDecimal("2200.00"), balance("user2"));
+    }
+
+    @Test
+    public void approveTransfer_is_false_when_the_sender_cannot_cover_it() {
+        Transfer request = sut.createTransfer(transfer(1001, 1002, "5000.00", "Request", "Pending")).block();
+
+        Assert.assertFalse(sut.approveTransfer(request).block());
+        Assert.assertEquals("Pending", sut.retrieveTransferById(request.getTransferId()).block().getStatus());
+        Assert.assertEquals(new BigDecimal("1000.00"), balance("user1"));
+    }
+
+    @Test
+    public void lookups_are_loaded_again_after_a_failed_first_load() {
+        AtomicBoolean down = new AtomicBoolean(true);
+        ConnectionFactory flaky = new ConnectionFactory() {
+            @Override
+            public Publisher<? extends io.r2dbc.spi.Connection> create() {
+                return down.get() ? Mono.error(new R2dbcNonTransientResourceException("Database is down"))
+                        : connectionFactory.create();
+            }
+
+            @Override
+            public ConnectionFactoryMetadata getMetadata() {
+                return connectionFactory.getMetadata();
+            }
+        };
+        R2dbcTransferDao recovering = new R2dbcTransferDao(DatabaseClient.create(flaky));
+
+        try {
+            recovering.retrieveTransferById(3001).block();
+            Assert.fail("Expected the load to fail while the database is down");
+        } catch (DaoException e) {
+            // expected
+        }
+        down.set(false);
+
+        Assert.assertEquals(3001, recovering.retrieveTransferById(3001).block().getTransferId());
+    }
+
+    @Test
+    public void transfer_pages_follow_the_cursor() {
+        TransferPage first = sut.retrieveListOfTransfers(1001, 0, 2).block();
+        TransferPage second = sut.retrieveListOfTransfers(1001, first.getNextCursor(), 2).block();
+
+        Assert.assertEquals(List.of(3001, 3002), ids(first));
+        Assert.assertEquals(List.of(3004), ids(second));
+        Assert.assertNull(second.getNextCursor());
+        Assert.assertEquals(List.of(3002), ids(sut.retrieveListOfPendingTransfers(1001, 0, 50).block()));
+    }
+
+    private BigDecimal balance(String username) {
+        return sut.retrieveAccountBalance(username).block().getBalance();
+    }
+
+    private static List<Integer> ids(TransferPage page) {
+        return page.getTransfers().stream().map(Transfer::getTransferId).collect(Collectors.toList());
+    }
+
+    private static Transfer transfer(int senderId, int recipientId, String amount, String type, String status) {
+        return new Transfer(0, senderId, recipientId, new BigDecimal(amount), type, status, null, null);
+    }
+
+    private static void adminUpdate(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(ADMIN_URL, USERNAME, PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+BEGIN TRANSACTION;
+
+-- The schema and reference data come from the migrations in src/main/resources/db/migration
+-- transfer_status: 1 Pending, 2 Approved, 3 Rejected; transfer_type: 1 Request, 2 Send
+
+INSERT INTO tenmo_user (username,password_hash,role) VALUES ('user1','user1','ROLE_USER'); -- 1001
+INSERT INTO tenmo_user (username,password_hash,role) VALUES ('user2','user2','ROLE_USER'); -- 1002
+INSERT INTO tenmo_user (username,password_hash,role) VALUES ('user3','user3','ROLE_USER'); -- 1003
+
+INSERT INTO account (user_id,balance) VALUES (1001,1000.00); -- 2001
+INSERT INTO account (user_id,balance) VALUES (1002,2000.00); -- 2002
+INSERT INTO account (user_id,balance) VALUES (1003,3000.00); -- 2003
+
+INSERT INTO transfer (transfer_type_id,transfer_status_id,account_from,account_to,amount)
+    VALUES (2,2,2001,2002,100.00); -- 3001
+INSERT INTO transfer (transfer_type_id,transfer_status_id,account_from,account_to,amount)
+    VALUES (1,1,2001,2002,200.00); -- 3002 // Request/Pending (test for Approved)
+INSERT INTO transfer (transfer_type_id,transfer_status_id,account_from,account_to,amount)
+    VALUES (1,1,2002,2003,200.00); -- 3003 // Request/Pending (test for Rejected)
+INSERT INTO transfer (transfer_type_id,transfer_status_id,account_from,account_to,amount)
+    VALUES (2,2,2001,2002,1000000.00); -- 3004
+
+
+
+COMMIT TRANSACTION;
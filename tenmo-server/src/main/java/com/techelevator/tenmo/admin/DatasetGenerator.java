@@ -0,0 +1,221 @@
+package com.techelevator.tenmo.admin;
+
+import com.techelevator.tenmo.dao.TransferLookups;
+import com.techelevator.tenmo.exception.DaoException;
+import com.techelevator.tenmo.model.TransferStatus;
+import com.techelevator.tenmo.model.TransferType;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+/**
+ * Fills tenmo_user, account and transfer with a DatasetSpec's worth of rows, streamed to the database with COPY so
+ * that tens of millions of rows never have to be held in memory.
+ *
+ * Ids are reserved from the tables' sequences up front and written explicitly, so the rows come out the same for the
+ * same spec and seed apart from where their ids start, and the server keeps working alongside them afterwards. Every
+ * generated user has the password "password".
+ */
+@Component
+public class DatasetGenerator {
+
+    // BCrypt of "password" at cost 10, shared so that generating users doesn't mean hashing millions of passwords
+    private static final String PASSWORD_HASH = "$2a$10$vVc/RJqVV7vZL6YRFcUcf.38ZJrJk.NGtKRspL3Pnbboeopyb5Kby";
+    private static final int MAX_BALANCE_CENTS = 1_000_000;
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public Dataset generate(DatasetSpec spec) {
+        if (spec.getUsers() < 2 && spec.getTransfers() > 0) {
+            throw new IllegalArgumentException("Transfers need at least two users");
+        }
+        TransferLookups lookups = TransferLookups.load(jdbcTemplate);
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<Dataset>) connection -> {
+                Dataset dataset = new Dataset(spec,
+                        reserveIds(connection, "seq_user_id", spec.getUsers()),
+                        reserveIds(connection, "seq_account_id", spec.getUsers()),
+                        reserveIds(connection, "seq_transfer_id", spec.getTransfers()));
+                SplittableRandom random = new SplittableRandom(spec.getSeed());
+                copyUsers(connection, dataset);
+                copyAccounts(connection, dataset, random);
+                copyTransfers(connection, dataset, random, lookups);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("ANALYZE tenmo_user, account, transfer");
+                }
+                return dataset;
+            });
+        } catch (DataAccessException e) {
+            throw new DaoException("Unable to generate the dataset", e);
+        }
+    }
+
+    // Moves the sequence past count ids in one step and returns the first of them
+    private static int reserveIds(Connection connection, String sequence, int count) throws SQLException {
+        if (count == 0) {
+            return 0;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT setval(?::regclass, nextval(?::regclass) + ? - 1)")) {
+            statement.setString(1, sequence);
+            statement.setString(2, sequence);
+            statement.setInt(3, count);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return Math.toIntExact(rs.getLong(1) - count + 1);
+            }
+        }
+    }
+
+    private static void copyUsers(Connection connection, Dataset dataset) throws SQLException {
+        copy(connection, "COPY tenmo_user (user_id, username, password_hash) FROM STDIN", out -> {
+            for (int i = 0; i < dataset.getUsers(); i++) {
+                out.write(Integer.toString(dataset.getFirstUserId() + i));
+                out.write('\t');
+                out.write(dataset.getUsernamePrefix());
+                out.write(Integer.toString(i));
+                out.write('\t');
+                out.write(PASSWORD_HASH);
+                out.write('\n');
+            }
+        });
+    }
+
+    private static void copyAccounts(Connection connection, Dataset dataset, SplittableRandom random) throws SQLException {
+        copy(connection, "COPY account (account_id, user_id, balance) FROM STDIN", out -> {
+            for (int i = 0; i < dataset.getUsers(); i++) {
+                out.write(Integer.toString(dataset.getFirstAccountId() + i));
+                out.write('\t');
+                out.write(Integer.toString(dataset.getFirstUserId() + i));
+                out.write('\t');
+                writeAmount(out, random.nextInt(MAX_BALANCE_CENTS + 1));
+                out.write('\n');
+            }
+        });
+    }
+
+    // Senders are drawn from a zipf distribution over the users, recipients from the hot accounts or evenly from
+    // all users. Amounts are mostly small: between $1 and $500, spread evenly over their logarithm.
+    private static void copyTransfers(Connection connection, Dataset dataset, SplittableRandom random,
+                                      TransferLookups lookups) throws SQLException {
+        DatasetSpec spec = dataset.spec;
+        int users = spec.getUsers();
+        int hotAccounts = Math.min(spec.getHotAccounts(), users);
+        ZipfSampler senders = new ZipfSampler(Math.max(users, 1), spec.getZipfExponent());
+        String pending = lookups.typeId(TransferType.REQUEST.getDescription()) + "\t" + lookups.statusId(TransferStatus.PENDING) + "\t";
+        String approved = lookups.typeId(TransferType.SEND.getDescription()) + "\t" + lookups.statusId(TransferStatus.APPROVED) + "\t";
+        double logMaxAmount = Math.log(500);
+
+        copy(connection, "COPY transfer (transfer_id, transfer_type_id, transfer_status_id, account_from, account_to, amount) FROM STDIN", out -> {
+            for (int i = 0; i < spec.getTransfers(); i++) {
+                int from = senders.sample(random) - 1;
+                int to = hotAccounts > 0 && random.nextDouble() < spec.getHotAccountShare()
+                        ? users - 1 - random.nextInt(hotAccounts)
+                        : random.nextInt(users);
+                if (to == from) {
+                    to = (from + 1) % users;
+                }
+                long amountCents = Math.round(Math.exp(random.nextDouble() * logMaxAmount) * 100);
+
+                out.write(Integer.toString(dataset.getFirstTransferId() + i));
+                out.write('\t');
+                out.write(random.nextDouble() < spec.getPendingRatio() ? pending : approved);
+                out.write(Integer.toString(dataset.getFirstAccountId() + from));
+                out.write('\t');
+                out.write(Integer.toString(dataset.getFirstAccountId() + to));
+                out.write('\t');
+                writeAmount(out, amountCents);
+                out.write('\n');
+            }
+        });
+    }
+
+    private static void writeAmount(Writer out, long cents) throws IOException {
+        out.write(Long.toString(cents / 100));
+        out.write('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            out.write('0');
+        }
+        out.write(Long.toString(fraction));
+    }
+
+    private static void copy(Connection connection, String sql, Rows rows) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(pgConnection, sql, COPY_BUFFER_SIZE), StandardCharsets.UTF_8), COPY_BUFFER_SIZE)) {
+            rows.writeTo(out);
+        } catch (IOException e) {
+            throw new SQLException("Could not stream rows for " + sql, e);
+        }
+    }
+
+    private interface Rows {
+        void writeTo(Writer out) throws IOException;
+    }
+
+    /**
+     * Where the generated rows' ids start. The user, account and transfer at index i have the first id plus i, and
+     * the user at index i is named the username prefix followed by i.
+     */
+    public static class Dataset {
+
+        private final DatasetSpec spec;
+        private final int firstUserId;
+        private final int firstAccountId;
+        private final int firstTransferId;
+
+        Dataset(DatasetSpec spec, int firstUserId, int firstAccountId, int firstTransferId) {
+            this.spec = spec;
+            this.firstUserId = firstUserId;
+            this.firstAccountId = firstAccountId;
+            this.firstTransferId = firstTransferId;
+        }
+
+        public String getUsernamePrefix() {
+            return spec.getUsernamePrefix();
+        }
+
+        public int getUsers() {
+            return spec.getUsers();
+        }
+
+        public int getTransfers() {
+            return spec.getTransfers();
+        }
+
+        public int getFirstUserId() {
+            return firstUserId;
+        }
+
+        public int getFirstAccountId() {
+            return firstAccountId;
+        }
+
+        public int getFirstTransferId() {
+            return firstTransferId;
+        }
+    }
+}
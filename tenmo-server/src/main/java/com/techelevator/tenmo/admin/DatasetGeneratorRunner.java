@@ -0,0 +1,61 @@
+package com.techelevator.tenmo.admin;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a dataset at startup when tenmo.generate.users is set. To fill a database without serving requests:
+ *
+ * java -jar tenmo-server.jar --spring.main.web-application-type=none --tenmo.generate.users=1000000
+ *     --tenmo.generate.transfers=20000000 --tenmo.generate.seed=7
+ *
+ * The other settings are listed in application.properties and described on DatasetSpec.
+ */
+@Component
+@ConditionalOnProperty(name = "tenmo.generate.users")
+public class DatasetGeneratorRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DatasetGeneratorRunner.class);
+
+    private final DatasetGenerator generator;
+    private final DatasetSpec spec = new DatasetSpec();
+
+    public DatasetGeneratorRunner(DatasetGenerator generator,
+                                  @Value("${tenmo.generate.users}") int users,
+                                  @Value("${tenmo.generate.transfers:0}") int transfers,
+                                  @Value("${tenmo.generate.username-prefix:gen_user_}") String usernamePrefix,
+                                  @Value("${tenmo.generate.zipf-exponent:1.0}") double zipfExponent,
+                                  @Value("${tenmo.generate.pending-ratio:0.02}") double pendingRatio,
+                                  @Value("${tenmo.generate.hot-accounts:10}") int hotAccounts,
+                                  @Value("${tenmo.generate.hot-account-share:0.1}") double hotAccountShare,
+                                  @Value("${tenmo.generate.seed:42}") long seed) {
+        this.generator = generator;
+        spec.setUsers(users);
+        spec.setTransfers(transfers);
+        spec.setUsernamePrefix(usernamePrefix);
+        spec.setZipfExponent(zipfExponent);
+        spec.setPendingRatio(pendingRatio);
+        spec.setHotAccounts(hotAccounts);
+        spec.setHotAccountShare(hotAccountShare);
+        spec.setSeed(seed);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        DatasetGenerator.Dataset dataset = generator.generate(spec);
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        long rows = 2L * dataset.getUsers() + dataset.getTransfers();
+        log.info("Generated {} users ({}0 to {}{}, ids from {}) and {} transfers (ids from {}) with seed {} in {} ms ({} rows/sec)",
+                dataset.getUsers(), dataset.getUsernamePrefix(), dataset.getUsernamePrefix(), dataset.getUsers() - 1,
+                dataset.getFirstUserId(), dataset.getTransfers(), dataset.getFirstTransferId(), spec.getSeed(),
+                elapsedMillis, rows * 1000 / elapsedMillis);
+    }
+}
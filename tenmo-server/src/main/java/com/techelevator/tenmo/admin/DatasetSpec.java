@@ -0,0 +1,94 @@
+package com.techelevator.tenmo.admin;
+
+/**
+ * What DatasetGenerator creates. The same spec and seed always give the same rows.
+ */
+public class DatasetSpec {
+
+    private String usernamePrefix = "gen_user_";
+    private int users = 100000;
+    private int transfers = 1000000;
+    private double zipfExponent = 1.0;
+    private double pendingRatio = 0.02;
+    private int hotAccounts = 10;
+    private double hotAccountShare = 0.1;
+    private long seed = 42;
+
+    /**
+     * Users are named this followed by their index, starting at 0.
+     */
+    public String getUsernamePrefix() {
+        return usernamePrefix;
+    }
+
+    public void setUsernamePrefix(String usernamePrefix) {
+        this.usernamePrefix = usernamePrefix;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public int getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(int transfers) {
+        this.transfers = transfers;
+    }
+
+    /**
+     * Skew of transfers per user: the user at index k sends in proportion to 1 / (k + 1)^zipfExponent, so index 0
+     * has the longest history. 0 spreads transfers evenly.
+     */
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    public void setZipfExponent(double zipfExponent) {
+        this.zipfExponent = zipfExponent;
+    }
+
+    /**
+     * Share of transfers that are pending requests rather than approved sends.
+     */
+    public double getPendingRatio() {
+        return pendingRatio;
+    }
+
+    public void setPendingRatio(double pendingRatio) {
+        this.pendingRatio = pendingRatio;
+    }
+
+    /**
+     * Number of accounts, the users with the highest indexes, that receive hotAccountShare of all transfers between
+     * them, like merchants everyone pays.
+     */
+    public int getHotAccounts() {
+        return hotAccounts;
+    }
+
+    public void setHotAccounts(int hotAccounts) {
+        this.hotAccounts = hotAccounts;
+    }
+
+    public double getHotAccountShare() {
+        return hotAccountShare;
+    }
+
+    public void setHotAccountShare(double hotAccountShare) {
+        this.hotAccountShare = hotAccountShare;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,47 @@
+package com.techelevator.tenmo.admin;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports the users in tenmo.import.users-file at startup. To import without serving requests:
+ *
+ * java -jar tenmo-server.jar --spring.main.web-application-type=none --tenmo.import.users-file=users.csv
+ */
+@Component
+@ConditionalOnProperty(name = "tenmo.import.users-file")
+public class UserImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImportRunner.class);
+
+    private final UserImporter userImporter;
+    private final Path usersFile;
+
+    public UserImportRunner(UserImporter userImporter, @Value("${tenmo.import.users-file}") String usersFile) {
+        this.userImporter = userImporter;
+        this.usersFile = Path.of(usersFile);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long start = System.nanoTime();
+        UserImporter.Result result;
+        try (BufferedReader lines = Files.newBufferedReader(usersFile)) {
+            result = userImporter.importUsers(lines);
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Imported {} of {} users from {} in {} ms ({} users/sec): {} invalid lines, {} usernames already taken",
+                result.getImported(), result.getRead(), usersFile, elapsedMillis,
+                result.getImported() * 1000 / elapsedMillis, result.getInvalid(), result.getDuplicates());
+    }
+}
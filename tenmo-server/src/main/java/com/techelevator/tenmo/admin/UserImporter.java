@@ -0,0 +1,132 @@
+package com.techelevator.tenmo.admin;
+
+import com.techelevator.tenmo.dao.UserDao;
+import com.techelevator.tenmo.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates users in bulk from lines of username,password (a header line and blank lines are skipped, and the password
+ * is everything after the first comma).
+ *
+ * Hashing dominates the cost, so each chunk of lines is hashed on every core while the chunk before it is written
+ * to the database with UserDao.importUsers. Lines with a blank field or a username over 50 characters are skipped,
+ * as are usernames that are already taken.
+ */
+@Component
+public class UserImporter {
+
+    private static final int MAX_USERNAME_LENGTH = 50;
+
+    private final UserDao userDao;
+    private final PasswordEncoder passwordEncoder;
+    private final int chunkSize;
+    private final int threads;
+
+    public UserImporter(UserDao userDao, PasswordEncoder passwordEncoder,
+                        @Value("${tenmo.import.chunk-size:10000}") int chunkSize,
+                        @Value("${tenmo.import.threads:0}") int threads) {
+        this.userDao = userDao;
+        this.passwordEncoder = passwordEncoder;
+        this.chunkSize = chunkSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public Result importUsers(BufferedReader lines) throws IOException {
+        ExecutorService hashing = Executors.newFixedThreadPool(threads);
+        Result result = new Result();
+        try {
+            CompletableFuture<List<User>> hashed = null;
+            List<User> chunk;
+            while (!(chunk = readChunk(lines, result)).isEmpty()) {
+                CompletableFuture<List<User>> next = hash(chunk, hashing);
+                if (hashed != null) {
+                    result.imported += userDao.importUsers(hashed.join());
+                }
+                hashed = next;
+            }
+            if (hashed != null) {
+                result.imported += userDao.importUsers(hashed.join());
+            }
+        } finally {
+            hashing.shutdownNow();
+        }
+        return result;
+    }
+
+    private List<User> readChunk(BufferedReader lines, Result result) throws IOException {
+        List<User> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while (chunk.size() < chunkSize && (line = lines.readLine()) != null) {
+            if (line.isBlank() || (result.read == 0 && line.equalsIgnoreCase("username,password"))) {
+                continue;
+            }
+            result.read++;
+            int comma = line.indexOf(',');
+            String username = comma < 0 ? "" : line.substring(0, comma).trim();
+            String password = comma < 0 ? "" : line.substring(comma + 1);
+            if (username.isEmpty() || username.length() > MAX_USERNAME_LENGTH || password.isEmpty()) {
+                result.invalid++;
+                continue;
+            }
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword(password);
+            chunk.add(user);
+        }
+        return chunk;
+    }
+
+    // Splits the chunk into one slice per thread, and each slice replaces its passwords with their hashes
+    private CompletableFuture<List<User>> hash(List<User> chunk, ExecutorService hashing) {
+        int sliceSize = (chunk.size() + threads - 1) / threads;
+        List<CompletableFuture<Void>> slices = new ArrayList<>(threads);
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<User> slice = chunk.subList(from, Math.min(from + sliceSize, chunk.size()));
+            slices.add(CompletableFuture.runAsync(() -> {
+                for (User user : slice) {
+                    user.setPassword(passwordEncoder.encode(user.getPassword()));
+                }
+            }, hashing));
+        }
+        return CompletableFuture.allOf(slices.toArray(new CompletableFuture[0])).thenApply(done -> chunk);
+    }
+
+    public static class Result {
+
+        private long read;
+        private long invalid;
+        private long imported;
+
+        /**
+         * Lines read, not counting a header or blank lines.
+         */
+        public long getRead() {
+            return read;
+        }
+
+        public long getInvalid() {
+            return invalid;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        /**
+         * Valid lines whose username was already taken, by an existing user or earlier in the file.
+         */
+        public long getDuplicates() {
+            return read - invalid - imported;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.techelevator.tenmo.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts optimistic update conflicts, retries and exhausted retries, and keeps the accounts the conflicts were on.
+ *
+ * The counters aren't tagged by account, which would add a series per account. Instead every conflict goes into a
+ * table of at most hot-accounts entries (the space-saving algorithm): an account not in a full table replaces the
+ * one with the fewest conflicts and takes over its count, so any account with more than total / capacity conflicts
+ * is always in it, and no count is ever too low by more than its overcount. GET /actuator/hotaccounts lists it.
+ */
+@Component
+public class ContentionMetrics {
+
+    private static final String CONFLICTS = "tenmo.account.conflicts";
+    private static final String RETRIES = "tenmo.account.retries";
+    private static final String EXHAUSTED = "tenmo.account.retries.exhausted";
+    private static final String HOTTEST = "tenmo.account.conflicts.hottest";
+
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter exhausted;
+    private final int capacity;
+    private final Map<Integer, HotAccount> hotAccounts = new HashMap<>();
+
+    public ContentionMetrics(MeterRegistry registry) {
+        this(registry, 50);
+    }
+
+    @Autowired
+    public ContentionMetrics(MeterRegistry registry, @Value("${tenmo.retry.hot-accounts:50}") int capacity) {
+        this.conflicts = registry.counter(CONFLICTS);
+        this.retries = registry.counter(RETRIES);
+        this.exhausted = registry.counter(EXHAUSTED);
+        this.capacity = capacity;
+        // A single series that shows when one account starts drawing the conflicts, without naming it
+        Gauge.builder(HOTTEST, this, ContentionMetrics::hottestConflicts)
+                .description("Conflicts on the account with the most of them")
+                .register(registry);
+    }
+
+    public void recordConflict(int accountId) {
+        conflicts.increment();
+        synchronized (this) {
+            hotAccount(accountId).conflicts++;
+        }
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordExhausted(int accountId) {
+        exhausted.increment();
+        synchronized (this) {
+            hotAccount(accountId).exhausted++;
+        }
+    }
+
+    public double conflictCount() {
+        return conflicts.count();
+    }
+
+    /**
+     * The accounts in the table, most conflicts first.
+     */
+    public synchronized List<HotAccount> hotAccounts() {
+        List<HotAccount> copies = new ArrayList<>(hotAccounts.size());
+        for (HotAccount account : hotAccounts.values()) {
+            copies.add(account.copy());
+        }
+        copies.sort(Comparator.comparingLong(HotAccount::getConflicts).reversed());
+        return copies;
+    }
+
+    /**
+     * Empties the table, e.g. after a fix. The counters keep counting, as Prometheus expects of them.
+     */
+    public synchronized void resetHotAccounts() {
+        hotAccounts.clear();
+    }
+
+    private synchronized double hottestConflicts() {
+        long hottest = 0;
+        for (HotAccount account : hotAccounts.values()) {
+            hottest = Math.max(hottest, account.conflicts);
+        }
+        return hottest;
+    }
+
+    // The account's entry, replacing the coldest one if the table is full. Called with the lock held.
+    private HotAccount hotAccount(int accountId) {
+        HotAccount account = hotAccounts.get(accountId);
+        if (account != null) {
+            return account;
+        }
+        if (hotAccounts.size() < capacity) {
+            account = new HotAccount(accountId, 0);
+        } else {
+            // Conflicts are already a slow path (each is followed by a back-off), so scanning for the minimum is cheap
+            HotAccount coldest = null;
+            for (HotAccount candidate : hotAccounts.values()) {
+                if (coldest == null || candidate.conflicts < coldest.conflicts) {
+                    coldest = candidate;
+                }
+            }
+            hotAccounts.remove(coldest.accountId);
+            account = new HotAccount(accountId, coldest.conflicts);
+        }
+        hotAccounts.put(accountId, account);
+        return account;
+    }
+
+    public static class HotAccount {
+
+        private final int accountId;
+        private final long overcount;
+        private long conflicts;
+        private long exhausted;
+
+        HotAccount(int accountId, long overcount) {
+            this.accountId = accountId;
+            this.overcount = overcount;
+            this.conflicts = overcount;
+        }
+
+        public int getAccountId() {
+            return accountId;
+        }
+
+        /**
+         * Conflicts since the account entered the table, plus its overcount.
+         */
+        public long getConflicts() {
+            return conflicts;
+        }
+
+        /**
+         * How many of the conflicts may belong to the account it replaced; 0 means the count is exact.
+         */
+        public long getOvercount() {
+            return overcount;
+        }
+
+        /**
+         * Updates that gave up on this account since it entered the table.
+         */
+        public long getExhausted() {
+            return exhausted;
+        }
+
+        private HotAccount copy() {
+            HotAccount copy = new HotAccount(accountId, overcount);
+            copy.conflicts = conflicts;
+            copy.exhausted = exhausted;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.techelevator.tenmo.concurrency;
+
+import com.techelevator.tenmo.dao.TransferDao;
+import com.techelevator.tenmo.dao.UserDao;
+import com.techelevator.tenmo.exception.DaoException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ClassFilters;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets only as many threads into the TransferDao and UserDao beans at once as the connection pool has connections.
+ *
+ * With a virtual thread per request nothing else bounds how many requests reach the DAOs: thousands of them would
+ * queue inside the pool and time out there, and each one blocked in the driver can hold on to one of the few carrier
+ * threads. Waiting for a permit parks the virtual thread instead. A DAO method called from another one on the same
+ * thread already has a permit.
+ *
+ * Added around the DAO beans' other proxies, so the tenmo.dao.calls timings leave out the wait, which is published
+ * as tenmo.dao.permits.wait along with a tenmo.dao.permits.waiting gauge.
+ */
+public class DaoPermitsPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    public DaoPermitsPostProcessor(int permits, long timeoutMillis, ObjectProvider<MeterRegistry> registry) {
+        ClassFilter daos = ClassFilters.union(new RootClassFilter(TransferDao.class), new RootClassFilter(UserDao.class));
+        this.advisor = new DefaultPointcutAdvisor(new ComposablePointcut(daos),
+                new PermitInterceptor(new Semaphore(permits, true), timeoutMillis, registry));
+        setBeforeExistingAdvisors(true);
+    }
+
+    private static class PermitInterceptor implements MethodInterceptor {
+
+        private final Semaphore permits;
+        private final long timeoutMillis;
+        private final ObjectProvider<MeterRegistry> registryProvider;
+        private final ThreadLocal<Boolean> holdsPermit = new ThreadLocal<>();
+        private volatile Timer waitTimer;
+
+        PermitInterceptor(Semaphore permits, long timeoutMillis, ObjectProvider<MeterRegistry> registryProvider) {
+            this.permits = permits;
+            this.timeoutMillis = timeoutMillis;
+            this.registryProvider = registryProvider;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (holdsPermit.get() != null) {
+                return invocation.proceed();
+            }
+
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DaoException("Interrupted while waiting for a database connection", e);
+            }
+            waitTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                throw new DaoException("Timed out waiting for a database connection");
+            }
+
+            holdsPermit.set(Boolean.TRUE);
+            try {
+                return invocation.proceed();
+            } finally {
+                holdsPermit.remove();
+                permits.release();
+            }
+        }
+
+        // Registered on first use, since the registry isn't ready when the post-processor is created
+        private Timer waitTimer() {
+            if (waitTimer == null) {
+                MeterRegistry registry = registryProvider.getObject();
+                Gauge.builder("tenmo.dao.permits.waiting", permits, Semaphore::getQueueLength)
+                        .description("Threads waiting to call a DAO")
+                        .register(registry);
+                waitTimer = Timer.builder("tenmo.dao.permits.wait")
+                        .description("Time spent waiting to call a DAO")
+                        .register(registry);
+            }
+            return waitTimer;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.techelevator.tenmo.concurrency;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * GET /actuator/hotaccounts lists the accounts optimistic balance updates conflicted on most, with how many of those
+ * updates gave up. DELETE starts the list over, e.g. after a fix.
+ */
+@Component
+@Endpoint(id = "hotaccounts")
+public class HotAccountsEndpoint {
+
+    private final ContentionMetrics metrics;
+
+    public HotAccountsEndpoint(ContentionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ReadOperation
+    public List<ContentionMetrics.HotAccount> hotAccounts() {
+        return metrics.hotAccounts();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        metrics.resetHotAccounts();
+    }
+}
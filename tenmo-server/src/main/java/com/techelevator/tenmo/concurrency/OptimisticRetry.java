@@ -0,0 +1,68 @@
+package com.techelevator.tenmo.concurrency;
+
+import com.techelevator.tenmo.exception.AccountVersionConflictException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs an optimistic balance update again when another transfer changed one of its accounts first.
+ *
+ * Each attempt has to run in its own transaction, so this wraps calls to the transactional DAO rather than being
+ * used inside it. Waits between attempts grow exponentially up to a cap, with full jitter so the transfers that
+ * collided don't collide again on the next attempt.
+ */
+@Component
+public class OptimisticRetry {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    private final ContentionMetrics metrics;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticRetry(ContentionMetrics metrics,
+                           @Value("${tenmo.retry.max-attempts:5}") int maxAttempts,
+                           @Value("${tenmo.retry.initial-backoff-ms:5}") long initialBackoffMillis,
+                           @Value("${tenmo.retry.max-backoff-ms:200}") long maxBackoffMillis) {
+        this.metrics = metrics;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * @throws AccountVersionConflictException if the last attempt still conflicted
+     */
+    public <T> T execute(Supplier<T> attempt) {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                return attempt.get();
+            } catch (AccountVersionConflictException e) {
+                metrics.recordConflict(e.getAccountId());
+                if (attemptNumber >= maxAttempts) {
+                    metrics.recordExhausted(e.getAccountId());
+                    log.warn("Gave up on a balance update after {} attempts; account {} kept changing.", attemptNumber, e.getAccountId());
+                    throw e;
+                }
+                metrics.recordRetry();
+                backOff(attemptNumber);
+            }
+        }
+    }
+
+    private void backOff(int attemptNumber) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attemptNumber - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry a balance update.", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.techelevator.tenmo.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * With tenmo.threads.virtual=true, Tomcat handles every request on a virtual thread of its own instead of taking one
+ * of its 200 platform threads, and async work (streamed exports) runs on virtual threads too. A thread blocked on
+ * JDBC then costs a few hundred bytes of heap rather than a thread, so the number of concurrent requests is bounded
+ * by DaoPermitsPostProcessor and the connection pool rather than by Tomcat's thread pool.
+ *
+ * Needs Java 21; start the JVM with -Djdk.tracePinnedThreads=short to see any virtual thread that pins its carrier.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tenmo.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    private final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return executor;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    // Static because a post-processor has to exist before the DAO beans are created
+    @Bean
+    public static DaoPermitsPostProcessor daoPermitsPostProcessor(
+            @Value("${tenmo.threads.dao-permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long timeoutMillis,
+            ObjectProvider<MeterRegistry> registry) {
+        return new DaoPermitsPostProcessor(permits, timeoutMillis, registry);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+}
@@ -0,0 +1,26 @@
+package com.techelevator.tenmo.concurrency;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21's virtual threads, reached by reflection so the server still compiles for and runs on Java 11.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return an executor that starts a new virtual thread for every task
+     * @throws IllegalStateException if this JVM has no virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, but this is Java "
+                    + System.getProperty("java.version") + ". Run without tenmo.threads.virtual or on a newer JVM.", e);
+        }
+    }
+}
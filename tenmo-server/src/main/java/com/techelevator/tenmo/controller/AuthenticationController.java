@@ -4,11 +4,15 @@ import javax.validation.Valid;
 
 import com.techelevator.tenmo.exception.DaoException;
 import com.techelevator.tenmo.model.LoginResponseDto;
+import com.techelevator.tenmo.security.PasswordHashingExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -22,6 +26,9 @@ import com.techelevator.tenmo.model.User;
 import com.techelevator.tenmo.security.jwt.TokenProvider;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Controller to authenticate users.
  */
@@ -31,44 +38,65 @@ public class AuthenticationController {
     private final TokenProvider tokenProvider;
     private final AuthenticationManagerBuilder authenticationManagerBuilder;
     private final UserDao userDao;
+    private final PasswordHashingExecutor passwordHashing;
+    private final PasswordEncoder passwordEncoder;
 
-    public AuthenticationController(TokenProvider tokenProvider, AuthenticationManagerBuilder authenticationManagerBuilder, UserDao userDao) {
+    public AuthenticationController(TokenProvider tokenProvider, AuthenticationManagerBuilder authenticationManagerBuilder,
+                                    UserDao userDao, PasswordHashingExecutor passwordHashing,
+                                    PasswordEncoder passwordEncoder) {
         this.tokenProvider = tokenProvider;
         this.authenticationManagerBuilder = authenticationManagerBuilder;
         this.userDao = userDao;
+        this.passwordHashing = passwordHashing;
+        this.passwordEncoder = passwordEncoder;
     }
 
+    // Both endpoints run BCrypt, so they're handed to the password hashing threads and the request thread is freed
+    // until the result is ready. The authentication isn't put in the SecurityContext: every later request brings
+    // the token, and the context of a pool thread would outlive the login.
     @RequestMapping(path = "/login", method = RequestMethod.POST)
-    public LoginResponseDto login(@Valid @RequestBody LoginDto loginDto) {
-
-        UsernamePasswordAuthenticationToken authenticationToken =
-                new UsernamePasswordAuthenticationToken(loginDto.getUsername(), loginDto.getPassword());
+    public CompletableFuture<LoginResponseDto> login(@Valid @RequestBody LoginDto loginDto) {
+        return passwordHashing.submit(() -> {
+            UsernamePasswordAuthenticationToken authenticationToken =
+                    new UsernamePasswordAuthenticationToken(loginDto.getUsername(), loginDto.getPassword());
 
-        Authentication authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = tokenProvider.createToken(authentication, false);
+            Authentication authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
+            String jwt = tokenProvider.createToken(authentication, false);
 
-        User user;
-        try {
-            user = userDao.getUserByUsername(loginDto.getUsername());
-        } catch (DaoException e) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or password is incorrect.");
-        }
+            User user;
+            try {
+                user = userDao.getUserByUsername(loginDto.getUsername());
+            } catch (DaoException e) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or password is incorrect.");
+            }
 
-        return new LoginResponseDto(jwt, user);
+            return new LoginResponseDto(jwt, user);
+        });
     }
 
     @ResponseStatus(HttpStatus.CREATED)
     @RequestMapping(path = "/register", method = RequestMethod.POST)
-    public void register(@Valid @RequestBody RegisterUserDto newUser) {
-        try {
-            User user = userDao.createUser(newUser);
-            if (user == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User registration failed.");
+    public CompletableFuture<Void> register(@Valid @RequestBody RegisterUserDto newUser) {
+        return passwordHashing.submit(() -> {
+            String passwordHash = passwordEncoder.encode(newUser.getPassword());
+            try {
+                User user = userDao.createUser(newUser.getUsername(), passwordHash);
+                if (user == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User registration failed.");
+                }
+            } catch (DaoException e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "User registration failed.");
             }
-        } catch (DaoException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "User registration failed.");
-        }
+            return null;
+        });
+    }
+
+    // The hashing threads and their queue are full
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(passwordHashing.retryAfterSeconds()))
+                .build();
     }
 
 }
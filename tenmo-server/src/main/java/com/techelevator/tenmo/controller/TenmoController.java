@@ -1,25 +1,67 @@
 package com.techelevator.tenmo.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techelevator.tenmo.concurrency.OptimisticRetry;
 import com.techelevator.tenmo.dao.TransferDao;
+import com.techelevator.tenmo.dao.UserDao;
+import com.techelevator.tenmo.dao.UserDirectory;
+import com.techelevator.tenmo.events.TransferEvent;
+import com.techelevator.tenmo.events.TransferEventBus;
+import com.techelevator.tenmo.events.TransferEventStreams;
+import com.techelevator.tenmo.exception.AccountVersionConflictException;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
+import com.techelevator.tenmo.export.TransferExportWriter;
+import com.techelevator.tenmo.metrics.TransferMetrics;
 import com.techelevator.tenmo.model.Account;
 import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.TransferResult;
+import com.techelevator.tenmo.model.TransferStatus;
+import com.techelevator.tenmo.model.TransferType;
 import com.techelevator.tenmo.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.math.BigDecimal;
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @RestController
 @PreAuthorize("isAuthenticated()")
 public class TenmoController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
     @Autowired
     private TransferDao dao;
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserDirectory userDirectory;
+    @Autowired
+    private TransferMetrics transferMetrics;
+    @Autowired
+    private UserDao userDao;
+    @Autowired
+    private TransferEventBus transferEvents;
+    @Autowired
+    private TransferEventStreams transferEventStreams;
 
 
     @RequestMapping(path = "/accounts", method = RequestMethod.GET)
@@ -32,14 +74,32 @@ public class TenmoController {
     }
 
     @RequestMapping(path = "/users", method = RequestMethod.GET)
-    public List<User> retrieveListOfUsers() {
-        List<User> users = dao.retrieveListOfUsers();
+    public ResponseEntity<byte[]> retrieveListOfUsers(WebRequest request, HttpServletResponse response) {
+        UserDirectory.Snapshot users = userDirectory.snapshot();
 
-        if (users.isEmpty()) {
+        if (users.getUsers().isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No users were found");
         }
 
-        return users;
+        // Clients that accept gzip get the copy the directory compressed already, under its own ETag
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = gzip ? users.getGzippedETag() : users.getETag();
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        // Answers 304 with no body when If-None-Match already names this version of the list
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        // The list is the same for everyone, but clients have to check back for users who registered since
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(users.getGzippedJson());
+        }
+        return ok.body(users.getJson());
     }
 
     @ResponseStatus(HttpStatus.CREATED)
@@ -51,42 +111,135 @@ public class TenmoController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "You tried to send or request money to / from yourself :(");
         }
 
-        // Path for sending money
-        if (transfer.getType().equalsIgnoreCase("Send")) {
-            // Validate that the sender has enough money
-            boolean canTransfer = dao.validateTransfer(transfer);
-            if (!canTransfer) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not enough money in the account to send.");
+        // Path for sending money: the balance check, both balance updates and the insert happen in one statement
+        if (transfer.getTransferType() == TransferType.SEND) {
+            Transfer sentTransfer;
+            try {
+                sentTransfer = dao.sendTransfer(transfer);
+            } catch (RuntimeException e) {
+                transferMetrics.recordFailed(TransferMetrics.Source.SEND);
+                throw e;
             }
-
-            // Update both accounts' balances
-            boolean updateSuccessful = dao.updateAccountBalances(transfer);
-            if (!updateSuccessful) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error occurred while updating balances.");
+            if (sentTransfer == null) {
+                transferMetrics.recordInsufficientFunds(TransferMetrics.Source.SEND);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not enough money in the account to send.");
             }
+            transferMetrics.recordSent(TransferMetrics.Source.SEND);
+            publish(TransferEvent.Type.SENT, sentTransfer);
+            return sentTransfer;
         }
 
-        // Insert into transfer table no matter what the type is
+        // Requests are only inserted into the transfer table
         transfer = dao.createTransfer(transfer);
+        publish(TransferEvent.Type.REQUESTED, transfer);
         return transfer;
     }
 
+    @RequestMapping(path = "/transfers/batch", method = RequestMethod.POST)
+    public List<TransferResult> createTransfers(@RequestBody List<Transfer> transfers, Principal principal) {
+        int userId = currentUserId(principal);
+        TransferResult[] results = new TransferResult[transfers.size()];
+        List<Transfer> validTransfers = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+
+        // Checking each send the same way createTransfer does, so one bad entry doesn't fail the whole batch
+        for (int i = 0; i < transfers.size(); i++) {
+            Transfer transfer = transfers.get(i);
+            if (transfer.getTransferType() != TransferType.SEND) {
+                results[i] = TransferResult.failed(transfer, "Only sends can be submitted in a batch.");
+            } else if (transfer.getSenderId() != userId) {
+                results[i] = TransferResult.failed(transfer, "You can only send money from your own account.");
+            } else if (transfer.getTransferStatus() == null) {
+                results[i] = TransferResult.failed(transfer, "The status field must be Pending, Approved or Rejected.");
+            } else if (transfer.getAmount() == null || transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                results[i] = TransferResult.failed(transfer, "You must enter an amount that is greater than zero.");
+            } else if (transfer.getRecipientId() == transfer.getSenderId()) {
+                results[i] = TransferResult.failed(transfer, "You tried to send money to yourself :(");
+            } else {
+                validTransfers.add(transfer);
+                validIndexes.add(i);
+            }
+        }
+
+        // Applying the valid sends in one transaction
+        List<TransferResult> appliedResults;
+        try {
+            appliedResults = dao.sendTransfers(validTransfers);
+        } catch (RuntimeException e) {
+            validTransfers.forEach(transfer -> transferMetrics.recordFailed(TransferMetrics.Source.BATCH));
+            throw e;
+        }
+        for (int i = 0; i < appliedResults.size(); i++) {
+            results[validIndexes.get(i)] = appliedResults.get(i);
+        }
+
+        List<TransferResult> allResults = Arrays.asList(results);
+        transferMetrics.recordBatch(allResults);
+        for (TransferResult appliedResult : appliedResults) {
+            if (appliedResult.isSuccessful()) {
+                publish(TransferEvent.Type.SENT, appliedResult.getTransfer());
+            }
+        }
+        return allResults;
+    }
+
     @RequestMapping(path = "/transfers", method = RequestMethod.GET)
-    public List<Transfer> retrieveListOfTransfers(@RequestParam int userId, @RequestParam(required = false) boolean wantsPending){
-        List<Transfer> transfers = new ArrayList<>();
+    public TransferPage retrieveListOfTransfers(@RequestParam int userId, @RequestParam(required = false) boolean wantsPending,
+                                                @RequestParam(defaultValue = "0") int afterId,
+                                                @RequestParam(defaultValue = "50") int limit){
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
 
+        TransferPage page;
         if (wantsPending) {
-            transfers =  dao.retrieveListOfPendingTransfers(userId);
+            page = dao.retrieveListOfPendingTransfers(userId, afterId, limit);
         }
         else {
-            transfers = dao.retrieveListOfTransfers(userId);
+            page = dao.retrieveListOfTransfers(userId, afterId, limit);
         }
 
-        if (transfers.isEmpty()) {
+        if (page.getTransfers().isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unable to get list of transfers.");
         }
 
-         return transfers;
+         return page;
+    }
+
+    @RequestMapping(path = "/transfers/export", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> exportTransfers(@RequestParam(required = false) Integer userId,
+                                                                 @RequestParam(defaultValue = "ndjson") String format,
+                                                                 Principal principal) {
+        TransferExportWriter.Format exportFormat = TransferExportWriter.Format.fromName(format);
+        if (exportFormat == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The format must be ndjson or csv.");
+        }
+
+        // Only the caller's own history can be exported; userId is optional and has to be theirs if given
+        int callerId = currentUserId(principal);
+        if (userId != null && userId != callerId) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can only export your own transfers.");
+        }
+
+        // Rows are written to the response while the database cursor is still reading them
+        StreamingResponseBody body = out -> {
+            TransferExportWriter writer = new TransferExportWriter(exportFormat, out, objectMapper);
+            writer.writeHeader();
+            dao.exportTransfers(callerId, writer::write);
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transfers-" + callerId + "." + exportFormat.getFileExtension() + "\"")
+                .body(body);
+    }
+
+    // Pushes the caller's transfer events as they commit, instead of them polling for pending requests
+    @RequestMapping(path = "/transfers/events", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransferEvents(Principal principal) {
+        return transferEventStreams.open(currentUserId(principal));
     }
 
     @RequestMapping(path = "/transfers/{id}", method = RequestMethod.GET)
@@ -105,41 +258,92 @@ public class TenmoController {
     public boolean updateTransferById(@PathVariable("id") int transferId, @RequestParam String status){
         Transfer transfer = dao.retrieveTransferById(transferId);
 
-        if (status.equals("Approved")) {
+        if (status.equals(TransferStatus.APPROVED.getDescription())) {
             // Validate balance
             boolean canTransfer = dao.validateTransfer(transfer);
             if (!canTransfer) {
+                transferMetrics.recordInsufficientFunds(TransferMetrics.Source.APPROVAL);
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not enough money in the account to send.");
             }
 
-            // Updating both accounts' balances
-            boolean wasUpdated = dao.updateAccountBalances(transfer);
-            if (!wasUpdated) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Account balances were not updated successfully.");
+            try {
+                approveTransfer(transfer);
+            } catch (RuntimeException e) {
+                transferMetrics.recordFailed(TransferMetrics.Source.APPROVAL);
+                throw e;
             }
-
-            // Updating transfer status in database
-            transfer.setStatus("Approved");
-            int rowsAffected = dao.updateTransferStatus(transfer);
-            if (rowsAffected == 0) {
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unable to locate transfer in database,.");
-            }
-
+            transferMetrics.recordSent(TransferMetrics.Source.APPROVAL);
+            publish(TransferEvent.Type.APPROVED, transfer);
             return true;
         }
 
-        else if (status.equals("Rejected")) {
+        else if (status.equals(TransferStatus.REJECTED.getDescription())) {
             // Updating transfer status in database.
-            transfer.setStatus("Rejected");
+            transfer.setTransferStatus(TransferStatus.REJECTED);
             int rowsAffected = dao.updateTransferStatus(transfer);
             if (rowsAffected == 0) {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unable to locate transfer in database,.");
             }
 
+            publish(TransferEvent.Type.REJECTED, transfer);
             return true;
         }
 
         return false;
     }
 
+    private void approveTransfer(Transfer transfer) {
+        // Updating both accounts' balances and the transfer's status together, trying again if another transfer
+        // changed one of the accounts first
+        boolean wasUpdated;
+        try {
+            wasUpdated = optimisticRetry.execute(() -> dao.approveTransfer(transfer));
+        } catch (AccountVersionConflictException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The accounts are busy with other transfers, please try again.");
+        } catch (TransferNotPendingException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "This request has already been approved or rejected.");
+        }
+        if (!wasUpdated) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Account balances were not updated successfully.");
+        }
+        transfer.setTransferStatus(TransferStatus.APPROVED);
+    }
+
+    private int currentUserId(Principal principal) {
+        User user = userDao.getUserByUsername(principal.getName());
+        if (user == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User was not found for that Username");
+        }
+        return user.getId();
+    }
+
+    // True unless gzip is missing from Accept-Encoding or refused with q=0
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0{0,3})?");
+            }
+        }
+        return false;
+    }
+
+    // The DAO has committed by the time it returns. Sends and requests come from the request body, so the names
+    // the stream shows are filled in from the user list.
+    private void publish(TransferEvent.Type type, Transfer transfer) {
+        String senderUsername = transfer.getSenderUsername();
+        String recipientUsername = transfer.getRecipientUsername();
+        if (senderUsername == null || recipientUsername == null) {
+            UserDirectory.Snapshot users = userDirectory.snapshot();
+            senderUsername = senderUsername != null ? senderUsername : users.getUsername(transfer.getSenderId());
+            recipientUsername = recipientUsername != null ? recipientUsername : users.getUsername(transfer.getRecipientId());
+        }
+        transferEvents.publish(new TransferEvent(type, new Transfer(transfer.getTransferId(), transfer.getSenderId(),
+                transfer.getRecipientId(), transfer.getAmount(), transfer.getType(), transfer.getStatus(),
+                senderUsername, recipientUsername)));
+    }
+
 }
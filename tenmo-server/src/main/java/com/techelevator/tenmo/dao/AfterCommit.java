@@ -0,0 +1,28 @@
+package com.techelevator.tenmo.dao;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs an update to an in-memory copy of the data once the database change behind it is visible to other
+ * connections: after the surrounding transaction commits, or straight away when the statement ran on its own in
+ * autocommit. Nothing runs if the transaction rolls back.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.techelevator.tenmo.dao;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Account balances by user id for GET /accounts, along with the user id each username belongs to.
+ *
+ * Balances are never updated in place, only invalidated once the transaction that changed them has committed (see
+ * JdbcTransferDao). A load that read the balance just before such a commit can't leave it behind either: a load is
+ * cached as a pending future, so invalidating the key removes it even while it's still running, and the next read
+ * loads again. The load runs on the reading thread outside of any cache lock, so an invalidation never waits on the
+ * database. Entries also expire after the TTL, which bounds how long a change made outside this server instance can
+ * go unseen.
+ *
+ * Hit and miss counts are published as the cache.gets metric with cache=balances.
+ */
+@Component
+public class BalanceCache {
+
+    private final AsyncCache<Integer, BigDecimal> balances;
+    private final Cache<String, Integer> userIds;
+
+    @Autowired
+    public BalanceCache(MeterRegistry registry,
+                        @Value("${tenmo.cache.balances.maximum-size:10000}") long maximumSize,
+                        @Value("${tenmo.cache.balances.ttl-seconds:30}") long ttlSeconds) {
+        this.balances = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        // Usernames never move to another user, so these only need to be bounded
+        this.userIds = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        if (registry != null) {
+            CaffeineCacheMetrics.monitor(registry, balances.synchronous(), "balances");
+        }
+    }
+
+    private BalanceCache() {
+        this.balances = null;
+        this.userIds = null;
+    }
+
+    /**
+     * A cache that holds nothing, so every balance is read from the database.
+     */
+    public static BalanceCache disabled() {
+        return new BalanceCache();
+    }
+
+    public Integer getUserId(String username) {
+        return userIds == null ? null : userIds.getIfPresent(username.toLowerCase(Locale.ROOT));
+    }
+
+    public void putUserId(String username, int userId) {
+        if (userIds != null) {
+            userIds.put(username.toLowerCase(Locale.ROOT), userId);
+        }
+    }
+
+    /**
+     * Returns the cached balance, or loads it on this thread. Readers arriving while it loads wait for the same load.
+     * A null from the loader (no account) isn't cached.
+     */
+    @SuppressWarnings("unchecked")
+    public BigDecimal getBalance(int userId, Function<Integer, BigDecimal> loader) {
+        if (balances == null) {
+            return loader.apply(userId);
+        }
+
+        CompletableFuture<BigDecimal>[] created = new CompletableFuture[1];
+        CompletableFuture<BigDecimal> balance = balances.get(userId, (id, executor) -> created[0] = new CompletableFuture<>());
+        if (created[0] != null) {
+            try {
+                BigDecimal loaded = loader.apply(userId);
+                created[0].complete(loaded);
+                return loaded;
+            } catch (RuntimeException e) {
+                created[0].completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return balance.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    public void invalidate(Collection<Integer> changedUserIds) {
+        if (balances != null) {
+            balances.synchronous().invalidateAll(changedUserIds);
+        }
+    }
+}
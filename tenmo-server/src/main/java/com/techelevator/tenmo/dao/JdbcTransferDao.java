@@ -1,44 +1,107 @@
 package com.techelevator.tenmo.dao;
 
+import com.techelevator.tenmo.exception.AccountVersionConflictException;
 import com.techelevator.tenmo.exception.DaoException;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
 import com.techelevator.tenmo.model.Account;
 import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.TransferResult;
+import com.techelevator.tenmo.model.TransferStatus;
 import com.techelevator.tenmo.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.sql.DataSource;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @Component
+@ConditionalOnProperty(name = "tenmo.transfers.engine", havingValue = "jdbc", matchIfMissing = true)
 public class JdbcTransferDao implements TransferDao{
 
+    // Every transfer read selects TransferRowMapper.COLUMNS from t joined to the accounts and users on both sides
+    private static final String USER_JOINS = "JOIN account AS af ON t.account_from = af.account_id " +
+            "JOIN account AS at ON t.account_to = at.account_id " +
+            "JOIN tenmo_user AS tuf ON af.user_id = tuf.user_id " +
+            "JOIN tenmo_user AS tut ON at.user_id = tut.user_id ";
+
+    private static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> {
+        User user = new User();
+        user.setId(rs.getInt(1));
+        user.setUsername(rs.getString(2));
+        return user;
+    };
+
     private final JdbcTemplate jdbcTemplate;
+    private final TransferLookups lookups;
+    private final TransferRowMapper transferRowMapper;
+    private final BalanceCache balanceCache;
+
+    // Number of statements sent to the database per JDBC batch when applying a batch of transfers
+    @Value("${tenmo.transfers.batch-chunk-size:500}")
+    private int batchChunkSize = 500;
+
+    // Number of rows the export cursor pulls from the database at a time
+    @Value("${tenmo.transfers.export-fetch-size:1000}")
+    private int exportFetchSize = 1000;
 
     public JdbcTransferDao(JdbcTemplate jdbcTemplate){
+        this(jdbcTemplate, BalanceCache.disabled());
+    }
+
+    @Autowired
+    public JdbcTransferDao(JdbcTemplate jdbcTemplate, BalanceCache balanceCache){
         this.jdbcTemplate = jdbcTemplate;
+        this.lookups = TransferLookups.load(jdbcTemplate);
+        this.transferRowMapper = new TransferRowMapper(lookups);
+        this.balanceCache = balanceCache;
     }
 
+    // Always reads the primary, unlike the other reads: a balance loaded from a lagging replica would be cached
+    // after the invalidation that was meant to replace it
     @Override
     public Account retrieveAccountBalance(String username) {
-        Account account = null;
-        String sql = "SELECT balance FROM account " +
+        BigDecimal balance;
+        // The first call for a username also learns its user id, which is what balances are cached and invalidated by
+        String sql = "SELECT account.user_id, balance FROM account " +
                 "JOIN tenmo_user ON account.user_id = tenmo_user.user_id " +
-                "WHERE username ILIKE ?";
+                "WHERE lower(username) = lower(?)";
 
         try {
-            SqlRowSet result = jdbcTemplate.queryForRowSet(sql, username);
-            if (result.next()){
-                account = mapRowToAccount(result);
+            Integer userId = balanceCache.getUserId(username);
+            if (userId != null) {
+                balance = balanceCache.getBalance(userId, this::loadBalance);
+            } else {
+                List<BigDecimal> balances = jdbcTemplate.query(sql, (rs, rowNum) -> {
+                    balanceCache.putUserId(username, rs.getInt(1));
+                    return rs.getBigDecimal(2);
+                }, username);
+                balance = balances.isEmpty() ? null : balances.get(0);
             }
         } catch (Exception e){
             throw new DaoException("Unable to reach database or account was not found", e);
         }
 
-        return account;
+        return balance == null ? null : new Account(balance);
     }
 
     @Override
@@ -47,9 +110,9 @@ public class JdbcTransferDao implements TransferDao{
         String sql = "SELECT balance FROM account WHERE user_id = ?";
 
         try {
-            SqlRowSet result = jdbcTemplate.queryForRowSet(sql, transfer.getSenderId());
-            if (result.next()) {
-                balance = result.getBigDecimal("balance");
+            List<BigDecimal> balances = jdbcTemplate.queryForList(sql, BigDecimal.class, transfer.getSenderId());
+            if (!balances.isEmpty()) {
+                balance = balances.get(0);
             }
             if (balance.compareTo(transfer.getAmount()) >= 0){
                 return true;
@@ -65,14 +128,14 @@ public class JdbcTransferDao implements TransferDao{
     public Transfer createTransfer(Transfer transfer) {
 
         String createSQL = "INSERT INTO transfer (transfer_type_id, transfer_status_id, account_from, account_to, amount) " +
-                "VALUES ((SELECT transfer_type_id FROM transfer_type WHERE transfer_type_desc ILIKE ?)," +
-                "(SELECT transfer_status_id FROM transfer_status WHERE transfer_status_desc ILIKE ?), " +
+                "VALUES (?, ?, " +
                 "(SELECT account_id FROM account WHERE user_id = ?), " +
                 "(SELECT account_id FROM account WHERE user_id = ?), " +
                 "?) RETURNING transfer_id";
 
         try {
-            int transferID = jdbcTemplate.queryForObject(createSQL, int.class, transfer.getType(), transfer.getStatus(),
+            int transferID = jdbcTemplate.queryForObject(createSQL, int.class,
+                    lookups.typeId(transfer.getType()), lookups.statusId(transfer.getStatus()),
                     transfer.getSenderId(), transfer.getRecipientId(), transfer.getAmount());
             transfer.setTransferId(transferID);
         } catch (Exception e) {
@@ -82,55 +145,213 @@ public class JdbcTransferDao implements TransferDao{
         return transfer;
     }
 
+    @Override
+    public Transfer sendTransfer(Transfer transfer) {
+        // Locks both accounts in account_id order so opposing sends can't deadlock, then debits the sender
+        // (only if the balance covers the amount), credits the recipient and inserts the transfer in one statement.
+        // Returns null when nothing was applied, i.e. insufficient funds or a missing account.
+        String sendSql = "WITH locked AS (" +
+                    "SELECT account_id FROM account WHERE user_id IN (?, ?) ORDER BY account_id FOR UPDATE" +
+                "), debit AS (" +
+                    "UPDATE account SET balance = balance - ?, version = version + 1 " +
+                    "WHERE user_id = ? AND balance >= ? AND (SELECT COUNT(*) FROM locked) = 2 " +
+                    "RETURNING account_id" +
+                "), credit AS (" +
+                    "UPDATE account SET balance = balance + ?, version = version + 1 " +
+                    "WHERE user_id = ? AND EXISTS (SELECT 1 FROM debit) " +
+                    "RETURNING account_id" +
+                ") " +
+                "INSERT INTO transfer (transfer_type_id, transfer_status_id, account_from, account_to, amount) " +
+                "SELECT ?, ?, debit.account_id, credit.account_id, ? " +
+                "FROM debit, credit RETURNING transfer_id";
+
+        try {
+            List<Integer> transferIds = jdbcTemplate.queryForList(sendSql, Integer.class,
+                    transfer.getSenderId(), transfer.getRecipientId(),
+                    transfer.getAmount(), transfer.getSenderId(), transfer.getAmount(),
+                    transfer.getAmount(), transfer.getRecipientId(),
+                    lookups.typeId(transfer.getType()), lookups.statusId(transfer.getStatus()), transfer.getAmount());
+            if (transferIds.isEmpty()) {
+                return null;
+            }
+            transfer.setTransferId(transferIds.get(0));
+            invalidateBalances(List.of(transfer.getSenderId(), transfer.getRecipientId()));
+        } catch (Exception e) {
+            throw new DaoException("There was an error sending the transfer.", e);
+        }
+
+        return transfer;
+    }
 
     @Override
-    public boolean updateAccountBalances(Transfer transfer) {
-        //  Grabbing initial balance from database SQL
-        String grabBalanceSql = "SELECT balance FROM account WHERE user_id = ?";
+    @Transactional
+    public List<TransferResult> sendTransfers(List<Transfer> transfers) {
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        if (transfers.isEmpty()) {
+            return results;
+        }
+
+        // Every account the batch touches is locked and read in one query, in account_id order so concurrent
+        // batches and sends can't deadlock. Because the rows stay locked until commit, the sends can be applied
+        // in memory and each account is written back only once.
+        String lockSql = "SELECT account_id, user_id, balance FROM account WHERE user_id = ANY(?) ORDER BY account_id FOR UPDATE";
 
-        // Updating account balance SQL
-        String updateBalanceSql = "UPDATE account SET balance = ? WHERE user_id = ?";
+        // Transfer ids are reserved in one round trip so the batched inserts don't have to return them
+        String reserveIdsSql = "SELECT nextval('seq_transfer_id') FROM generate_series(1, ?)";
 
-        int senderAffected = 0;
-        int recipientAffected = 0;
+        String insertSql = "INSERT INTO transfer (transfer_id, transfer_type_id, transfer_status_id, account_from, account_to, amount) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        String updateBalanceSql = "UPDATE account SET balance = ?, version = version + 1 WHERE account_id = ?";
 
         try {
-            BigDecimal senderBalance = new BigDecimal(0);
-            BigDecimal recipientBalance = new BigDecimal(0);
-
-            // SENDER:
-            SqlRowSet result = jdbcTemplate.queryForRowSet(grabBalanceSql, transfer.getSenderId());
-            if (result.next()) {
-                senderBalance = result.getBigDecimal("balance");
-                senderBalance = senderBalance.subtract(transfer.getAmount());
-                senderAffected = jdbcTemplate.update(updateBalanceSql, senderBalance, transfer.getSenderId());
+            Set<Integer> userIds = new HashSet<>();
+            for (Transfer transfer : transfers) {
+                userIds.add(transfer.getSenderId());
+                userIds.add(transfer.getRecipientId());
+            }
+
+            Map<Integer, Integer> accountIds = new HashMap<>();
+            Map<Integer, BigDecimal> balances = new LinkedHashMap<>();
+            jdbcTemplate.query(lockSql,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", userIds.toArray())),
+                    rs -> {
+                        accountIds.put(rs.getInt("user_id"), rs.getInt("account_id"));
+                        balances.put(rs.getInt("user_id"), rs.getBigDecimal("balance"));
+                    });
+
+            // Applying the sends in the order they were submitted, so a payout funded by an earlier one works
+            List<Transfer> applied = new ArrayList<>(transfers.size());
+            Set<Integer> changedUserIds = new HashSet<>();
+            for (Transfer transfer : transfers) {
+                BigDecimal senderBalance = balances.get(transfer.getSenderId());
+                BigDecimal recipientBalance = balances.get(transfer.getRecipientId());
+                transfer.setTransferId(0);
+
+                if (senderBalance == null || recipientBalance == null) {
+                    results.add(TransferResult.failed(transfer, "Account was not found for the sender or recipient."));
+                } else if (senderBalance.compareTo(transfer.getAmount()) < 0) {
+                    results.add(TransferResult.failed(transfer, TransferResult.INSUFFICIENT_FUNDS));
+                } else {
+                    balances.put(transfer.getSenderId(), senderBalance.subtract(transfer.getAmount()));
+                    balances.put(transfer.getRecipientId(), balances.get(transfer.getRecipientId()).add(transfer.getAmount()));
+                    changedUserIds.add(transfer.getSenderId());
+                    changedUserIds.add(transfer.getRecipientId());
+                    applied.add(transfer);
+                    results.add(TransferResult.applied(transfer));
+                }
             }
 
-            // RECIPIENT:
-            result = jdbcTemplate.queryForRowSet(grabBalanceSql, transfer.getRecipientId());
-            if (result.next()) {
-                recipientBalance = result.getBigDecimal("balance");
-                recipientBalance = recipientBalance.add(transfer.getAmount());
-                recipientAffected = jdbcTemplate.update(updateBalanceSql, recipientBalance, transfer.getRecipientId());
+            if (!applied.isEmpty()) {
+                List<Integer> transferIds = jdbcTemplate.queryForList(reserveIdsSql, Integer.class, applied.size());
+                for (int i = 0; i < applied.size(); i++) {
+                    applied.get(i).setTransferId(transferIds.get(i));
+                }
+
+                jdbcTemplate.batchUpdate(insertSql, applied, batchChunkSize, (ps, transfer) -> {
+                    ps.setInt(1, transfer.getTransferId());
+                    ps.setInt(2, lookups.typeId(transfer.getType()));
+                    ps.setInt(3, lookups.statusId(transfer.getStatus()));
+                    ps.setInt(4, accountIds.get(transfer.getSenderId()));
+                    ps.setInt(5, accountIds.get(transfer.getRecipientId()));
+                    ps.setBigDecimal(6, transfer.getAmount());
+                });
+
+                List<Integer> changed = new ArrayList<>(changedUserIds);
+                jdbcTemplate.batchUpdate(updateBalanceSql, changed, batchChunkSize, (ps, userId) -> {
+                    ps.setBigDecimal(1, balances.get(userId));
+                    ps.setInt(2, accountIds.get(userId));
+                });
+                invalidateBalances(changed);
             }
+        } catch (Exception e) {
+            throw new DaoException("There was an error sending the batch of transfers.", e);
+        }
+
+        return results;
+    }
+
+
+    @Override
+    @Transactional
+    public boolean approveTransfer(Transfer transfer) {
+        // Reading both balances along with the version each was read at
+        String grabBalancesSql = "SELECT account_id, user_id, balance, version FROM account WHERE user_id IN (?, ?)";
+
+        // Only writes the new balance if nobody else has changed the account since it was read
+        String updateBalanceSql = "UPDATE account SET balance = ?, version = version + 1 WHERE account_id = ? AND version = ?";
+
+        try {
+            Map<Integer, Integer> accountIds = new HashMap<>(4);
+            // Keyed by account_id so the rows are written in the same order every other writer locks them; two
+            // approvals touching the same accounts then queue instead of deadlocking, and the one that waited
+            // sees a changed version
+            Map<Integer, BigDecimal> balances = new TreeMap<>();
+            Map<Integer, Integer> versions = new HashMap<>(4);
+            jdbcTemplate.query(grabBalancesSql, rs -> {
+                int accountId = rs.getInt(1);
+                accountIds.put(rs.getInt(2), accountId);
+                balances.put(accountId, rs.getBigDecimal(3));
+                versions.put(accountId, rs.getInt(4));
+            }, transfer.getSenderId(), transfer.getRecipientId());
+
+            Integer senderAccountId = accountIds.get(transfer.getSenderId());
+            Integer recipientAccountId = accountIds.get(transfer.getRecipientId());
+            if (senderAccountId == null || recipientAccountId == null
+                    || balances.get(senderAccountId).compareTo(transfer.getAmount()) < 0) {
+                return false;
+            }
+            balances.merge(senderAccountId, transfer.getAmount().negate(), BigDecimal::add);
+            balances.merge(recipientAccountId, transfer.getAmount(), BigDecimal::add);
+
+            for (Map.Entry<Integer, BigDecimal> balance : balances.entrySet()) {
+                // A conflict on the second account rolls back the first along with the transaction
+                if (jdbcTemplate.update(updateBalanceSql, balance.getValue(), balance.getKey(), versions.get(balance.getKey())) == 0) {
+                    throw new AccountVersionConflictException(balance.getKey());
+                }
+            }
+        }
+        catch (AccountVersionConflictException e) {
+            throw e;
         }
         catch (Exception e) {
             throw new DaoException("There was an error with updating the balances.", e);
         }
 
-        return senderAffected == 1 && recipientAffected == 1;
+        // The versions only show that the balances didn't change since they were read, so a second approval of the
+        // same request would pass them; this throwing rolls its balance update back
+        if (markApproved(transfer.getTransferId()) == 0) {
+            throw new TransferNotPendingException(transfer.getTransferId());
+        }
+        invalidateBalances(List.of(transfer.getSenderId(), transfer.getRecipientId()));
+        return true;
+    }
+
+    /**
+     * Sets the request's status to Approved if it is still Pending.
+     *
+     * @return 1 if it was, 0 if it no longer was or doesn't exist
+     */
+    int markApproved(int transferId) {
+        String sql = "UPDATE transfer SET transfer_status_id = ? WHERE transfer_id = ? AND transfer_status_id = ?";
+        try {
+            return jdbcTemplate.update(sql, lookups.statusId(TransferStatus.APPROVED), transferId,
+                    lookups.statusId(TransferStatus.PENDING));
+        } catch (Exception e) {
+            throw new DaoException("There was an error updating the transfer.", e);
+        }
     }
 
+    // Read-only methods may be served by a replica when tenmo.datasource.replica-urls is set. SUPPORTS marks the
+    // scope read-only for the routing DataSource without opening a transaction, and joins the caller's if it has one.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     @Override
     public List<User> retrieveListOfUsers() {
-        List<User> users = new ArrayList<>();
+        List<User> users;
         String sql = "SELECT user_id, username FROM tenmo_user ORDER BY user_id";
 
         try {
-            SqlRowSet results = jdbcTemplate.queryForRowSet(sql);
-            while(results.next()) {
-                users.add(mapRowToUser(results));
-            }
+            users = jdbcTemplate.query(sql, USER_ROW_MAPPER);
         }
         catch (Exception e) {
             throw new DaoException("There was an error fetching the list of users.", e);
@@ -139,94 +360,106 @@ public class JdbcTransferDao implements TransferDao{
         return users;
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     @Override
-    public List<Transfer> retrieveListOfTransfers(int userId) {
-        List<Transfer> transfers = new ArrayList<>();
-        String sql = "SELECT t.transfer_id, tt.transfer_type_desc, ts.transfer_status_desc, t.amount, " +
-                "tuf.username AS sender_username, tut.username AS recipient_username, " +
-                "af.user_id AS sender_id, at.user_id AS recipient_id " +
-                "FROM transfer AS t " +
-                "JOIN transfer_type AS tt ON t.transfer_type_id = tt.transfer_type_id " +
-                "JOIN transfer_status AS ts ON t.transfer_status_id = ts.transfer_status_id " +
-                "JOIN account AS af ON t.account_from = af.account_id " +
-                "JOIN account AS at ON t.account_to = at.account_id " +
-                "JOIN tenmo_user AS tuf ON af.user_id = tuf.user_id " +
-                "JOIN tenmo_user AS tut ON at.user_id = tut.user_id " +
-                "WHERE af.user_id = ? OR at.user_id = ? " +
-                "ORDER BY t.transfer_id";
+    public TransferPage retrieveListOfTransfers(int userId, int afterTransferId, int pageSize) {
+        List<Transfer> transfers;
+        // Each branch walks one of the (account, transfer_id) indexes from the cursor and stops after a page, so a
+        // page costs the same no matter how long the history is. One extra row is fetched to tell if there's more.
+        String sql = "SELECT " + TransferRowMapper.COLUMNS + " " +
+                "FROM (" +
+                    "(SELECT * FROM transfer WHERE account_from = (SELECT account_id FROM account WHERE user_id = ?) " +
+                    "AND transfer_id > ? ORDER BY transfer_id LIMIT ?) " +
+                    "UNION ALL " +
+                    "(SELECT * FROM transfer WHERE account_to = (SELECT account_id FROM account WHERE user_id = ?) " +
+                    "AND transfer_id > ? ORDER BY transfer_id LIMIT ?)" +
+                ") AS t " +
+                USER_JOINS +
+                "ORDER BY t.transfer_id LIMIT ?";
 
         try {
-            SqlRowSet results = jdbcTemplate.queryForRowSet(sql, userId, userId);
-            while (results.next()){
-                transfers.add(mapRowToTransfer(results));
-            }
+            transfers = jdbcTemplate.query(sql, pageExtractor(pageSize), userId, afterTransferId, pageSize + 1,
+                    userId, afterTransferId, pageSize + 1, pageSize + 1);
         } catch (Exception e ) {
             throw new DaoException("There was an error getting transfers.", e);
         }
 
-        return transfers;
+        return toPage(transfers, pageSize);
     }
 
-    public List<Transfer> retrieveListOfPendingTransfers(int userId) {
-        List<Transfer> transfers = new ArrayList<>();
-        String sql = "SELECT t.transfer_id, tt.transfer_type_desc, ts.transfer_status_desc, t.amount, " +
-                "tuf.username AS sender_username, tut.username AS recipient_username, " +
-                "af.user_id AS sender_id, at.user_id AS recipient_id " +
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public TransferPage retrieveListOfPendingTransfers(int userId, int afterTransferId, int pageSize) {
+        List<Transfer> transfers;
+        String sql = "SELECT " + TransferRowMapper.COLUMNS + " " +
                 "FROM transfer AS t " +
-                "JOIN transfer_type AS tt ON t.transfer_type_id = tt.transfer_type_id " +
-                "JOIN transfer_status AS ts ON t.transfer_status_id = ts.transfer_status_id " +
-                "JOIN account AS af ON t.account_from = af.account_id " +
-                "JOIN account AS at ON t.account_to = at.account_id " +
-                "JOIN tenmo_user AS tuf ON af.user_id = tuf.user_id " +
-                "JOIN tenmo_user AS tut ON at.user_id = tut.user_id " +
-                "WHERE af.user_id = ? AND ts.transfer_status_desc ILIKE 'Pending' " +
-                "ORDER BY t.transfer_id";
+                USER_JOINS +
+                "WHERE t.account_from = (SELECT account_id FROM account WHERE user_id = ?) " +
+                "AND t.transfer_status_id = ? AND t.transfer_id > ? " +
+                "ORDER BY t.transfer_id LIMIT ?";
 
         try {
-            SqlRowSet results = jdbcTemplate.queryForRowSet(sql, userId);
-            while (results.next()) {
-                transfers.add(mapRowToTransfer(results));
-            }
+            transfers = jdbcTemplate.query(sql, pageExtractor(pageSize), userId, lookups.statusId(TransferStatus.PENDING),
+                    afterTransferId, pageSize + 1);
         }
         catch (Exception e) {
             throw  new DaoException("There was a problem with fetching the pending transactions.", e);
         }
 
-        return transfers;
+        return toPage(transfers, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportTransfers(int userId, Consumer<Transfer> consumer) {
+        // Unlike the page queries this doesn't collect the result: with a fetch size inside a transaction the driver
+        // reads the rows through a cursor a batch at a time, so memory stays flat however long the history is
+        String sql = "SELECT " + TransferRowMapper.COLUMNS + " " +
+                "FROM (" +
+                    "SELECT * FROM transfer WHERE account_from = (SELECT account_id FROM account WHERE user_id = ?) " +
+                    "UNION ALL " +
+                    "SELECT * FROM transfer WHERE account_to = (SELECT account_id FROM account WHERE user_id = ?)" +
+                ") AS t " +
+                USER_JOINS +
+                "ORDER BY t.transfer_id";
+
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(exportFetchSize);
+                ps.setInt(1, userId);
+                ps.setInt(2, userId);
+                return ps;
+            }, (RowCallbackHandler) rs -> consumer.accept(transferRowMapper.mapRow(rs, 0)));
+        } catch (UncheckedIOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DaoException("There was an error exporting transfers.", e);
+        }
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Transfer retrieveTransferById(int transferId){
-        Transfer transfer = null;
-        String sql = "SELECT t.transfer_id, tt.transfer_type_desc, ts.transfer_status_desc, t.amount, " +
-                "tuf.username AS sender_username, tut.username AS recipient_username, " +
-                "af.user_id AS sender_id, at.user_id AS recipient_id " +
+        List<Transfer> transfers;
+        String sql = "SELECT " + TransferRowMapper.COLUMNS + " " +
                 "FROM transfer AS t " +
-                "JOIN transfer_type AS tt ON t.transfer_type_id = tt.transfer_type_id " +
-                "JOIN transfer_status AS ts ON t.transfer_status_id = ts.transfer_status_id " +
-                "JOIN account AS af ON t.account_from = af.account_id " +
-                "JOIN account AS at ON t.account_to = at.account_id " +
-                "JOIN tenmo_user AS tuf ON af.user_id = tuf.user_id " +
-                "JOIN tenmo_user AS tut ON at.user_id = tut.user_id " +
+                USER_JOINS +
                 "WHERE t.transfer_id = ?";
         try {
-            SqlRowSet result = jdbcTemplate.queryForRowSet(sql, transferId);
-            if (result.next()) {
-                transfer = mapRowToTransfer(result);
-            }
+            transfers = jdbcTemplate.query(sql, transferRowMapper, transferId);
         } catch (Exception e) {
             throw new DaoException("There was an error locating specific transfer.", e);
         }
 
-        return transfer;
+        return transfers.isEmpty() ? null : transfers.get(0);
     }
 
     public int updateTransferStatus(Transfer transfer){
         int rowsAffected = 0;
         String sql = "UPDATE transfer " +
-                "SET transfer_status_id = (SELECT transfer_status_id FROM transfer_status WHERE transfer_status_desc ILIKE ?) " +
+                "SET transfer_status_id = ? " +
                 "WHERE transfer_id = ?";
         try {
-            rowsAffected = jdbcTemplate.update(sql, transfer.getStatus(), transfer.getTransferId());
+            rowsAffected = jdbcTemplate.update(sql, lookups.statusId(transfer.getStatus()), transfer.getTransferId());
             if (rowsAffected == 0) {
                 throw new DaoException("No rows were updated.");
             }
@@ -237,29 +470,34 @@ public class JdbcTransferDao implements TransferDao{
         return rowsAffected;
     }
 
-    private Account mapRowToAccount(SqlRowSet rowSet){
-        Account account = new Account();
-        account.setBalance(rowSet.getBigDecimal("balance"));
-        return account;
+    // Cached balances are dropped only once the new ones can be read by other connections
+    private void invalidateBalances(List<Integer> userIds) {
+        AfterCommit.run(() -> balanceCache.invalidate(userIds));
     }
 
-    private User mapRowToUser(SqlRowSet rowSet) {
-        User user = new User();
-        user.setId(rowSet.getInt("user_id"));
-        user.setUsername(rowSet.getString("username"));
-        return user;
+    private BigDecimal loadBalance(int userId) {
+        List<BigDecimal> balances = jdbcTemplate.queryForList("SELECT balance FROM account WHERE user_id = ?", BigDecimal.class, userId);
+        return balances.isEmpty() ? null : balances.get(0);
     }
 
-    private Transfer mapRowToTransfer(SqlRowSet rowSet){
-        Transfer transfer = new Transfer();
-        transfer.setTransferId(rowSet.getInt("transfer_id"));
-        transfer.setSenderUsername(rowSet.getString("sender_username"));
-        transfer.setSenderId(rowSet.getInt("sender_id"));
-        transfer.setRecipientId(rowSet.getInt("recipient_id"));
-        transfer.setRecipientUsername(rowSet.getString("recipient_username"));
-        transfer.setAmount(rowSet.getBigDecimal("amount"));
-        transfer.setType(rowSet.getString("transfer_type_desc"));
-        transfer.setStatus(rowSet.getString("transfer_status_desc"));
-        return transfer;
+    // Collects a page plus the one row past it into a list sized for exactly that many
+    private ResultSetExtractor<List<Transfer>> pageExtractor(int pageSize) {
+        return rs -> {
+            List<Transfer> transfers = new ArrayList<>(pageSize + 1);
+            int rowNum = 0;
+            while (rs.next()) {
+                transfers.add(transferRowMapper.mapRow(rs, rowNum++));
+            }
+            return transfers;
+        };
+    }
+
+    // Drops the extra row fetched past the page and, if there was one, points the cursor at the last row kept
+    private TransferPage toPage(List<Transfer> transfers, int pageSize) {
+        if (transfers.size() <= pageSize) {
+            return new TransferPage(transfers, null);
+        }
+        transfers.remove(pageSize);
+        return new TransferPage(transfers, transfers.get(pageSize - 1).getTransferId());
     }
 }
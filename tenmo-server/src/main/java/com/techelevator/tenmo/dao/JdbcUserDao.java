@@ -1,54 +1,79 @@
 package com.techelevator.tenmo.dao;
 
 import com.techelevator.tenmo.exception.DaoException;
-import com.techelevator.tenmo.model.RegisterUserDto;
 import com.techelevator.tenmo.model.User;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 @Component
 public class JdbcUserDao implements UserDao {
 
     private static final BigDecimal STARTING_BALANCE = new BigDecimal("1000.00");
+
+    // Reads user_id, username and password_hash by position, in that order
+    private static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> {
+        User user = new User();
+        user.setId(rs.getInt(1));
+        user.setUsername(rs.getString(2));
+        user.setPassword(rs.getString(3));
+        user.setActivated(true);
+        user.setAuthorities("USER");
+        return user;
+    };
+
     private final JdbcTemplate jdbcTemplate;
+    private final UserDirectory userDirectory;
 
     public JdbcUserDao(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, null);
+    }
+
+    @Autowired
+    public JdbcUserDao(JdbcTemplate jdbcTemplate, UserDirectory userDirectory) {
         this.jdbcTemplate = jdbcTemplate;
+        this.userDirectory = userDirectory;
     }
 
+    // May be served by a replica (see JdbcTransferDao). getUserByUsername stays on the primary so a user can log in
+    // as soon as they've registered.
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     @Override
     public User getUserById(int userId) {
-        User user = null;
+        List<User> users;
         String sql = "SELECT user_id, username, password_hash FROM tenmo_user WHERE user_id = ?";
         try {
-            SqlRowSet results = jdbcTemplate.queryForRowSet(sql, userId);
-            if (results.next()) {
-                user = mapRowToUser(results);
-            }
+            users = jdbcTemplate.query(sql, USER_ROW_MAPPER, userId);
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
         }
-        return user;
+        return users.isEmpty() ? null : users.get(0);
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     @Override
     public List<User> getUsers() {
-        List<User> users = new ArrayList<>();
+        List<User> users;
         String sql = "SELECT user_id, username, password_hash FROM tenmo_user";
         try {
-            SqlRowSet results = jdbcTemplate.queryForRowSet(sql);
-            while (results.next()) {
-                User user = mapRowToUser(results);
-                users.add(user);
-            }
+            users = jdbcTemplate.query(sql, USER_ROW_MAPPER);
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
         }
@@ -58,48 +83,103 @@ public class JdbcUserDao implements UserDao {
     @Override
     public User getUserByUsername(String username) {
         if (username == null) throw new IllegalArgumentException("Username cannot be null");
-        User user = null;
+        List<User> users;
         String sql = "SELECT user_id, username, password_hash FROM tenmo_user WHERE username = ?;";
         try {
-            SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, username);
-            if (rowSet.next()) {
-                user = mapRowToUser(rowSet);
-            }
+            users = jdbcTemplate.query(sql, USER_ROW_MAPPER, username);
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
         }
-        return user;
+        return users.isEmpty() ? null : users.get(0);
     }
 
     @Override
-    public User createUser(RegisterUserDto user) {
-        User newUser = null;
-        // create user
-        String sql = "INSERT INTO tenmo_user (username, password_hash) VALUES (?, ?) RETURNING user_id";
-        String password_hash = new BCryptPasswordEncoder().encode(user.getPassword());
+    public User createUser(String username, String passwordHash) {
+        if (passwordHash == null) throw new IllegalArgumentException("Password hash cannot be null");
+        List<User> users;
+        // Creates the user and their account in one statement, so there's never a user without an account
+        String sql = "WITH new_user AS (" +
+                    "INSERT INTO tenmo_user (username, password_hash) VALUES (?, ?) " +
+                    "RETURNING user_id, username, password_hash" +
+                "), new_account AS (" +
+                    "INSERT INTO account (user_id, balance) SELECT user_id, ? FROM new_user" +
+                ") " +
+                "SELECT user_id, username, password_hash FROM new_user";
         try {
-            int newUserId = jdbcTemplate.queryForObject(sql, int.class, user.getUsername(), password_hash);
-            newUser = getUserById(newUserId);
-            if (newUser != null) {
-                // create account
-                sql = "INSERT INTO account (user_id, balance) VALUES (?, ?)";
-                jdbcTemplate.update(sql, newUserId, STARTING_BALANCE);
-            }
+            users = jdbcTemplate.query(sql, USER_ROW_MAPPER, username, passwordHash, STARTING_BALANCE);
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
         } catch (DataIntegrityViolationException e) {
             throw new DaoException("Data integrity violation", e);
         }
+
+        User newUser = users.isEmpty() ? null : users.get(0);
+        if (newUser != null && userDirectory != null) {
+            AfterCommit.run(() -> userDirectory.add(newUser.getId(), newUser.getUsername()));
+        }
         return newUser;
     }
 
-    private User mapRowToUser(SqlRowSet rs) {
-        User user = new User();
-        user.setId(rs.getInt("user_id"));
-        user.setUsername(rs.getString("username"));
-        user.setPassword(rs.getString("password_hash"));
-        user.setActivated(true);
-        user.setAuthorities("USER");
-        return user;
+    @Override
+    public int importUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return 0;
+        }
+
+        // The batch is streamed into a temporary table with COPY, then moved into tenmo_user and account by one
+        // statement. Usernames that are already taken, or repeated in the batch, are skipped.
+        String stagingSql = "CREATE TEMPORARY TABLE IF NOT EXISTS user_import (username varchar(50), password_hash varchar(200))";
+        String copySql = "COPY user_import (username, password_hash) FROM STDIN WITH (FORMAT csv)";
+        String insertSql = "WITH new_users AS (" +
+                    "INSERT INTO tenmo_user (username, password_hash) " +
+                    "SELECT username, password_hash FROM user_import " +
+                    "ON CONFLICT (username) DO NOTHING RETURNING user_id" +
+                "), new_accounts AS (" +
+                    "INSERT INTO account (user_id, balance) SELECT user_id, ? FROM new_users" +
+                ") " +
+                "SELECT COUNT(*) FROM new_users";
+
+        StringBuilder csv = new StringBuilder(users.size() * 80);
+        for (User user : users) {
+            appendCsvField(csv, user.getUsername()).append(',');
+            appendCsvField(csv, user.getPassword()).append('\n');
+        }
+
+        int imported;
+        try {
+            // A temporary table only exists in the session that made it, so every step runs on this one connection
+            imported = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(stagingSql);
+                    statement.execute("TRUNCATE user_import");
+                }
+                try {
+                    connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql, new StringReader(csv.toString()));
+                } catch (IOException e) {
+                    throw new SQLException("Could not send the users to the database", e);
+                }
+                try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                    insert.setBigDecimal(1, STARTING_BALANCE);
+                    try (ResultSet rs = insert.executeQuery()) {
+                        rs.next();
+                        return rs.getInt(1);
+                    }
+                }
+            });
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataAccessException e) {
+            throw new DaoException("Unable to import users", e);
+        }
+
+        if (userDirectory != null) {
+            // Too many users to add one by one, the directory reads them all on the next request
+            AfterCommit.run(userDirectory::invalidate);
+        }
+        return imported;
+    }
+
+    private static StringBuilder appendCsvField(StringBuilder csv, String value) {
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
     }
 }
@@ -0,0 +1,428 @@
+package com.techelevator.tenmo.dao;
+
+import com.techelevator.tenmo.engine.BalanceEngine;
+import com.techelevator.tenmo.engine.BalanceEngine.AccountBalance;
+import com.techelevator.tenmo.engine.JournalEntry;
+import com.techelevator.tenmo.engine.TransferJournal;
+import com.techelevator.tenmo.exception.DaoException;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
+import com.techelevator.tenmo.model.Account;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.TransferResult;
+import com.techelevator.tenmo.model.TransferStatus;
+import com.techelevator.tenmo.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * TransferDao that keeps balances in memory instead of locking account rows for every transfer. Turned on with
+ * tenmo.transfers.engine=sequenced; JdbcTransferDao is used otherwise.
+ *
+ * Sends and approvals are applied by the {@link BalanceEngine} and acknowledged once they are in the
+ * {@link TransferJournal}. If the journal fails, or takes too long, the transfers it didn't write are never flushed
+ * and the engine stops: its balances may include them, so nothing more is served from memory until a restart
+ * rebuilds them from the database and the journal. A background flush then writes them to the database in batches: the new transfer rows,
+ * the net balance change per account, and the last journal sequence it covered. On startup the balances are loaded
+ * from the account table and every journal entry after that sequence is applied again.
+ *
+ * Everything that doesn't move money (requests, rejections and all reads apart from balances) goes straight to
+ * JdbcTransferDao. Because the transfer rows are written behind, a new send shows up in the transfer history after
+ * the next flush rather than immediately.
+ */
+@Component
+@ConditionalOnProperty(name = "tenmo.transfers.engine", havingValue = "sequenced")
+public class SequencedTransferDao implements TransferDao {
+
+    private static final Logger log = LoggerFactory.getLogger(SequencedTransferDao.class);
+
+    private static final int TRANSFER_ID_BLOCK_SIZE = 100;
+    private static final long JOURNAL_TIMEOUT_SECONDS = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTransferDao jdbcTransferDao;
+    private final TransferLookups lookups;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceEngine engine;
+    private final TransferJournal journal;
+    private final ScheduledExecutorService flusher;
+
+    // Entries that are on disk but not yet in the database, in journal order
+    private final ConcurrentLinkedQueue<JournalEntry> unflushed = new ConcurrentLinkedQueue<>();
+    private final List<JournalEntry> failedFlush = new ArrayList<>();
+    private final Deque<Integer> reservedTransferIds = new ArrayDeque<>();
+
+    public SequencedTransferDao(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                @Value("${tenmo.engine.shards:4}") int shardCount,
+                                @Value("${tenmo.engine.journal-directory:journal}") String journalDirectory,
+                                @Value("${tenmo.engine.flush-interval-ms:200}") long flushIntervalMillis) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbcTransferDao = new JdbcTransferDao(jdbcTemplate);
+        this.lookups = TransferLookups.load(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.engine = new BalanceEngine(shardCount);
+        this.journal = new TransferJournal(Paths.get(journalDirectory));
+
+        long lastSequence = recover();
+        journal.start(lastSequence + 1, unflushed::addAll);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Account retrieveAccountBalance(String username) {
+        checkRunning();
+        String sql = "SELECT user_id FROM tenmo_user WHERE lower(username) = lower(?)";
+        try {
+            List<Integer> userIds = jdbcTemplate.queryForList(sql, Integer.class, username);
+            if (userIds.isEmpty()) {
+                return null;
+            }
+            AccountBalance account = findAccount(userIds.get(0));
+            return account == null ? null : new Account(account.getBalance());
+        } catch (Exception e) {
+            throw new DaoException("Unable to reach database or account was not found", e);
+        }
+    }
+
+    @Override
+    public boolean validateTransfer(Transfer transfer) {
+        checkRunning();
+        AccountBalance sender = findAccount(transfer.getSenderId());
+        return sender != null && sender.getBalance().compareTo(transfer.getAmount()) >= 0;
+    }
+
+    @Override
+    public Transfer createTransfer(Transfer transfer) {
+        return jdbcTransferDao.createTransfer(transfer);
+    }
+
+    @Override
+    public Transfer sendTransfer(Transfer transfer) {
+        int transferId = nextTransferId();
+        CompletableFuture<JournalEntry> durable = apply(JournalEntry.Kind.SEND, transferId, transfer);
+        if (durable == null) {
+            return null;
+        }
+        if (!awaitJournal(durable)) {
+            throw new DaoException("The transfer could not be written to the journal.");
+        }
+        transfer.setTransferId(transferId);
+        return transfer;
+    }
+
+    @Override
+    public List<TransferResult> sendTransfers(List<Transfer> transfers) {
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        List<CompletableFuture<JournalEntry>> pending = new ArrayList<>(transfers.size());
+        List<Integer> pendingIndexes = new ArrayList<>(transfers.size());
+
+        // Applying in order, then waiting for the journal once so the whole batch shares its fsyncs
+        for (Transfer transfer : transfers) {
+            if (findAccount(transfer.getSenderId()) == null || findAccount(transfer.getRecipientId()) == null) {
+                transfer.setTransferId(0);
+                results.add(TransferResult.failed(transfer, "Account was not found for the sender or recipient."));
+                continue;
+            }
+            int transferId = nextTransferId();
+            CompletableFuture<JournalEntry> durable = apply(JournalEntry.Kind.SEND, transferId, transfer);
+            if (durable == null) {
+                transfer.setTransferId(0);
+                results.add(TransferResult.failed(transfer, TransferResult.INSUFFICIENT_FUNDS));
+            } else {
+                transfer.setTransferId(transferId);
+                results.add(TransferResult.applied(transfer));
+                pending.add(durable);
+                pendingIndexes.add(results.size() - 1);
+            }
+        }
+
+        // Waiting in order, so the whole batch shares its fsyncs; if the journal fails partway only the sends it
+        // wrote count as applied
+        for (int i = 0; i < pending.size(); i++) {
+            if (!awaitJournal(pending.get(i))) {
+                Transfer transfer = results.get(pendingIndexes.get(i)).getTransfer();
+                transfer.setTransferId(0);
+                results.set(pendingIndexes.get(i), TransferResult.failed(transfer, "The transfer could not be written to the journal."));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public boolean approveTransfer(Transfer transfer) {
+        // Claiming the request first holds its row until the money has moved, so a second approval waits and then
+        // finds it no longer pending. The write-behind marks it Approved again, in case this commit is lost after
+        // the entry is on disk.
+        return transactionTemplate.execute(status -> {
+            if (jdbcTransferDao.markApproved(transfer.getTransferId()) == 0) {
+                throw new TransferNotPendingException(transfer.getTransferId());
+            }
+            CompletableFuture<JournalEntry> durable = apply(JournalEntry.Kind.APPROVE, transfer.getTransferId(), transfer);
+            if (durable == null) {
+                status.setRollbackOnly();
+                return false;
+            }
+            if (!awaitJournal(durable)) {
+                throw new DaoException("The transfer could not be written to the journal.");
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public List<User> retrieveListOfUsers() {
+        return jdbcTransferDao.retrieveListOfUsers();
+    }
+
+    @Override
+    public TransferPage retrieveListOfTransfers(int userId, int afterTransferId, int pageSize) {
+        return jdbcTransferDao.retrieveListOfTransfers(userId, afterTransferId, pageSize);
+    }
+
+    @Override
+    public TransferPage retrieveListOfPendingTransfers(int userId, int afterTransferId, int pageSize) {
+        return jdbcTransferDao.retrieveListOfPendingTransfers(userId, afterTransferId, pageSize);
+    }
+
+    @Override
+    public void exportTransfers(int userId, Consumer<Transfer> consumer) {
+        // The cursor only streams inside a transaction, and calls to jdbcTransferDao don't go through Spring's proxy
+        transactionTemplate.executeWithoutResult(status -> jdbcTransferDao.exportTransfers(userId, consumer));
+    }
+
+    @Override
+    public Transfer retrieveTransferById(int transferId) {
+        return jdbcTransferDao.retrieveTransferById(transferId);
+    }
+
+    @Override
+    public int updateTransferStatus(Transfer transfer) {
+        return jdbcTransferDao.updateTransferStatus(transfer);
+    }
+
+    /**
+     * Writes everything the journal holds that the database doesn't yet. Runs on a schedule and on shutdown.
+     */
+    public synchronized void flush() {
+        List<JournalEntry> batch = new ArrayList<>(failedFlush);
+        failedFlush.clear();
+        JournalEntry entry;
+        while ((entry = unflushed.poll()) != null) {
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBehind(batch));
+            journal.markFlushed(batch.get(batch.size() - 1).getSequence());
+        } catch (Exception e) {
+            log.error("Could not flush {} journal entries to the database; retrying on the next flush.", batch.size(), e);
+            failedFlush.addAll(batch);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        flusher.shutdown();
+        engine.close();
+        journal.close();
+        flush();
+    }
+
+    private long recover() {
+        long checkpoint = jdbcTemplate.queryForObject("SELECT last_sequence FROM balance_engine_checkpoint", Long.class);
+        jdbcTemplate.query("SELECT account_id, user_id, balance FROM account",
+                rs -> { engine.load(rs.getInt("account_id"), rs.getInt("user_id"), rs.getBigDecimal("balance")); });
+
+        long lastSequence = checkpoint;
+        int replayed = 0;
+        for (JournalEntry entry : journal.getRecoveredEntries()) {
+            if (entry.getSequence() > checkpoint) {
+                engine.replay(entry);
+                unflushed.add(entry);
+                replayed++;
+            }
+            lastSequence = Math.max(lastSequence, entry.getSequence());
+        }
+        journal.markFlushed(checkpoint);
+
+        log.info("Balance engine recovered from checkpoint {} and replayed {} journal entries.", checkpoint, replayed);
+        return lastSequence;
+    }
+
+    private void writeBehind(List<JournalEntry> batch) {
+        // A journal can outlive an instance that already flushed part of it, so entries at or below the stored
+        // checkpoint are skipped. Locking the checkpoint row also keeps two flushes from interleaving.
+        long checkpoint = jdbcTemplate.queryForObject("SELECT last_sequence FROM balance_engine_checkpoint FOR UPDATE", Long.class);
+
+        List<JournalEntry> sends = new ArrayList<>();
+        List<JournalEntry> approvals = new ArrayList<>();
+        // Keyed by account_id so rows are updated in the same order as every other writer locks them
+        Map<Integer, BigDecimal> balanceChanges = new TreeMap<>();
+        long lastSequence = checkpoint;
+        for (JournalEntry entry : batch) {
+            if (entry.getSequence() <= checkpoint) {
+                continue;
+            }
+            if (entry.getKind() == JournalEntry.Kind.SEND) {
+                sends.add(entry);
+            } else {
+                approvals.add(entry);
+            }
+            balanceChanges.merge(engine.getAccount(entry.getSenderUserId()).getAccountId(), entry.getAmount().negate(), BigDecimal::add);
+            balanceChanges.merge(engine.getAccount(entry.getRecipientUserId()).getAccountId(), entry.getAmount(), BigDecimal::add);
+            lastSequence = entry.getSequence();
+        }
+        if (lastSequence == checkpoint) {
+            return;
+        }
+
+        String insertSql = "INSERT INTO transfer (transfer_id, transfer_type_id, transfer_status_id, account_from, account_to, amount) " +
+                "VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (transfer_id) DO NOTHING";
+        if (!sends.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertSql, sends, sends.size(), (ps, send) -> {
+                ps.setInt(1, send.getTransferId());
+                ps.setInt(2, lookups.typeId(send.getType()));
+                ps.setInt(3, lookups.statusId(send.getStatus()));
+                ps.setInt(4, engine.getAccount(send.getSenderUserId()).getAccountId());
+                ps.setInt(5, engine.getAccount(send.getRecipientUserId()).getAccountId());
+                ps.setBigDecimal(6, send.getAmount());
+            });
+        }
+
+        if (!approvals.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE transfer SET transfer_status_id = ? WHERE transfer_id = ?", approvals, approvals.size(), (ps, approval) -> {
+                ps.setInt(1, lookups.statusId(TransferStatus.APPROVED));
+                ps.setInt(2, approval.getTransferId());
+            });
+        }
+
+        List<Map.Entry<Integer, BigDecimal>> changes = new ArrayList<>(balanceChanges.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE account SET balance = balance + ?, version = version + 1 WHERE account_id = ?", changes, changes.size(), (ps, change) -> {
+            ps.setBigDecimal(1, change.getValue());
+            ps.setInt(2, change.getKey());
+        });
+
+        jdbcTemplate.update("UPDATE balance_engine_checkpoint SET last_sequence = ?", lastSequence);
+    }
+
+    /**
+     * Applies the transfer in memory and queues its journal entry.
+     *
+     * @return a future that completes when the entry is on disk, or null if nothing was applied
+     */
+    private CompletableFuture<JournalEntry> apply(JournalEntry.Kind kind, int transferId, Transfer transfer) {
+        checkRunning();
+        AccountBalance sender = findAccount(transfer.getSenderId());
+        AccountBalance recipient = findAccount(transfer.getRecipientId());
+        if (sender == null || recipient == null) {
+            return null;
+        }
+
+        JournalEntry entry = new JournalEntry(kind, transferId, transfer.getSenderId(), transfer.getRecipientId(),
+                transfer.getAmount(), transfer.getType(), transfer.getStatus());
+        List<CompletableFuture<JournalEntry>> durable = new ArrayList<>(1);
+        try {
+            boolean applied = engine.transfer(sender, recipient, transfer.getAmount(), () -> durable.add(journal.append(entry)));
+            return applied ? durable.get(0) : null;
+        } catch (IllegalStateException e) {
+            throw new DaoException("There was an error applying the transfer.", e);
+        }
+    }
+
+    private AccountBalance findAccount(int userId) {
+        AccountBalance account = engine.getAccount(userId);
+        if (account != null) {
+            return account;
+        }
+
+        // Accounts created after startup are loaded the first time they are used
+        String sql = "SELECT account_id, balance FROM account WHERE user_id = ?";
+        try {
+            List<AccountBalance> loaded = jdbcTemplate.query(sql,
+                    (rs, rowNum) -> engine.load(rs.getInt("account_id"), userId, rs.getBigDecimal("balance")), userId);
+            return loaded.isEmpty() ? null : loaded.get(0);
+        } catch (Exception e) {
+            throw new DaoException("Was not able to get account balance", e);
+        }
+    }
+
+    private int nextTransferId() {
+        synchronized (reservedTransferIds) {
+            if (reservedTransferIds.isEmpty()) {
+                String sql = "SELECT nextval('seq_transfer_id') FROM generate_series(1, ?)";
+                try {
+                    reservedTransferIds.addAll(jdbcTemplate.queryForList(sql, Integer.class, TRANSFER_ID_BLOCK_SIZE));
+                } catch (Exception e) {
+                    throw new DaoException("Was not able to reserve transfer ids", e);
+                }
+            }
+            return reservedTransferIds.pollFirst();
+        }
+    }
+
+    private void checkRunning() {
+        if (!journal.isRunning()) {
+            throw new DaoException("The transfer journal has stopped; balances are unavailable until the server restarts.");
+        }
+    }
+
+    /**
+     * @return true once the entry is on disk, false if the journal failed without writing it
+     */
+    private boolean awaitJournal(CompletableFuture<JournalEntry> durable) {
+        try {
+            try {
+                durable.get(JOURNAL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // Giving up on just this entry would let later ones that spent its money be written, so the journal
+                // stops instead; the entry is then either already being written or never will be
+                log.error("The transfer journal took over {} s to write an entry; stopping it.", JOURNAL_TIMEOUT_SECONDS);
+                journal.fail(new IOException("Timed out writing the transfer journal."));
+                durable.get(JOURNAL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DaoException("Interrupted while writing the transfer journal.");
+        } catch (TimeoutException e) {
+            throw new DaoException("The transfer journal is not answering; whether the transfer was written is unknown.", e);
+        }
+    }
+}
@@ -2,9 +2,12 @@ package com.techelevator.tenmo.dao;
 
 import com.techelevator.tenmo.model.Account;
 import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.TransferResult;
 import com.techelevator.tenmo.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TransferDao {
 
@@ -14,13 +17,31 @@ public interface TransferDao {
 
     Transfer createTransfer(Transfer transfer);
 
-    boolean updateAccountBalances(Transfer transfer);
+    Transfer sendTransfer(Transfer transfer);
+
+    List<TransferResult> sendTransfers(List<Transfer> transfers);
+
+    /**
+     * Moves the money for a pending request and marks it Approved, together or not at all.
+     *
+     * @return false if the sender can't cover it
+     * @throws com.techelevator.tenmo.exception.TransferNotPendingException if it was already approved or rejected
+     */
+    boolean approveTransfer(Transfer transfer);
 
     List<User> retrieveListOfUsers();
 
-    List<Transfer> retrieveListOfTransfers(int userId);
+    /**
+     * Returns up to pageSize of the user's transfers with a transfer_id greater than afterTransferId, oldest first.
+     */
+    TransferPage retrieveListOfTransfers(int userId, int afterTransferId, int pageSize);
+
+    TransferPage retrieveListOfPendingTransfers(int userId, int afterTransferId, int pageSize);
 
-    List<Transfer> retrieveListOfPendingTransfers(int userId);
+    /**
+     * Hands every one of the user's transfers to the consumer, oldest first, as they are read from the database.
+     */
+    void exportTransfers(int userId, Consumer<Transfer> consumer);
 
     Transfer retrieveTransferById(int transferId);
 
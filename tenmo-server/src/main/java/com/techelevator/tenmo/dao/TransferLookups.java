@@ -0,0 +1,104 @@
+package com.techelevator.tenmo.dao;
+
+import com.techelevator.tenmo.exception.DaoException;
+import com.techelevator.tenmo.model.TransferStatus;
+import com.techelevator.tenmo.model.TransferType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The transfer_type and transfer_status ids, read once when the DAO is created. The tables are fixed reference data,
+ * so writes can bind the ids directly and reads can map them back without joining either table.
+ */
+public class TransferLookups {
+
+    private final Map<TransferType, Integer> typeIds;
+    private final Map<Integer, TransferType> typesById;
+    private final Map<TransferStatus, Integer> statusIds;
+    private final Map<Integer, TransferStatus> statusesById;
+
+    private TransferLookups(Map<TransferType, Integer> typeIds, Map<TransferStatus, Integer> statusIds) {
+        this.typeIds = Collections.unmodifiableMap(typeIds);
+        this.statusIds = Collections.unmodifiableMap(statusIds);
+
+        Map<Integer, TransferType> typesById = new HashMap<>();
+        typeIds.forEach((type, id) -> typesById.put(id, type));
+        this.typesById = Collections.unmodifiableMap(typesById);
+
+        Map<Integer, TransferStatus> statusesById = new HashMap<>();
+        statusIds.forEach((status, id) -> statusesById.put(id, status));
+        this.statusesById = Collections.unmodifiableMap(statusesById);
+    }
+
+    /**
+     * Builds the lookups from ids that are already known, without reading the tables.
+     */
+    public static TransferLookups of(Map<TransferType, Integer> typeIds, Map<TransferStatus, Integer> statusIds) {
+        return new TransferLookups(new EnumMap<>(typeIds), new EnumMap<>(statusIds));
+    }
+
+    public static TransferLookups load(JdbcTemplate jdbcTemplate) {
+        Map<TransferType, Integer> typeIds = new EnumMap<>(TransferType.class);
+        Map<TransferStatus, Integer> statusIds = new EnumMap<>(TransferStatus.class);
+
+        try {
+            jdbcTemplate.query("SELECT transfer_type_id, transfer_type_desc FROM transfer_type", rs -> {
+                TransferType type = TransferType.fromDescription(rs.getString("transfer_type_desc"));
+                if (type != null) {
+                    typeIds.put(type, rs.getInt("transfer_type_id"));
+                }
+            });
+            jdbcTemplate.query("SELECT transfer_status_id, transfer_status_desc FROM transfer_status", rs -> {
+                TransferStatus status = TransferStatus.fromDescription(rs.getString("transfer_status_desc"));
+                if (status != null) {
+                    statusIds.put(status, rs.getInt("transfer_status_id"));
+                }
+            });
+        } catch (Exception e) {
+            throw new DaoException("Unable to load the transfer types and statuses", e);
+        }
+
+        if (typeIds.size() != TransferType.values().length || statusIds.size() != TransferStatus.values().length) {
+            throw new DaoException("The transfer_type or transfer_status table is missing a row.");
+        }
+        return new TransferLookups(typeIds, statusIds);
+    }
+
+    /**
+     * @throws DaoException if the description doesn't name a transfer type
+     */
+    public int typeId(String description) {
+        TransferType type = TransferType.fromDescription(description);
+        if (type == null) {
+            throw new DaoException("Unknown transfer type: " + description);
+        }
+        return typeIds.get(type);
+    }
+
+    /**
+     * @throws DaoException if the description doesn't name a transfer status
+     */
+    public int statusId(String description) {
+        TransferStatus status = TransferStatus.fromDescription(description);
+        if (status == null) {
+            throw new DaoException("Unknown transfer status: " + description);
+        }
+        return statusIds.get(status);
+    }
+
+    public int statusId(TransferStatus status) {
+        return statusIds.get(status);
+    }
+
+    public TransferType type(int typeId) {
+        return typesById.get(typeId);
+    }
+
+    public TransferStatus status(int statusId) {
+        return statusesById.get(statusId);
+    }
+}
@@ -0,0 +1,40 @@
+package com.techelevator.tenmo.dao;
+
+import com.techelevator.tenmo.model.Transfer;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a row selected with {@link #COLUMNS} to a Transfer, reading the columns by position rather than by name.
+ */
+public class TransferRowMapper implements RowMapper<Transfer> {
+
+    /**
+     * The select list every transfer query uses, with t as transfer, af/at as the sender's and recipient's accounts
+     * and tuf/tut as their users. mapRow depends on this order.
+     */
+    public static final String COLUMNS = "t.transfer_id, t.transfer_type_id, t.transfer_status_id, t.amount, " +
+            "af.user_id AS sender_id, at.user_id AS recipient_id, " +
+            "tuf.username AS sender_username, tut.username AS recipient_username";
+
+    private final TransferLookups lookups;
+
+    public TransferRowMapper(TransferLookups lookups) {
+        this.lookups = lookups;
+    }
+
+    @Override
+    public Transfer mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Transfer(
+                rs.getInt(1),
+                rs.getInt(5),
+                rs.getInt(6),
+                rs.getBigDecimal(4),
+                lookups.type(rs.getInt(2)).getDescription(),
+                lookups.status(rs.getInt(3)).getDescription(),
+                rs.getString(7),
+                rs.getString(8));
+    }
+}
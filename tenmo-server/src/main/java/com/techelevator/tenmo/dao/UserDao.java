@@ -1,6 +1,5 @@
 package com.techelevator.tenmo.dao;
 
-import com.techelevator.tenmo.model.RegisterUserDto;
 import com.techelevator.tenmo.model.User;
 
 import java.util.List;
@@ -13,5 +12,15 @@ public interface UserDao {
 
     User getUserByUsername(String username);
 
-    User createUser(RegisterUserDto user);
+    /**
+     * Creates a user and their account. The password must already be hashed with the PasswordEncoder; it's stored as
+     * given.
+     */
+    User createUser(String username, String passwordHash);
+
+    /**
+     * Creates users, each with an account, from usernames and password hashes already computed (in the password
+     * field). Usernames that are taken are skipped. Returns how many were created.
+     */
+    int importUsers(List<User> users);
 }
@@ -0,0 +1,216 @@
+package com.techelevator.tenmo.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techelevator.tenmo.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The user list served by GET /users, kept already serialized along with a strong ETag of the bytes, so the
+ * endpoint neither queries nor serializes anything and clients holding the current version get a 304. A gzipped
+ * copy is kept too, with its own strong ETag, for clients that accept gzip: Tomcat doesn't compress a response with
+ * a strong ETag, so the list is compressed once here instead of on every request.
+ *
+ * JdbcUserDao adds each user it registers, which appends them to the JSON instead of serializing the whole list
+ * again. The list is also read from the database again once it's older than the reload interval, so users
+ * registered through another server instance show up too.
+ */
+@Component
+public class UserDirectory {
+
+    private final Supplier<List<User>> loader;
+    private final ObjectMapper objectMapper;
+    private final long reloadNanos;
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public UserDirectory(TransferDao transferDao, ObjectMapper objectMapper,
+                         @Value("${tenmo.cache.users.reload-seconds:60}") long reloadSeconds) {
+        this(transferDao::retrieveListOfUsers, objectMapper, reloadSeconds);
+    }
+
+    public UserDirectory(Supplier<List<User>> loader, ObjectMapper objectMapper, long reloadSeconds) {
+        this.loader = loader;
+        this.objectMapper = objectMapper;
+        this.reloadNanos = TimeUnit.SECONDS.toNanos(reloadSeconds);
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null || System.nanoTime() - current.loadedAt > reloadNanos) {
+            current = reload();
+        }
+        return current;
+    }
+
+    /**
+     * Adds a newly registered user. Callers should only do this once the user has been committed.
+     */
+    public synchronized void add(int userId, String username) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Nothing has been served yet, the first request will read the user from the database
+            return;
+        }
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(username);
+
+        // The list is in user_id order, and new users almost always go on the end
+        List<User> users = new ArrayList<>(current.users.size() + 1);
+        users.addAll(current.users);
+        int position = users.size();
+        while (position > 0 && users.get(position - 1).getId() > userId) {
+            position--;
+        }
+        if (position > 0 && users.get(position - 1).getId() == userId) {
+            // Already read from the database by a reload
+            return;
+        }
+        users.add(position, user);
+
+        byte[] json;
+        if (position == current.users.size()) {
+            // Swapping the closing bracket for the new user's JSON
+            byte[] userJson = serialize(user);
+            ByteBuffer appended = ByteBuffer.allocate(current.json.length + userJson.length + 1);
+            appended.put(current.json, 0, current.json.length - 1);
+            if (!current.users.isEmpty()) {
+                appended.put((byte) ',');
+            }
+            json = appended.put(userJson).put((byte) ']').array();
+        } else {
+            json = serialize(users);
+        }
+        snapshot = new Snapshot(users, json, current.loadedAt);
+    }
+
+    /**
+     * Drops the snapshot so the next request reads the list from the database, e.g. after a bulk import.
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private synchronized Snapshot reload() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.loadedAt <= reloadNanos) {
+            // Another request reloaded it while this one waited
+            return current;
+        }
+        List<User> users = loader.get();
+        snapshot = new Snapshot(users, serialize(users), System.nanoTime());
+        return snapshot;
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class Snapshot {
+
+        private final List<User> users;
+        private final byte[] json;
+        private final String eTag;
+        private final byte[] gzippedJson;
+        private final String gzippedETag;
+        private final long loadedAt;
+
+        private Snapshot(List<User> users, byte[] json, long loadedAt) {
+            this.users = Collections.unmodifiableList(users);
+            this.json = json;
+            String digest = digest(json);
+            this.eTag = "\"" + digest + "\"";
+            this.gzippedJson = gzip(json);
+            // Different bytes, so a different strong ETag, but still derived from the list alone
+            this.gzippedETag = "\"" + digest + "-gzip\"";
+            this.loadedAt = loadedAt;
+        }
+
+        public List<User> getUsers() {
+            return users;
+        }
+
+        /**
+         * The serialized user list. Shared by every caller, so it must not be modified.
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * The serialized user list gzipped, to be sent with Content-Encoding: gzip. Shared like getJson().
+         */
+        public byte[] getGzippedJson() {
+            return gzippedJson;
+        }
+
+        public String getGzippedETag() {
+            return gzippedETag;
+        }
+
+        /**
+         * @return the user's name, or null if they aren't in this snapshot
+         */
+        public String getUsername(int userId) {
+            int low = 0;
+            int high = users.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int id = users.get(middle).getId();
+                if (id < userId) {
+                    low = middle + 1;
+                } else if (id > userId) {
+                    high = middle - 1;
+                } else {
+                    return users.get(middle).getUsername();
+                }
+            }
+            return null;
+        }
+
+        private static byte[] gzip(byte[] json) {
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return gzipped.toByteArray();
+        }
+
+        // Derived from the bytes alone, so every server instance gives the same list the same ETag
+        private static String digest(byte[] json) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
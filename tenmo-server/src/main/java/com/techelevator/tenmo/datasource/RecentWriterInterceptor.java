@@ -0,0 +1,42 @@
+package com.techelevator.tenmo.datasource;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.Principal;
+
+/**
+ * Records the user behind every authenticated request that can change data: before the handler runs, so the reads it
+ * makes on the way to the write also see the primary, and again once it finishes, so the window runs from the end of
+ * the write. Logging in isn't a write even though it's a POST, and the user isn't known until it succeeds.
+ */
+public class RecentWriterInterceptor implements HandlerInterceptor {
+
+    private static final String WRITER_ATTRIBUTE = RecentWriterInterceptor.class.getName() + ".writer";
+
+    private final RecentWriters recentWriters;
+
+    public RecentWriterInterceptor(RecentWriters recentWriters) {
+        this.recentWriters = recentWriters;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        Principal principal = request.getUserPrincipal();
+        if (principal != null && !method.equals("GET") && !method.equals("HEAD") && !method.equals("OPTIONS")) {
+            recentWriters.recordWrite(principal.getName());
+            request.setAttribute(WRITER_ATTRIBUTE, principal.getName());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object writer = request.getAttribute(WRITER_ATTRIBUTE);
+        if (writer != null) {
+            recentWriters.recordWrite((String) writer);
+        }
+    }
+}
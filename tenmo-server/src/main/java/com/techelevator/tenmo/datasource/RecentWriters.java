@@ -0,0 +1,46 @@
+package com.techelevator.tenmo.datasource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which users changed data in the last few seconds, so their reads can go to the primary until the
+ * replicas have had time to catch up with what they wrote.
+ */
+public class RecentWriters {
+
+    private final long windowNanos;
+    private final Map<String, Long> deadlines = new ConcurrentHashMap<>();
+
+    public RecentWriters(long windowMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    public void recordWrite(String username) {
+        deadlines.put(username, System.nanoTime() + windowNanos);
+    }
+
+    public boolean isRecentWriter(String username) {
+        if (username == null) {
+            return false;
+        }
+        Long deadline = deadlines.get(username);
+        if (deadline == null) {
+            return false;
+        }
+        if (deadline - System.nanoTime() > 0) {
+            return true;
+        }
+        deadlines.remove(username, deadline);
+        return false;
+    }
+
+    /**
+     * Forgets users whose window has passed without them reading again.
+     */
+    public void removeExpired() {
+        long now = System.nanoTime();
+        deadlines.values().removeIf(deadline -> deadline - now <= 0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.techelevator.tenmo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces Spring Boot's single DataSource with one that routes read-only DAO methods to the replicas listed in
+ * tenmo.datasource.replica-urls. Without that property the server keeps the one pool on spring.datasource.url.
+ *
+ * The pools are built here rather than as beans of their own: Spring Boot initializes every DataSource bean against
+ * the primary one, which would need the pools before they exist.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tenmo.datasource.replica-urls")
+public class ReplicaDataSourceConfig implements WebMvcConfigurer {
+
+    @Value("${tenmo.datasource.read-your-writes-ms:5000}")
+    private long readYourWritesMillis;
+
+    private ReplicaRoutingDataSource router;
+
+    @Bean
+    public RecentWriters recentWriters() {
+        return new RecentWriters(readYourWritesMillis);
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, RecentWriters recentWriters,
+                                 MeterRegistry registry,
+                                 @Value("${tenmo.datasource.replica-urls}") List<String> replicaUrls,
+                                 @Value("${tenmo.datasource.replica-health-check-ms:5000}") long healthCheckMillis,
+                                 @Value("${tenmo.datasource.replica-max-lag-ms:5000}") long maxLagMillis) {
+        HikariDataSource primary = pool(properties, environment, registry, properties.determineUrl(), "primary");
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = pool(properties, environment, registry, url, "replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        router = new ReplicaRoutingDataSource(primary, replicas, recentWriters, healthCheckMillis, maxLagMillis);
+        return new LazyConnectionDataSourceProxy(router);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RecentWriterInterceptor(recentWriters()));
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        if (router != null) {
+            router.close();
+        }
+    }
+
+    // A pool with the primary's credentials and spring.datasource.hikari settings, pointed at the given url. Spring
+    // Boot only publishes hikaricp.* gauges for pools that are beans, so these get theirs here, tagged with the name.
+    private HikariDataSource pool(DataSourceProperties properties, Environment environment, MeterRegistry registry,
+                                  String url, String poolName) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return pool;
+    }
+}
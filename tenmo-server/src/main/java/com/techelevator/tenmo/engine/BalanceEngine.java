@@ -0,0 +1,152 @@
+package com.techelevator.tenmo.engine;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps every account balance in memory and applies transfers on single-writer shards.
+ *
+ * Each account belongs to the shard picked by its account_id, and only that shard's thread ever changes its
+ * balance, so no locks are needed. A transfer between two shards always debits on the sender's shard first and
+ * only then credits on the recipient's shard: money is briefly in flight, but no balance can go negative and two
+ * opposing transfers never wait on each other.
+ */
+public class BalanceEngine implements Closeable {
+
+    private final ExecutorService[] shards;
+    private final Map<Integer, AccountBalance> accountsByUserId = new ConcurrentHashMap<>();
+
+    public BalanceEngine(int shardCount) {
+        shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "balance-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Adds an account loaded from the database. An account that is already in memory is left alone, since its
+     * in-memory balance may include transfers that have not been flushed yet.
+     */
+    public AccountBalance load(int accountId, int userId, BigDecimal balance) {
+        AccountBalance loaded = accountsByUserId.putIfAbsent(userId, new AccountBalance(accountId, userId, balance));
+        return loaded != null ? loaded : accountsByUserId.get(userId);
+    }
+
+    public AccountBalance getAccount(int userId) {
+        return accountsByUserId.get(userId);
+    }
+
+    /**
+     * Moves the amount from sender to recipient if the sender can cover it.
+     *
+     * @param onApplied run right after the credit, on the recipient's shard thread. Because it runs before that
+     *                  shard can spend the credited money, anything it queues is queued before any transfer that
+     *                  depends on this one.
+     * @return true if the transfer was applied, false if the sender did not have enough money
+     */
+    public boolean transfer(AccountBalance sender, AccountBalance recipient, BigDecimal amount, Runnable onApplied) {
+        ExecutorService senderShard = shardFor(sender);
+        ExecutorService recipientShard = shardFor(recipient);
+
+        if (senderShard == recipientShard) {
+            return call(senderShard, () -> {
+                if (!sender.debit(amount)) {
+                    return false;
+                }
+                recipient.credit(amount);
+                onApplied.run();
+                return true;
+            });
+        }
+
+        if (!call(senderShard, () -> sender.debit(amount))) {
+            return false;
+        }
+        return call(recipientShard, () -> {
+            recipient.credit(amount);
+            onApplied.run();
+            return true;
+        });
+    }
+
+    /**
+     * Re-applies a journal entry while rebuilding state at startup, before any shard is in use. The entry was
+     * checked when it was first applied, so it is not checked again.
+     */
+    public void replay(JournalEntry entry) {
+        accountsByUserId.get(entry.getSenderUserId()).credit(entry.getAmount().negate());
+        accountsByUserId.get(entry.getRecipientUserId()).credit(entry.getAmount());
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    private ExecutorService shardFor(AccountBalance account) {
+        return shards[account.getAccountId() % shards.length];
+    }
+
+    private static boolean call(ExecutorService shard, Callable<Boolean> task) {
+        try {
+            return shard.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a balance shard.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A balance shard failed to apply a transfer.", e.getCause());
+        }
+    }
+
+    /**
+     * One account's balance. Only the owning shard thread changes it; any thread may read it.
+     */
+    public static class AccountBalance {
+        private final int accountId;
+        private final int userId;
+        private volatile BigDecimal balance;
+
+        private AccountBalance(int accountId, int userId, BigDecimal balance) {
+            this.accountId = accountId;
+            this.userId = userId;
+            this.balance = balance;
+        }
+
+        public int getAccountId() {
+            return accountId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public BigDecimal getBalance() {
+            return balance;
+        }
+
+        private boolean debit(BigDecimal amount) {
+            if (balance.compareTo(amount) < 0) {
+                return false;
+            }
+            balance = balance.subtract(amount);
+            return true;
+        }
+
+        private void credit(BigDecimal amount) {
+            balance = balance.add(amount);
+        }
+    }
+}
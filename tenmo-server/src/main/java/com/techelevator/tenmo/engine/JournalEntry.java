@@ -0,0 +1,87 @@
+package com.techelevator.tenmo.engine;
+
+import java.math.BigDecimal;
+
+/**
+ * A balance-changing command that was applied by the {@link BalanceEngine}. Entries are written to the
+ * {@link TransferJournal} one per line and get their sequence number when they are written.
+ */
+public class JournalEntry {
+
+    public enum Kind {
+        /** A new send: moves the money and creates the transfer row. */
+        SEND,
+        /** An approved request: moves the money for a transfer row that already exists. */
+        APPROVE
+    }
+
+    private static final String SEPARATOR = ",";
+
+    private long sequence;
+    private final Kind kind;
+    private final int transferId;
+    private final int senderUserId;
+    private final int recipientUserId;
+    private final BigDecimal amount;
+    private final String type;
+    private final String status;
+
+    public JournalEntry(Kind kind, int transferId, int senderUserId, int recipientUserId, BigDecimal amount, String type, String status) {
+        this.kind = kind;
+        this.transferId = transferId;
+        this.senderUserId = senderUserId;
+        this.recipientUserId = recipientUserId;
+        this.amount = amount;
+        this.type = type;
+        this.status = status;
+    }
+
+    public static JournalEntry parse(String line) {
+        String[] fields = line.split(SEPARATOR);
+        JournalEntry entry = new JournalEntry(Kind.valueOf(fields[1]), Integer.parseInt(fields[2]),
+                Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), new BigDecimal(fields[5]), fields[6], fields[7]);
+        entry.setSequence(Long.parseLong(fields[0]));
+        return entry;
+    }
+
+    public String toLine() {
+        return sequence + SEPARATOR + kind + SEPARATOR + transferId + SEPARATOR + senderUserId + SEPARATOR +
+                recipientUserId + SEPARATOR + amount.toPlainString() + SEPARATOR + type + SEPARATOR + status;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getTransferId() {
+        return transferId;
+    }
+
+    public int getSenderUserId() {
+        return senderUserId;
+    }
+
+    public int getRecipientUserId() {
+        return recipientUserId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
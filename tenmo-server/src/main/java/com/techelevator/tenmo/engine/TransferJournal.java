@@ -0,0 +1,349 @@
+package com.techelevator.tenmo.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of applied {@link JournalEntry} commands, split into numbered segment files.
+ *
+ * A single writer thread takes whatever entries are waiting, writes them in one go and fsyncs once for the whole
+ * group, so the cost of the fsync is shared by every transfer that arrived while the previous one was running.
+ * Once the balances a segment describes have been flushed to the database the segment is deleted.
+ *
+ * Each line starts with a CRC32 of the rest, so a record cut off by a crash is recognised and dropped on recovery.
+ * If a write or fsync fails, or the journal is failed because a write is taking too long, nothing after the last
+ * durable group is acknowledged or handed to onDurable, and the journal accepts no more entries.
+ */
+public class TransferJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferJournal.class);
+
+    private static final String SEGMENT_PREFIX = "transfers-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final BlockingQueue<PendingEntry> queue = new LinkedBlockingQueue<>();
+    private final Deque<Segment> closedSegments = new ArrayDeque<>();
+    private final List<JournalEntry> recoveredEntries = new ArrayList<>();
+
+    private Consumer<List<JournalEntry>> onDurable;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile IOException failure;
+    private volatile boolean rollRequested;
+    private volatile long flushedSequence;
+
+    private int segmentIndex;
+    private FileChannel segment;
+    private Path segmentPath;
+    private long nextSequence;
+    private long segmentFirstSequence;
+
+    /**
+     * Opens the journal in the given directory and reads the entries left by the previous run. Nothing is written
+     * until {@link #start(long, Consumer)} is called.
+     */
+    public TransferJournal(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            long lastSequence = recover(path, i == segments.size() - 1);
+            closedSegments.add(new Segment(path, lastSequence));
+            segmentIndex = Math.max(segmentIndex, indexOf(path));
+        }
+    }
+
+    /**
+     * Entries found on disk when the journal was opened, in the order they were written.
+     */
+    public List<JournalEntry> getRecoveredEntries() {
+        return recoveredEntries;
+    }
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param nextSequence the sequence number given to the next entry written
+     * @param onDurable called on the writer thread with each group of entries once it is on disk
+     */
+    public synchronized void start(long nextSequence, Consumer<List<JournalEntry>> onDurable) throws IOException {
+        this.nextSequence = nextSequence;
+        this.onDurable = onDurable;
+        openNextSegment();
+
+        running = true;
+        writer = new Thread(this::writeLoop, "transfer-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an entry for writing. The returned future completes once the entry has been fsynced.
+     */
+    public CompletableFuture<JournalEntry> append(JournalEntry entry) {
+        CompletableFuture<JournalEntry> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(notRunning());
+            return future;
+        }
+        PendingEntry pending = new PendingEntry(entry, future);
+        queue.add(pending);
+        // The writer may have stopped between the check and the add, and then it never takes this entry
+        if (!running && queue.remove(pending)) {
+            future.completeExceptionally(notRunning());
+        }
+        return future;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops the journal without writing anything more: entries still queued fail, and a group already being written
+     * is acknowledged or fails as its write turns out.
+     */
+    public void fail(IOException cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        running = false;
+        failQueued(cause);
+    }
+
+    /**
+     * Records that every entry up to and including the given sequence is now reflected in the database, so the
+     * segments holding only those entries can be deleted.
+     */
+    public void markFlushed(long sequence) {
+        flushedSequence = Math.max(flushedSequence, sequence);
+        rollRequested = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingEntry> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEntry first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (rollRequested) {
+                    rollSegment();
+                }
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("Could not write to the transfer journal; rejecting further transfers.", e);
+                fail(e);
+                for (PendingEntry pending : group) {
+                    pending.future.completeExceptionally(e);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<PendingEntry> group) throws IOException {
+        StringBuilder lines = new StringBuilder(group.size() * 72);
+        List<JournalEntry> entries = new ArrayList<>(group.size());
+        long firstSequence = nextSequence;
+        for (PendingEntry pending : group) {
+            pending.entry.setSequence(nextSequence++);
+            lines.append(frame(pending.entry.toLine())).append('\n');
+            entries.add(pending.entry);
+        }
+
+        long start = segment.size();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(false);
+        } catch (IOException e) {
+            // None of the group is acknowledged, so none of it may be replayed after a restart either
+            nextSequence = firstSequence;
+            try {
+                segment.truncate(start);
+                segment.force(false);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+
+        onDurable.accept(entries);
+        for (PendingEntry pending : group) {
+            pending.future.complete(pending.entry);
+        }
+    }
+
+    private void failQueued(IOException cause) {
+        PendingEntry pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    private IOException notRunning() {
+        return failure != null ? new IOException("The transfer journal stopped after a failure.", failure)
+                : new IOException("The transfer journal is not running.");
+    }
+
+    /**
+     * Reads a segment's entries up to the first record that isn't complete, and cuts that record and anything after
+     * it off the file. Only the last segment can end in a torn write, since every run starts a new one.
+     *
+     * @return the sequence of the last entry kept, or 0 if there is none
+     */
+    private long recover(Path path, boolean lastSegment) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        long lastSequence = 0;
+        int start = 0;
+        while (start < bytes.length) {
+            int end = start;
+            while (end < bytes.length && bytes[end] != '\n') {
+                end++;
+            }
+            String body = end < bytes.length ? unframe(new String(bytes, start, end - start, StandardCharsets.UTF_8)) : null;
+            if (body == null) {
+                if (!lastSegment) {
+                    throw new IOException("Journal segment " + path + " is damaged at byte " + start +
+                            " and is followed by later segments; refusing to replay past it.");
+                }
+                log.warn("Dropping {} bytes of an incomplete record at the end of {}.", bytes.length - start, path);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(start);
+                    channel.force(false);
+                }
+                break;
+            }
+            JournalEntry entry = JournalEntry.parse(body);
+            recoveredEntries.add(entry);
+            lastSequence = entry.getSequence();
+            start = end + 1;
+        }
+        return lastSequence;
+    }
+
+    private static String frame(String body) {
+        return Long.toHexString(checksum(body)) + "," + body;
+    }
+
+    // The record without its checksum, or null if the checksum doesn't match
+    private static String unframe(String line) {
+        int separator = line.indexOf(',');
+        if (separator < 1) {
+            return null;
+        }
+        String body = line.substring(separator + 1);
+        try {
+            return Long.parseLong(line.substring(0, separator), 16) == checksum(body) ? body : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private void rollSegment() throws IOException {
+        rollRequested = false;
+        if (nextSequence > segmentFirstSequence) {
+            segment.close();
+            closedSegments.add(new Segment(segmentPath, nextSequence - 1));
+            openNextSegment();
+        }
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst().lastSequence <= flushedSequence) {
+            Files.deleteIfExists(closedSegments.pollFirst().path);
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentIndex++;
+        segmentPath = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentFirstSequence = nextSequence;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted((a, b) -> Integer.compare(indexOf(a), indexOf(b)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int indexOf(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class PendingEntry {
+        private final JournalEntry entry;
+        private final CompletableFuture<JournalEntry> future;
+
+        private PendingEntry(JournalEntry entry, CompletableFuture<JournalEntry> future) {
+            this.entry = entry;
+            this.future = future;
+        }
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final long lastSequence;
+
+        private Segment(Path path, long lastSequence) {
+            this.path = path;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.techelevator.tenmo.events;
+
+import com.techelevator.tenmo.model.Transfer;
+
+/**
+ * Something that happened to a transfer, pushed to its sender and recipient once it has committed.
+ */
+public class TransferEvent {
+
+    public enum Type {
+        SENT("sent"), REQUESTED("requested"), APPROVED("approved"), REJECTED("rejected");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The name the event is sent under on the event stream.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Type type;
+    private final Transfer transfer;
+
+    public TransferEvent(Type type, Transfer transfer) {
+        this.type = type;
+        this.transfer = transfer;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Transfer getTransfer() {
+        return transfer;
+    }
+}
@@ -0,0 +1,143 @@
+package com.techelevator.tenmo.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands each TransferEvent to the subscriptions of the two users it involves. Every subscription buffers at most
+ * buffer-size events, and publishing never waits for a subscriber: one whose buffer is full is closed instead, so
+ * it gets the events it already has and then its stream ends. A client that reconnects should read its transfers
+ * again for whatever it missed.
+ *
+ * Open subscriptions are published as the tenmo.events.subscribers gauge, and those closed for a full buffer as the
+ * tenmo.events.overflows counter.
+ */
+@Component
+public class TransferEventBus {
+
+    public static final String SUBSCRIBERS_METRIC = "tenmo.events.subscribers";
+    public static final String OVERFLOWS_METRIC = "tenmo.events.overflows";
+
+    private final int bufferSize;
+    private final Map<Integer, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter overflows;
+
+    public TransferEventBus(MeterRegistry registry, @Value("${tenmo.events.buffer-size:64}") int bufferSize) {
+        this.bufferSize = bufferSize;
+        Gauge.builder(SUBSCRIBERS_METRIC, subscriberCount, AtomicInteger::get)
+                .description("Open subscriptions to transfer events")
+                .register(registry);
+        this.overflows = Counter.builder(OVERFLOWS_METRIC)
+                .description("Subscriptions closed because they fell a full buffer behind")
+                .register(registry);
+    }
+
+    /**
+     * @param onEvent run on the publishing thread after each event is buffered, and once more if the subscription
+     *                overflows; it must not block
+     */
+    public Subscription subscribe(int userId, Runnable onEvent) {
+        Subscription subscription = new Subscription(userId, onEvent);
+        subscriptions.compute(userId, (id, userSubscriptions) -> {
+            if (userSubscriptions == null) {
+                userSubscriptions = ConcurrentHashMap.newKeySet();
+            }
+            userSubscriptions.add(subscription);
+            return userSubscriptions;
+        });
+        subscriberCount.incrementAndGet();
+        return subscription;
+    }
+
+    public void publish(TransferEvent event) {
+        int senderId = event.getTransfer().getSenderId();
+        int recipientId = event.getTransfer().getRecipientId();
+        deliver(senderId, event);
+        if (recipientId != senderId) {
+            deliver(recipientId, event);
+        }
+    }
+
+    private void deliver(int userId, TransferEvent event) {
+        Set<Subscription> userSubscriptions = subscriptions.get(userId);
+        if (userSubscriptions != null) {
+            for (Subscription subscription : userSubscriptions) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    public class Subscription implements AutoCloseable {
+
+        private final int userId;
+        private final Runnable onEvent;
+        private final BlockingQueue<TransferEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean overflowed;
+
+        private Subscription(int userId, Runnable onEvent) {
+            this.userId = userId;
+            this.onEvent = onEvent;
+        }
+
+        /**
+         * @return the next buffered event, or null if there is none
+         */
+        public TransferEvent poll() {
+            return buffer.poll();
+        }
+
+        public boolean isEmpty() {
+            return buffer.isEmpty();
+        }
+
+        /**
+         * Whether the subscription was closed because its buffer was full. The events buffered before that can
+         * still be polled.
+         */
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+
+        @Override
+        public void close() {
+            closeOnce();
+        }
+
+        private boolean closeOnce() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            subscriptions.computeIfPresent(userId, (id, userSubscriptions) -> {
+                userSubscriptions.remove(this);
+                return userSubscriptions.isEmpty() ? null : userSubscriptions;
+            });
+            subscriberCount.decrementAndGet();
+            return true;
+        }
+
+        private void offer(TransferEvent event) {
+            if (!buffer.offer(event)) {
+                overflowed = true;
+                // A publisher that got here while another was closing it leaves the signal to that one
+                if (!closeOnce()) {
+                    return;
+                }
+                overflows.increment();
+            }
+            onEvent.run();
+        }
+    }
+}
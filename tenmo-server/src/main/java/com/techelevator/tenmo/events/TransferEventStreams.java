@@ -0,0 +1,144 @@
+package com.techelevator.tenmo.events;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event streams of a user's TransferEvents for GET /transfers/events. A stream doesn't hold a request
+ * thread while it waits: the publisher only buffers the event on the bus, and a few delivery threads write it to the
+ * stream, one write at a time per stream. A stream that falls a full buffer behind is ended (see TransferEventBus).
+ *
+ * Each stream gets a comment when it opens and every heartbeat-seconds after, so proxies don't close it for being
+ * idle and a client that has gone away is noticed. It ends after timeout-minutes; clients reconnect.
+ */
+@Component
+public class TransferEventStreams {
+
+    private final TransferEventBus bus;
+    private final long heartbeatSeconds;
+    private final long timeoutMillis;
+    private final ExecutorService delivery;
+    private final ScheduledExecutorService heartbeats;
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+
+    public TransferEventStreams(TransferEventBus bus,
+                                @Value("${tenmo.events.delivery-threads:2}") int deliveryThreads,
+                                @Value("${tenmo.events.heartbeat-seconds:20}") long heartbeatSeconds,
+                                @Value("${tenmo.events.timeout-minutes:30}") long timeoutMinutes) {
+        this.bus = bus;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.delivery = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "event-delivery-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    public SseEmitter open(int userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Stream stream = new Stream(emitter);
+        stream.subscription = bus.subscribe(userId, stream::schedule);
+        streams.add(stream);
+        emitter.onCompletion(stream::close);
+        emitter.onTimeout(stream::close);
+        emitter.onError(e -> stream.close());
+        // Sends the response headers straight away, so the client knows it's subscribed, and then whatever was
+        // published while the stream was being set up
+        stream.heartbeatDue = true;
+        delivery.execute(stream);
+        return emitter;
+    }
+
+    private void heartbeat() {
+        for (Stream stream : streams) {
+            stream.heartbeatDue = true;
+            stream.schedule();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        for (Stream stream : streams) {
+            stream.close();
+            stream.emitter.complete();
+        }
+        delivery.shutdown();
+    }
+
+    private class Stream implements Runnable {
+
+        private final SseEmitter emitter;
+        // Starts out scheduled, so events published before open() has finished setting it up only get buffered
+        private final AtomicBoolean scheduled = new AtomicBoolean(true);
+        private TransferEventBus.Subscription subscription;
+        private volatile boolean heartbeatDue;
+
+        Stream(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                delivery.execute(this);
+            }
+        }
+
+        // Only one delivery thread runs a stream at a time: whoever sets scheduled runs it, and it checks for work
+        // that arrived after it last looked before letting go
+        @Override
+        public void run() {
+            do {
+                try {
+                    if (heartbeatDue) {
+                        heartbeatDue = false;
+                        emitter.send(SseEmitter.event().comment("heartbeat " + heartbeatSeconds + "s"));
+                    }
+                    TransferEvent event;
+                    while ((event = subscription.poll()) != null) {
+                        emitter.send(SseEmitter.event()
+                                .name(event.getType().getName())
+                                .data(event.getTransfer(), MediaType.APPLICATION_JSON));
+                    }
+                    if (subscription.isOverflowed()) {
+                        close();
+                        emitter.complete();
+                        return;
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away or the stream already ended; the container completes the emitter
+                    close();
+                    return;
+                } finally {
+                    scheduled.set(false);
+                }
+            } while ((heartbeatDue || !subscription.isEmpty()) && scheduled.compareAndSet(false, true));
+        }
+
+        void close() {
+            subscription.close();
+            streams.remove(this);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.techelevator.tenmo.exception;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Thrown when an account row changed between reading its balance and writing the new one back.
+ */
+public class AccountVersionConflictException extends OptimisticLockingFailureException {
+
+    private final int accountId;
+
+    public AccountVersionConflictException(int accountId) {
+        super("Account " + accountId + " was changed by another transfer.");
+        this.accountId = accountId;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.techelevator.tenmo.exception;
+
+/**
+ * Thrown when a request is approved after it stopped being pending, such as by a second approval of the same one.
+ */
+public class TransferNotPendingException extends RuntimeException {
+
+    private final int transferId;
+
+    public TransferNotPendingException(int transferId) {
+        super("Transfer " + transferId + " is no longer pending.");
+        this.transferId = transferId;
+    }
+
+    public int getTransferId() {
+        return transferId;
+    }
+}
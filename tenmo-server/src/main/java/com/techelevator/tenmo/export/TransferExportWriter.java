@@ -0,0 +1,113 @@
+package com.techelevator.tenmo.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techelevator.tenmo.model.Transfer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes transfers to a response one at a time as NDJSON (one JSON object per line) or CSV. Nothing is kept
+ * after a transfer is written apart from what sits in the output buffer.
+ */
+public class TransferExportWriter {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String fileExtension;
+
+        Format(String contentType, String fileExtension) {
+            this.contentType = contentType;
+            this.fileExtension = fileExtension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+
+        /**
+         * @return the format with this name, ignoring case, or null if there is none
+         */
+        public static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final String CSV_HEADER = "transfer_id,type,status,amount,sender_id,sender_username,recipient_id,recipient_username";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Format format;
+    private final Writer writer;
+    private final ObjectMapper objectMapper;
+
+    public TransferExportWriter(Format format, OutputStream out, ObjectMapper objectMapper) {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.objectMapper = objectMapper;
+    }
+
+    public void writeHeader() throws IOException {
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * @throws UncheckedIOException if the client went away, so it can pass through the DAO's row callback
+     */
+    public void write(Transfer transfer) {
+        try {
+            if (format == Format.NDJSON) {
+                writer.write(objectMapper.writeValueAsString(transfer));
+            } else {
+                writer.write(String.valueOf(transfer.getTransferId()));
+                writer.write(',');
+                writer.write(transfer.getType());
+                writer.write(',');
+                writer.write(transfer.getStatus());
+                writer.write(',');
+                writer.write(transfer.getAmount().toPlainString());
+                writer.write(',');
+                writer.write(String.valueOf(transfer.getSenderId()));
+                writer.write(',');
+                writer.write(csvField(transfer.getSenderUsername()));
+                writer.write(',');
+                writer.write(String.valueOf(transfer.getRecipientId()));
+                writer.write(',');
+                writer.write(csvField(transfer.getRecipientUsername()));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,35 @@
+package com.techelevator.tenmo.metrics;
+
+/**
+ * The DAO method running on this thread, as "TransferDao.sendTransfer", so whatever it calls down to (the statements
+ * it sends, in particular) can say where it came from. Set by DaoMetricsPostProcessor around every DAO method.
+ */
+public final class CurrentDaoMethod {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private CurrentDaoMethod() {
+    }
+
+    /**
+     * @return the DAO method running on this thread, or null outside of one
+     */
+    public static String get() {
+        return CURRENT.get();
+    }
+
+    // Returns the method this one was called from, if any, to put back on exit
+    static String enter(String daoMethod) {
+        String caller = CURRENT.get();
+        CURRENT.set(daoMethod);
+        return caller;
+    }
+
+    static void exit(String caller) {
+        if (caller == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(caller);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.techelevator.tenmo.metrics;
+
+import com.techelevator.tenmo.dao.TransferDao;
+import com.techelevator.tenmo.dao.UserDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every TransferDao and UserDao method on the DAO beans as tenmo.dao.calls, tagged with the interface, the
+ * method, and the exception it threw ("none" when it returned). The timing goes in front of the proxy the bean already
+ * has for @Transactional, so it covers getting a connection and committing as well as the statements. While the
+ * method runs, CurrentDaoMethod names it for the statements it sends.
+ *
+ * The registry is looked up on the first call: a post-processor that asked for it up front would create it before
+ * Spring Boot had configured it.
+ */
+@Component
+public class DaoMetricsPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    public static final String METRIC_NAME = "tenmo.dao.calls";
+
+    private static final Class<?>[] DAO_INTERFACES = {TransferDao.class, UserDao.class};
+
+    public DaoMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.advisor = new DefaultPointcutAdvisor(new DaoMethodPointcut(), new TimingInterceptor(registry));
+        setBeforeExistingAdvisors(true);
+        // Ahead of DaoPermitsPostProcessor, which then goes in front of this, so waiting for a permit isn't timed
+        setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+    }
+
+    // The DAO interface that declares the method, or null for methods outside them
+    private static Class<?> daoInterface(Method method) {
+        for (Class<?> daoInterface : DAO_INTERFACES) {
+            if (daoInterface.isAssignableFrom(method.getDeclaringClass())
+                    && ReflectionUtils.findMethod(daoInterface, method.getName(), method.getParameterTypes()) != null) {
+                return daoInterface;
+            }
+        }
+        return null;
+    }
+
+    private static class DaoMethodPointcut extends StaticMethodMatcherPointcut {
+
+        DaoMethodPointcut() {
+            setClassFilter(new ClassFilter() {
+                @Override
+                public boolean matches(Class<?> type) {
+                    for (Class<?> daoInterface : DAO_INTERFACES) {
+                        if (daoInterface.isAssignableFrom(type)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            });
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return daoInterface(method) != null;
+        }
+    }
+
+    private static class TimingInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<MeterRegistry> registryProvider;
+        // The name and the timer for calls that returned are looked up once per method; timers per exception only
+        // on failure
+        private final Map<Method, DaoMethod> daoMethods = new ConcurrentHashMap<>();
+
+        TimingInterceptor(ObjectProvider<MeterRegistry> registryProvider) {
+            this.registryProvider = registryProvider;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            DaoMethod daoMethod = daoMethods.computeIfAbsent(invocation.getMethod(),
+                    method -> new DaoMethod(daoInterface(method).getSimpleName() + "." + method.getName(),
+                            timer(method, "none")));
+            String caller = CurrentDaoMethod.enter(daoMethod.name);
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                daoMethod.returned.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                timer(invocation.getMethod(), e.getClass().getSimpleName())
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            } finally {
+                CurrentDaoMethod.exit(caller);
+            }
+        }
+
+        private Timer timer(Method method, String exception) {
+            return Timer.builder(METRIC_NAME)
+                    .description("Calls to DAO methods")
+                    .tag("dao", daoInterface(method).getSimpleName())
+                    .tag("method", method.getName())
+                    .tag("exception", exception)
+                    .register(registryProvider.getObject());
+        }
+    }
+
+    private static class DaoMethod {
+
+        final String name;
+        final Timer returned;
+
+        DaoMethod(String name, Timer returned) {
+            this.name = name;
+            this.returned = returned;
+        }
+    }
+}
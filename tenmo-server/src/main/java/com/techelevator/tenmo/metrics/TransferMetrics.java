@@ -0,0 +1,72 @@
+package com.techelevator.tenmo.metrics;
+
+import com.techelevator.tenmo.model.TransferResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts what became of each transfer that would move money, as tenmo.transfers tagged with an outcome (sent,
+ * insufficient_funds or failed) and the source it came through (send, batch or approval). Every counter is
+ * registered up front, so they're all there at 0 before the first transfer and counting doesn't look them up.
+ */
+@Component
+public class TransferMetrics {
+
+    public static final String METRIC_NAME = "tenmo.transfers";
+
+    public enum Source {
+        SEND, BATCH, APPROVAL
+    }
+
+    private final Map<Source, Counter> sent = new EnumMap<>(Source.class);
+    private final Map<Source, Counter> insufficientFunds = new EnumMap<>(Source.class);
+    private final Map<Source, Counter> failed = new EnumMap<>(Source.class);
+
+    public TransferMetrics(MeterRegistry registry) {
+        for (Source source : Source.values()) {
+            sent.put(source, counter(registry, "sent", source));
+            insufficientFunds.put(source, counter(registry, "insufficient_funds", source));
+            failed.put(source, counter(registry, "failed", source));
+        }
+    }
+
+    public void recordSent(Source source) {
+        sent.get(source).increment();
+    }
+
+    public void recordInsufficientFunds(Source source) {
+        insufficientFunds.get(source).increment();
+    }
+
+    public void recordFailed(Source source) {
+        failed.get(source).increment();
+    }
+
+    /**
+     * Records every entry of a batch, including the ones the controller turned down before they reached the DAO.
+     */
+    public void recordBatch(List<TransferResult> results) {
+        for (TransferResult result : results) {
+            if (result.isSuccessful()) {
+                recordSent(Source.BATCH);
+            } else if (TransferResult.INSUFFICIENT_FUNDS.equals(result.getMessage())) {
+                recordInsufficientFunds(Source.BATCH);
+            } else {
+                recordFailed(Source.BATCH);
+            }
+        }
+    }
+
+    private static Counter counter(MeterRegistry registry, String outcome, Source source) {
+        return Counter.builder(METRIC_NAME)
+                .description("Transfers that would move money, by what became of them")
+                .tag("outcome", outcome)
+                .tag("source", source.name().toLowerCase())
+                .register(registry);
+    }
+}
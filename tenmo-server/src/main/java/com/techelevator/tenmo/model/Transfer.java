@@ -1,5 +1,7 @@
 package com.techelevator.tenmo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -88,6 +90,25 @@ public class Transfer {
         this.status = status;
     }
 
+    // Enum views of the type and status strings; null when the string doesn't name one
+    @JsonIgnore
+    public TransferType getTransferType() {
+        return TransferType.fromDescription(type);
+    }
+
+    public void setTransferType(TransferType transferType) {
+        this.type = transferType.getDescription();
+    }
+
+    @JsonIgnore
+    public TransferStatus getTransferStatus() {
+        return TransferStatus.fromDescription(status);
+    }
+
+    public void setTransferStatus(TransferStatus transferStatus) {
+        this.status = transferStatus.getDescription();
+    }
+
     public String getSenderUsername() {
         return senderUsername;
     }
@@ -0,0 +1,37 @@
+package com.techelevator.tenmo.model;
+
+import java.util.List;
+
+/*
+    One page of a user's transfers, oldest first. nextCursor is the transfer_id to pass as afterId to get the next
+    page, and is null on the last page.
+ */
+public class TransferPage {
+
+    private List<Transfer> transfers;
+    private Integer nextCursor;
+
+    public TransferPage() {
+    }
+
+    public TransferPage(List<Transfer> transfers, Integer nextCursor) {
+        this.transfers = transfers;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Transfer> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<Transfer> transfers) {
+        this.transfers = transfers;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,55 @@
+package com.techelevator.tenmo.model;
+
+/*
+    One entry of a batch transfer response. The results come back in the same order as the submitted transfers,
+    and a failed entry carries the reason it was not applied.
+ */
+public class TransferResult {
+
+    public static final String INSUFFICIENT_FUNDS = "Not enough money in the account to send.";
+
+    private Transfer transfer;
+    private boolean successful;
+    private String message;
+
+    public TransferResult() {
+    }
+
+    public TransferResult(Transfer transfer, boolean successful, String message) {
+        this.transfer = transfer;
+        this.successful = successful;
+        this.message = message;
+    }
+
+    public static TransferResult applied(Transfer transfer) {
+        return new TransferResult(transfer, true, null);
+    }
+
+    public static TransferResult failed(Transfer transfer, String message) {
+        return new TransferResult(transfer, false, message);
+    }
+
+    public Transfer getTransfer() {
+        return transfer;
+    }
+
+    public void setTransfer(Transfer transfer) {
+        this.transfer = transfer;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public void setSuccessful(boolean successful) {
+        this.successful = successful;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,32 @@
+package com.techelevator.tenmo.model;
+
+/*
+    The rows of the transfer_status table. The description is what clients send and see in the status field.
+ */
+public enum TransferStatus {
+    PENDING("Pending"),
+    APPROVED("Approved"),
+    REJECTED("Rejected");
+
+    private final String description;
+
+    TransferStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the status with this description, ignoring case, or null if there is none
+     */
+    public static TransferStatus fromDescription(String description) {
+        for (TransferStatus status : values()) {
+            if (status.description.equalsIgnoreCase(description)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.techelevator.tenmo.model;
+
+/*
+    The rows of the transfer_type table. The description is what clients send and see in the type field.
+ */
+public enum TransferType {
+    REQUEST("Request"),
+    SEND("Send");
+
+    private final String description;
+
+    TransferType(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the type with this description, ignoring case, or null if there is none
+     */
+    public static TransferType fromDescription(String description) {
+        for (TransferType type : values()) {
+            if (type.description.equalsIgnoreCase(description)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.techelevator.tenmo.security;
+
+import com.techelevator.tenmo.sqltrace.SlowQueriesEndpoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.MetricsEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.authentication.configurers.provisioning.InMemoryUserDetailsManagerConfigurer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Guards the actuator endpoints, ahead of WebSecurityConfig, with HTTP Basic against the accounts configured under
+ * tenmo.management instead of the users' tokens. Health stays open for load balancers. The scraper account can read
+ * metrics and prometheus, which is what Prometheus needs; everything else, including DELETE /actuator/slowqueries,
+ * needs the admin account. An account without a password isn't created, so by default nobody gets in.
+ */
+@Configuration
+@Order(1)
+public class ManagementSecurityConfig extends WebSecurityConfigurerAdapter {
+
+    static final String ADMIN = "ADMIN";
+    static final String METRICS = "METRICS";
+
+    private final PasswordEncoder passwordEncoder;
+    private final String adminUsername;
+    private final String adminPassword;
+    private final String scraperUsername;
+    private final String scraperPassword;
+
+    public ManagementSecurityConfig(PasswordEncoder passwordEncoder,
+                                    @Value("${tenmo.management.admin-username:admin}") String adminUsername,
+                                    @Value("${tenmo.management.admin-password:}") String adminPassword,
+                                    @Value("${tenmo.management.scraper-username:prometheus}") String scraperUsername,
+                                    @Value("${tenmo.management.scraper-password:}") String scraperPassword) {
+        this.passwordEncoder = passwordEncoder;
+        this.adminUsername = adminUsername;
+        this.adminPassword = adminPassword;
+        this.scraperUsername = scraperUsername;
+        this.scraperPassword = scraperPassword;
+    }
+
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+        InMemoryUserDetailsManagerConfigurer<AuthenticationManagerBuilder> accounts =
+                auth.inMemoryAuthentication().passwordEncoder(passwordEncoder);
+        if (!adminPassword.isEmpty()) {
+            accounts.withUser(adminUsername).password(passwordEncoder.encode(adminPassword)).roles(ADMIN);
+        }
+        if (!scraperPassword.isEmpty()) {
+            accounts.withUser(scraperUsername).password(passwordEncoder.encode(scraperPassword)).roles(METRICS);
+        }
+    }
+
+    @Override
+    protected void configure(HttpSecurity httpSecurity) throws Exception {
+        httpSecurity
+                .requestMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf().disable()
+                .sessionManagement()
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+
+                .and()
+                .httpBasic()
+
+                .and()
+                .authorizeRequests()
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                .requestMatchers(EndpointRequest.to(SlowQueriesEndpoint.class)).hasRole(ADMIN)
+                .requestMatchers(EndpointRequest.to(MetricsEndpoint.class, PrometheusScrapeEndpoint.class))
+                .hasAnyRole(ADMIN, METRICS)
+                .anyRequest().hasRole(ADMIN);
+    }
+}
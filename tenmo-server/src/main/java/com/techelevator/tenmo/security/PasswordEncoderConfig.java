@@ -0,0 +1,61 @@
+package com.techelevator.tenmo.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * The one PasswordEncoder shared by registration and login. It lives outside WebSecurityConfig so
+ * AuthenticationController and UserImporter can use it without a cycle through UserModelDetailsService.
+ *
+ * Unless tenmo.security.bcrypt.strength fixes it, the BCrypt cost is picked at startup: the highest cost that still
+ * hashes within tenmo.security.bcrypt.target-ms on this hardware, and never below BCrypt's default of 10. Hashes made
+ * at another cost keep verifying, since each hash records the cost it was made with.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 16;
+    private static final int SAMPLES = 3;
+
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${tenmo.security.bcrypt.strength:0}") int strength,
+                                           @Value("${tenmo.security.bcrypt.target-ms:100}") long targetMillis) {
+        if (strength <= 0) {
+            strength = calibrate(targetMillis);
+        }
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    // Each step up in cost doubles the work, so one measurement at the minimum is enough to estimate the rest
+    static int calibrate(long targetMillis) {
+        double millis = hashMillis(MIN_STRENGTH);
+        int strength = MIN_STRENGTH;
+        while (strength < MAX_STRENGTH && millis * 2 <= targetMillis) {
+            millis *= 2;
+            strength++;
+        }
+        log.info("BCrypt cost {} takes about {} ms per hash here (target {} ms)", strength, Math.round(millis), targetMillis);
+        return strength;
+    }
+
+    // Fastest of a few runs after a warm-up, so a slow first call or a GC pause doesn't push the cost down
+    private static double hashMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode("calibration");
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return fastest / 1_000_000.0;
+    }
+}
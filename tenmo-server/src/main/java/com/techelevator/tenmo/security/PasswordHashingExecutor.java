@@ -0,0 +1,68 @@
+package com.techelevator.tenmo.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs work that hashes or checks a password (login and registration) on a few dedicated threads instead of the
+ * request threads, so a burst of logins can only take that many cores and leaves Tomcat's threads free for every
+ * other endpoint. Once the threads are busy and the queue is full, submit throws RejectedExecutionException, which
+ * AuthenticationController turns into a 429.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    // Smoothed time a task takes, used to tell rejected clients when to come back
+    private volatile double averageTaskMillis = 100;
+
+    public PasswordHashingExecutor(@Value("${tenmo.security.hashing.threads:0}") int threads,
+                                   @Value("${tenmo.security.hashing.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @throws RejectedExecutionException if every thread is busy and the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return task.get();
+            } finally {
+                double millis = (System.nanoTime() - start) / 1_000_000.0;
+                averageTaskMillis = averageTaskMillis * 0.9 + millis * 0.1;
+            }
+        }, executor);
+    }
+
+    /**
+     * Roughly how long until the work already waiting has been done, rounded up to whole seconds.
+     */
+    public long retryAfterSeconds() {
+        int waiting = executor.getQueue().size() + executor.getActiveCount();
+        double millis = waiting * averageTaskMillis / executor.getMaximumPoolSize();
+        return Math.max(1, (long) Math.ceil(millis / 1000));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,5 +1,8 @@
 package com.techelevator.tenmo.security.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -14,9 +17,12 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class TokenProvider implements InitializingBean {
@@ -28,23 +34,53 @@ public class TokenProvider implements InitializingBean {
     private final String base64Secret;
     private final long tokenValidityInMilliseconds;
     private final long tokenValidityInMillisecondsForRememberMe;
+    private final long claimsCacheSize;
 
     private Key key;
-
+    private JwtParser jwtParser;
+    // Tokens whose signature has been checked, by SHA-256 digest so the tokens themselves aren't kept around.
+    // Each entry expires when its token does. Null when jwt.claims-cache-size is 0.
+    private Cache<String, VerifiedToken> verifiedTokens;
 
     public TokenProvider(
             @Value("${jwt.base64-secret}") String base64Secret,
             @Value("${jwt.token-validity-in-seconds}") long tokenValidityInSeconds,
-            @Value("${jwt.token-validity-in-seconds-for-remember-me}") long tokenValidityInSecondsForRememberMe) {
+            @Value("${jwt.token-validity-in-seconds-for-remember-me}") long tokenValidityInSecondsForRememberMe,
+            @Value("${jwt.claims-cache-size:10000}") long claimsCacheSize) {
         this.base64Secret = base64Secret;
         this.tokenValidityInMilliseconds = tokenValidityInSeconds * 1000;
         this.tokenValidityInMillisecondsForRememberMe = tokenValidityInSecondsForRememberMe * 1000;
+        this.claimsCacheSize = claimsCacheSize;
     }
 
     @Override
     public void afterPropertiesSet() {
         byte[] keyBytes = Decoders.BASE64.decode(base64Secret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        // The parser is immutable and safe to share between requests
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
+        if (claimsCacheSize <= 0) {
+            return;
+        }
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String digest, VerifiedToken token, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAt - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
@@ -72,27 +108,43 @@ public class TokenProvider implements InitializingBean {
                 .compact();
     }
 
+    /**
+     * Verifies the token and returns the user it was issued to, or null if it isn't valid. The signature is checked
+     * the first time a token is seen; until it expires, later requests with the same token only cost a digest.
+     */
     public Authentication getAuthentication(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        Collection<? extends GrantedAuthority> authorities =
-                Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                        .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
+        VerifiedToken verified;
+        if (verifiedTokens == null) {
+            verified = verify(token);
+        } else {
+            String digest = digest(token);
+            verified = verifiedTokens.getIfPresent(digest);
+            if (verified == null || verified.expiresAt <= System.currentTimeMillis()) {
+                verified = verify(token);
+                if (verified != null && verified.expiresAt != Long.MAX_VALUE) {
+                    verifiedTokens.put(digest, verified);
+                }
+            }
+        }
+        if (verified == null) {
+            return null;
+        }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        User principal = new User(verified.username, "", verified.authorities);
+        return new UsernamePasswordAuthenticationToken(principal, token, verified.authorities);
     }
 
-    public boolean validateToken(String authToken) {
+    private VerifiedToken verify(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            for (String authority : claims.get(AUTHORITIES_KEY).toString().split(",")) {
+                authorities.add(new SimpleGrantedAuthority(authority));
+            }
+            // A token without an expiration is still accepted, but isn't cached
+            Date expiration = claims.getExpiration();
+            return new VerifiedToken(claims.getSubject(), Collections.unmodifiableList(authorities),
+                    expiration == null ? Long.MAX_VALUE : expiration.getTime());
         } catch (io.jsonwebtoken.security.SecurityException | MalformedJwtException e) {
             log.info("Invalid JWT signature.");
             log.trace("Invalid JWT signature trace: {}", e);
@@ -106,6 +158,28 @@ public class TokenProvider implements InitializingBean {
             log.info("JWT token compact of handler are invalid.");
             log.trace("JWT token compact of handler are invalid trace: {}", e);
         }
-        return false;
+        return null;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class VerifiedToken {
+
+        private final String username;
+        private final List<GrantedAuthority> authorities;
+        private final long expiresAt;
+
+        private VerifiedToken(String username, List<GrantedAuthority> authorities, long expiresAt) {
+            this.username = username;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
     }
 }
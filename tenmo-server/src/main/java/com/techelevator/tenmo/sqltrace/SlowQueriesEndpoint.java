@@ -0,0 +1,31 @@
+package com.techelevator.tenmo.sqltrace;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+
+/**
+ * GET /actuator/slowqueries lists the slowest statements of the last window or two, slowest first, each with the DAO
+ * method that sent it and its parameter types. DELETE starts the list over, e.g. after a fix.
+ */
+@Endpoint(id = "slowqueries")
+public class SlowQueriesEndpoint {
+
+    private final StatementTracer tracer;
+
+    public SlowQueriesEndpoint(StatementTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @ReadOperation
+    public List<StatementTracer.SlowQuery> slowQueries() {
+        return tracer.slowest();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        tracer.reset();
+    }
+}
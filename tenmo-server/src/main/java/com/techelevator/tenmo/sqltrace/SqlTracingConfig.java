@@ -0,0 +1,45 @@
+package com.techelevator.tenmo.sqltrace;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's DataSource, whichever configuration built it, in a TracingDataSource. The beans here are
+ * static because a post-processor has to exist before the DataSource is created.
+ */
+@Configuration
+public class SqlTracingConfig {
+
+    @Bean
+    public static StatementTracer statementTracer(@Value("${tenmo.sql.slow-query-ms:200}") long slowQueryMillis,
+                                                  @Value("${tenmo.sql.top-size:20}") int topSize,
+                                                  @Value("${tenmo.sql.window-minutes:15}") long windowMinutes,
+                                                  ObjectProvider<MeterRegistry> registry) {
+        return new StatementTracer(slowQueryMillis, topSize, windowMinutes, registry);
+    }
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<StatementTracer> tracer,
+                                                                   @Value("${tenmo.sql.tag-statements:true}") boolean tagStatements) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof TracingDataSource)) {
+                    return new TracingDataSource((DataSource) bean, tracer.getObject(), tagStatements);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SlowQueriesEndpoint slowQueriesEndpoint(StatementTracer tracer) {
+        return new SlowQueriesEndpoint(tracer);
+    }
+}
@@ -0,0 +1,179 @@
+package com.techelevator.tenmo.sqltrace;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where TracingDataSource reports every statement it ran: timed as tenmo.sql.statements per calling DAO method,
+ * logged when slower than the threshold, and kept in a rolling list of the slowest statements.
+ *
+ * The list holds each statement's slowest run, per statement and caller, for the current window and the one before,
+ * so it always covers at least the last window. A run faster than everything in a full list never takes the lock.
+ */
+public class StatementTracer {
+
+    public static final String METRIC_NAME = "tenmo.sql.statements";
+    static final String NO_CALLER = "other";
+
+    private static final Logger log = LoggerFactory.getLogger(StatementTracer.class);
+
+    private final long slowNanos;
+    private final int topSize;
+    private final long windowNanos;
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private Map<String, SlowQuery> currentWindow = new HashMap<>();
+    private Map<String, SlowQuery> previousWindow = new HashMap<>();
+    private volatile long windowStarted = System.nanoTime();
+    // Runs faster than this can't make the current window's list
+    private volatile long admitNanos;
+
+    /**
+     * @param slowMillis statements taking at least this long are logged; below 0 logs none
+     * @param topSize how many statements the slowest list keeps
+     * @param windowMinutes how long each window of the slowest list lasts
+     * @param registryProvider looked up on the first statement, since the DataSource is wrapped before the registry
+     *                         is ready
+     */
+    public StatementTracer(long slowMillis, int topSize, long windowMinutes, ObjectProvider<MeterRegistry> registryProvider) {
+        this.slowNanos = slowMillis < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(slowMillis);
+        this.topSize = topSize;
+        this.windowNanos = TimeUnit.MINUTES.toNanos(windowMinutes);
+        this.registryProvider = registryProvider;
+    }
+
+    /**
+     * @param sql the statement as the DAO wrote it, with ? for each parameter
+     * @param parameters the types of the bound parameters, e.g. "[Integer, BigDecimal]", never their values
+     * @param caller the DAO method that sent it, or null
+     */
+    public void record(String sql, String parameters, String caller, long nanos) {
+        String source = caller != null ? caller : NO_CALLER;
+        timers.computeIfAbsent(source, this::timer).record(nanos, TimeUnit.NANOSECONDS);
+
+        if (nanos >= slowNanos) {
+            log.warn("Slow statement: {} ms in {}: {} with parameters {}",
+                    TimeUnit.NANOSECONDS.toMillis(nanos), source, sql, parameters);
+        }
+
+        if (System.nanoTime() - windowStarted > windowNanos) {
+            rollWindow();
+        }
+        if (nanos >= admitNanos) {
+            admit(new SlowQuery(sql, parameters, source, nanos, Instant.now()));
+        }
+    }
+
+    /**
+     * @return the slowest statements, slowest first
+     */
+    public synchronized List<SlowQuery> slowest() {
+        Map<String, SlowQuery> merged = new HashMap<>(previousWindow);
+        for (SlowQuery query : currentWindow.values()) {
+            merged.merge(query.key(), query, StatementTracer::slower);
+        }
+        List<SlowQuery> slowest = new ArrayList<>(merged.values());
+        slowest.sort(Comparator.comparingLong(SlowQuery::getNanos).reversed());
+        return slowest.size() > topSize ? new ArrayList<>(slowest.subList(0, topSize)) : slowest;
+    }
+
+    public synchronized void reset() {
+        currentWindow = new HashMap<>();
+        previousWindow = new HashMap<>();
+        windowStarted = System.nanoTime();
+        admitNanos = 0;
+    }
+
+    private synchronized void rollWindow() {
+        if (System.nanoTime() - windowStarted > windowNanos) {
+            previousWindow = currentWindow;
+            currentWindow = new HashMap<>();
+            windowStarted = System.nanoTime();
+            admitNanos = 0;
+        }
+    }
+
+    private synchronized void admit(SlowQuery query) {
+        currentWindow.merge(query.key(), query, StatementTracer::slower);
+        if (currentWindow.size() > topSize) {
+            SlowQuery fastest = currentWindow.values().stream()
+                    .min(Comparator.comparingLong(SlowQuery::getNanos)).get();
+            currentWindow.remove(fastest.key());
+        }
+        if (currentWindow.size() == topSize) {
+            admitNanos = currentWindow.values().stream().mapToLong(SlowQuery::getNanos).min().getAsLong();
+        }
+    }
+
+    private static SlowQuery slower(SlowQuery a, SlowQuery b) {
+        return a.getNanos() >= b.getNanos() ? a : b;
+    }
+
+    private Timer timer(String caller) {
+        return Timer.builder(METRIC_NAME)
+                .description("JDBC statements, by the DAO method that sent them")
+                .tag("caller", caller)
+                .register(registryProvider.getObject());
+    }
+
+    public static class SlowQuery {
+
+        private final String sql;
+        private final String parameters;
+        private final String caller;
+        private final long nanos;
+        private final Instant at;
+
+        public SlowQuery(String sql, String parameters, String caller, long nanos, Instant at) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.caller = caller;
+            this.nanos = nanos;
+            this.at = at;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getParameters() {
+            return parameters;
+        }
+
+        public String getCaller() {
+            return caller;
+        }
+
+        public double getMillis() {
+            return nanos / 1e6;
+        }
+
+        /**
+         * When the slowest run finished.
+         */
+        public Instant getAt() {
+            return at;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+
+        String key() {
+            return caller + '\n' + sql;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.techelevator.tenmo.sqltrace;
+
+import com.techelevator.tenmo.metrics.CurrentDaoMethod;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.SmartDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out connections whose statements report to a StatementTracer how long each execute took, which DAO method
+ * sent it, and the types of the parameters bound to it. The time runs until the driver hands back the first rows, so
+ * a query streamed with a fetch size only counts its first fetch.
+ *
+ * With tagStatements the SQL sent to the database starts with a comment naming the DAO method, so pg_stat_activity
+ * and the PostgreSQL log show it too. The tracer gets the SQL as the DAO wrote it.
+ */
+public class TracingDataSource extends DelegatingDataSource implements SmartDataSource {
+
+    private final StatementTracer tracer;
+    private final boolean tagStatements;
+
+    public TracingDataSource(DataSource targetDataSource, StatementTracer tracer, boolean tagStatements) {
+        super(targetDataSource);
+        this.tracer = tracer;
+        this.tagStatements = tagStatements;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return tracing(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return tracing(super.getConnection(username, password));
+    }
+
+    // Passed on so a SingleConnectionDataSource underneath (as in the tests) keeps its connection open
+    @Override
+    public boolean shouldClose(Connection connection) {
+        DataSource target = getTargetDataSource();
+        if (target instanceof SmartDataSource && Proxy.isProxyClass(connection.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(connection);
+            if (handler instanceof ConnectionHandler) {
+                return ((SmartDataSource) target).shouldClose(((ConnectionHandler) handler).connection);
+            }
+        }
+        return true;
+    }
+
+    private Connection tracing(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "prepareStatement":
+                case "prepareCall":
+                    String sql = (String) args[0];
+                    String caller = CurrentDaoMethod.get();
+                    if (tagStatements && caller != null) {
+                        args[0] = "/* " + caller + " */ " + sql;
+                    }
+                    Statement prepared = (Statement) invokeOn(connection, method, args);
+                    return statement(prepared, method.getName().equals("prepareCall")
+                            ? CallableStatement.class : PreparedStatement.class, sql);
+                case "createStatement":
+                    return statement((Statement) invokeOn(connection, method, args), Statement.class, null);
+                default:
+                    return invokeOn(connection, method, args);
+            }
+        }
+
+        private Statement statement(Statement statement, Class<? extends Statement> type, String sql) {
+            return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, sql));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private final String preparedSql;
+        private final List<String> parameterTypes = new ArrayList<>();
+        private int batchedRows;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String caller = CurrentDaoMethod.get();
+                String sql = preparedSql;
+                if (args != null && args.length > 0 && args[0] instanceof String) {
+                    // A plain Statement gets its SQL here rather than when it's created
+                    sql = (String) args[0];
+                    if (tagStatements && caller != null) {
+                        args[0] = "/* " + caller + " */ " + sql;
+                    }
+                }
+                long start = System.nanoTime();
+                try {
+                    return invokeOn(statement, method, args);
+                } finally {
+                    tracer.record(sql, parameters(), caller, System.nanoTime() - start);
+                    if (name.contains("Batch")) {
+                        batchedRows = 0;
+                    }
+                }
+            }
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                recordParameter((Integer) args[0], name.equals("setNull") || args[1] == null
+                        ? "null" : args[1].getClass().getSimpleName());
+            } else if (name.equals("clearParameters")) {
+                parameterTypes.clear();
+            } else if (name.equals("addBatch") && (args == null || args.length == 0)) {
+                batchedRows++;
+            }
+            return invokeOn(statement, method, args);
+        }
+
+        private void recordParameter(int index, String type) {
+            while (parameterTypes.size() < index) {
+                parameterTypes.add("?");
+            }
+            parameterTypes.set(index - 1, type);
+        }
+
+        private String parameters() {
+            String types = parameterTypes.toString();
+            return batchedRows > 0 ? types + " x " + batchedRows + " rows" : types;
+        }
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
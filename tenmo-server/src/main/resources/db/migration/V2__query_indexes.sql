@@ -0,0 +1,11 @@
+-- Indexes behind the DAO queries. IF NOT EXISTS because databases set up from database/tenmo.sql already have them
+-- by the time they are baselined at V1.
+
+-- Every transfer query resolves the user's account with account.user_id = ?
+CREATE INDEX IF NOT EXISTS IX_account_user_id ON account (user_id);
+
+-- Pending requests are read per paying account, filtered on status, in transfer_id order
+CREATE INDEX IF NOT EXISTS IX_transfer_account_from_status ON transfer (account_from, transfer_status_id, transfer_id);
+
+-- Balances are looked up by username without regard to case
+CREATE INDEX IF NOT EXISTS IX_tenmo_user_lower_username ON tenmo_user (lower(username));
@@ -0,0 +1,3 @@
+-- Version counter for optimistic balance updates: a balance is only written back if the row's version is still the
+-- one it was read at. IF NOT EXISTS because databases set up from the current database/tenmo.sql already have it.
+ALTER TABLE account ADD COLUMN IF NOT EXISTS version int NOT NULL DEFAULT 0;
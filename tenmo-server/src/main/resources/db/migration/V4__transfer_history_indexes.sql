@@ -0,0 +1,4 @@
+-- History pages are read per account in transfer_id order. IF NOT EXISTS because databases set up from the current
+-- database/tenmo.sql already have them.
+CREATE INDEX IF NOT EXISTS IX_transfer_account_from ON transfer (account_from, transfer_id);
+CREATE INDEX IF NOT EXISTS IX_transfer_account_to ON transfer (account_to, transfer_id);
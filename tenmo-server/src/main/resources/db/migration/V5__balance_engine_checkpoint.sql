@@ -0,0 +1,8 @@
+-- Last journal sequence the in-memory balance engine has written to the tables (tenmo.transfers.engine=sequenced).
+-- IF NOT EXISTS because databases set up from the current database/tenmo.sql already have it.
+CREATE TABLE IF NOT EXISTS balance_engine_checkpoint (
+	last_sequence bigint NOT NULL
+);
+
+INSERT INTO balance_engine_checkpoint (last_sequence)
+SELECT 0 WHERE NOT EXISTS (SELECT 1 FROM balance_engine_checkpoint);
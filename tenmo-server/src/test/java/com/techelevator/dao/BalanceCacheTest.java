@@ -0,0 +1,179 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.dao.BalanceCache;
+import com.techelevator.tenmo.dao.JdbcTransferDao;
+import com.techelevator.tenmo.dao.TransferDao;
+import com.techelevator.tenmo.model.Transfer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BalanceCacheTest extends PooledDaoTests {
+
+    private static final int USERS = 200;
+    private static final int CLIENTS = 16;
+    private static final int REQUESTS_PER_CLIENT = 2000;
+    private static final int READ_PERCENT = 95;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private MeterRegistry registry;
+    private List<Integer> userIds;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        userIds = createAccounts(USERS);
+    }
+
+    @Test
+    public void retrieveAccountBalance_sees_own_send_right_away() {
+        TransferDao sut = new JdbcTransferDao(jdbcTemplate, cache());
+
+        Assert.assertEquals(STARTING_BALANCE, balance(sut, 0));
+        Assert.assertEquals(STARTING_BALANCE, balance(sut, 0));
+        Assert.assertNotNull(sut.sendTransfer(send(0, 1)));
+
+        Assert.assertEquals(STARTING_BALANCE.subtract(AMOUNT), balance(sut, 0));
+        Assert.assertEquals(STARTING_BALANCE.add(AMOUNT), balance(sut, 1));
+    }
+
+    @Test
+    public void cached_balance_is_replaced_when_the_transaction_commits() throws Exception {
+        TransferDao sut = new JdbcTransferDao(jdbcTemplate, cache());
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(pool));
+        ExecutorService otherClient = Executors.newSingleThreadExecutor();
+        balance(sut, 0);
+
+        transaction.execute(status -> {
+            sut.sendTransfers(List.of(send(0, 1)));
+            try {
+                // Until the commit, another client keeps getting the balance everybody else can still see
+                Assert.assertEquals(STARTING_BALANCE, otherClient.submit(() -> balance(sut, 0)).get());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+
+        Assert.assertEquals(STARTING_BALANCE.subtract(AMOUNT), otherClient.submit(() -> balance(sut, 0)).get());
+        otherClient.shutdown();
+    }
+
+    @Test
+    public void rolled_back_send_keeps_cached_balance() {
+        TransferDao sut = new JdbcTransferDao(jdbcTemplate, cache());
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(pool));
+        // The first read finds the user id, the second caches the balance
+        balance(sut, 0);
+        balance(sut, 0);
+
+        transaction.execute(status -> {
+            sut.sendTransfers(List.of(send(0, 1)));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        Assert.assertEquals(STARTING_BALANCE, balance(sut, 0));
+        Assert.assertEquals(1.0, registry.get("cache.gets").tag("cache", "balances").tag("result", "hit")
+                .functionCounter().count(), 0);
+    }
+
+    @Test
+    public void cache_cuts_database_statements_for_a_95_percent_read_mix() throws Exception {
+        long uncached = runLoad(BalanceCache.disabled(), "uncached");
+        long cached = runLoad(cache(), "cached");
+
+        System.out.printf("GET /accounts mix (%d%% reads): %d statements uncached, %d cached (%.1fx fewer)%n",
+                READ_PERCENT, uncached, cached, (double) uncached / cached);
+        Assert.assertTrue("The cache should cut statements at least 3x, went from " + uncached + " to " + cached,
+                cached * 3 < uncached);
+    }
+
+    // Clients read their own balance or send to a random user and returns how many statements reached the database.
+    // Afterwards every balance read through the cache has to match the database.
+    private long runLoad(BalanceCache cache, String label) throws Exception {
+        CountingJdbcTemplate counting = new CountingJdbcTemplate(jdbcTemplate);
+        TransferDao sut = new JdbcTransferDao(counting, cache);
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> clients = new ArrayList<>();
+
+        for (int c = 0; c < CLIENTS; c++) {
+            clients.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < REQUESTS_PER_CLIENT; n++) {
+                    int user = random.nextInt(USERS);
+                    if (random.nextInt(100) < READ_PERCENT) {
+                        balance(sut, user);
+                    } else {
+                        sut.sendTransfer(send(user, (user + 1 + random.nextInt(USERS - 1)) % USERS));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> client : clients) {
+            client.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        executor.shutdown();
+        long statements = counting.statements.get();
+        System.out.printf("%s: %d requests in %d ms, %d statements%n", label, CLIENTS * REQUESTS_PER_CLIENT, elapsedMillis, statements);
+
+        for (int user = 0; user < USERS; user++) {
+            Assert.assertEquals(balanceOf(userIds.get(user)), balance(sut, user));
+        }
+        return statements;
+    }
+
+    private BalanceCache cache() {
+        return new BalanceCache(registry, 10000, 30);
+    }
+
+    private BigDecimal balance(TransferDao sut, int user) {
+        return sut.retrieveAccountBalance(USERNAME_PREFIX + user).getBalance();
+    }
+
+    private Transfer send(int sender, int recipient) {
+        return new Transfer(0, userIds.get(sender), userIds.get(recipient), AMOUNT, "Send", "Approved", null, null);
+    }
+
+    // Every query, update and batch JdbcTemplate runs with parameters goes through this execute
+    private static class CountingJdbcTemplate extends JdbcTemplate {
+
+        private final AtomicLong statements = new AtomicLong();
+
+        private CountingJdbcTemplate(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate.getDataSource());
+        }
+
+        @Override
+        public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) throws DataAccessException {
+            statements.incrementAndGet();
+            return super.execute(psc, action);
+        }
+    }
+}
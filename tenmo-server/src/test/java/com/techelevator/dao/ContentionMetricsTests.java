@@ -0,0 +1,63 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.concurrency.ContentionMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ContentionMetricsTests {
+
+    private MeterRegistry registry;
+    private ContentionMetrics metrics;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        metrics = new ContentionMetrics(registry, 3);
+    }
+
+    @Test
+    public void every_conflict_is_counted_against_its_account() {
+        metrics.recordConflict(2001);
+        metrics.recordConflict(2002);
+        metrics.recordConflict(2002);
+        metrics.recordExhausted(2002);
+
+        List<ContentionMetrics.HotAccount> hot = metrics.hotAccounts();
+        Assert.assertEquals(2, hot.size());
+        Assert.assertEquals(2002, hot.get(0).getAccountId());
+        Assert.assertEquals(2, hot.get(0).getConflicts());
+        Assert.assertEquals(0, hot.get(0).getOvercount());
+        Assert.assertEquals(1, hot.get(0).getExhausted());
+        Assert.assertEquals(3, metrics.conflictCount(), 0);
+        Assert.assertEquals(2, registry.get("tenmo.account.conflicts.hottest").gauge().value(), 0);
+    }
+
+    @Test
+    public void the_table_stays_bounded_and_keeps_the_hot_account() {
+        for (int i = 0; i < 100; i++) {
+            metrics.recordConflict(2001);
+            metrics.recordConflict(3000 + i);
+        }
+
+        List<ContentionMetrics.HotAccount> hot = metrics.hotAccounts();
+        Assert.assertEquals(3, hot.size());
+        Assert.assertEquals(2001, hot.get(0).getAccountId());
+        Assert.assertEquals(100, hot.get(0).getConflicts());
+        Assert.assertEquals(200, metrics.conflictCount(), 0);
+    }
+
+    @Test
+    public void reset_empties_the_table_but_not_the_counters() {
+        metrics.recordConflict(2001);
+
+        metrics.resetHotAccounts();
+
+        Assert.assertTrue(metrics.hotAccounts().isEmpty());
+        Assert.assertEquals(1, metrics.conflictCount(), 0);
+    }
+}
@@ -0,0 +1,123 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.concurrency.DaoPermitsPostProcessor;
+import com.techelevator.tenmo.dao.UserDao;
+import com.techelevator.tenmo.exception.DaoException;
+import com.techelevator.tenmo.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class DaoPermitsTests {
+
+    private MeterRegistry registry;
+    private DefaultListableBeanFactory beanFactory;
+    private ExecutorService threads;
+    private final AtomicInteger inside = new AtomicInteger();
+    private final AtomicInteger mostInside = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private UserDao sut;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        threads = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void cleanup() {
+        release.countDown();
+        threads.shutdownNow();
+    }
+
+    @Test
+    public void no_more_than_the_permits_are_inside_a_dao_at_once() throws Exception {
+        sut = permitted(2, 10_000);
+
+        Future<?>[] calls = new Future<?>[6];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = threads.submit(() -> sut.getUsers());
+        }
+        waitFor(() -> inside.get() == 2);
+        waitFor(() -> registry.get("tenmo.dao.permits.waiting").gauge().value() == 4);
+        release.countDown();
+        for (Future<?> call : calls) {
+            call.get(10, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(2, mostInside.get());
+        Assert.assertEquals(6, registry.get("tenmo.dao.permits.wait").timer().count());
+    }
+
+    @Test(expected = DaoException.class)
+    public void waiting_longer_than_the_timeout_throws() throws Throwable {
+        sut = permitted(1, 50);
+        threads.submit(() -> sut.getUsers());
+        waitFor(() -> inside.get() == 1);
+
+        sut.getUserById(1001);
+    }
+
+    @Test
+    public void a_dao_called_from_another_dao_reuses_the_callers_permit() {
+        sut = permitted(1, 50);
+        release.countDown();
+
+        Assert.assertEquals("nested", sut.getUserByUsername("nested").getUsername());
+    }
+
+    // A UserDao that holds getUsers until release, and calls back through the proxy from getUserByUsername
+    private UserDao permitted(int permits, long timeoutMillis) {
+        UserDao[] self = new UserDao[1];
+        UserDao target = (UserDao) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{UserDao.class},
+                (proxy, method, args) -> {
+                    int now = inside.incrementAndGet();
+                    mostInside.accumulateAndGet(now, Math::max);
+                    try {
+                        switch (method.getName()) {
+                            case "getUsers":
+                                release.await();
+                                return List.of();
+                            case "getUserByUsername":
+                                self[0].getUserById(1001);
+                                return new User(1001, (String) args[0], "hash", "USER");
+                            default:
+                                return null;
+                        }
+                    } finally {
+                        inside.decrementAndGet();
+                    }
+                });
+        DaoPermitsPostProcessor postProcessor = new DaoPermitsPostProcessor(permits, timeoutMillis,
+                beanFactory.getBeanProvider(MeterRegistry.class));
+        postProcessor.setBeanFactory(beanFactory);
+        self[0] = (UserDao) postProcessor.postProcessAfterInitialization(target, "userDao");
+        return self[0];
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.admin.DatasetGenerator;
+import com.techelevator.tenmo.admin.DatasetSpec;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class DatasetGeneratorTest extends BaseDaoTests {
+
+    private static final int USERS = 1000;
+    private static final int TRANSFERS = 20000;
+
+    private JdbcTemplate jdbcTemplate;
+    private DatasetGenerator sut;
+
+    @Before
+    public void setup() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        sut = new DatasetGenerator(jdbcTemplate);
+    }
+
+    @Test
+    public void generate_creates_users_with_accounts_and_transfers() {
+        DatasetGenerator.Dataset dataset = sut.generate(spec("gen_a_", 42));
+
+        Assert.assertEquals(Integer.valueOf(USERS), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tenmo_user JOIN account USING (user_id) WHERE username LIKE 'gen_a_%'", Integer.class));
+        Assert.assertEquals(Integer.valueOf(dataset.getFirstUserId() + 7), jdbcTemplate.queryForObject(
+                "SELECT user_id FROM tenmo_user WHERE username = 'gen_a_7'", Integer.class));
+        Assert.assertEquals(Integer.valueOf(TRANSFERS), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transfer WHERE transfer_id >= ?", Integer.class, dataset.getFirstTransferId()));
+        // The sequences moved past the generated ids, so new rows don't collide with them
+        Assert.assertTrue(jdbcTemplate.queryForObject("SELECT nextval('seq_transfer_id')", Integer.class)
+                >= dataset.getFirstTransferId() + TRANSFERS);
+    }
+
+    @Test
+    public void same_seed_generates_same_rows() {
+        List<String> first = transfers(sut.generate(spec("gen_a_", 42)));
+        List<String> second = transfers(sut.generate(spec("gen_b_", 42)));
+        List<String> otherSeed = transfers(sut.generate(spec("gen_c_", 43)));
+
+        Assert.assertEquals(first, second);
+        Assert.assertNotEquals(first, otherSeed);
+    }
+
+    @Test
+    public void transfers_follow_the_spec_distributions() {
+        DatasetGenerator.Dataset dataset = sut.generate(spec("gen_a_", 42));
+        int firstAccountId = dataset.getFirstAccountId();
+
+        // With an exponent of 1 the heaviest sender sends 1 / H(1000), about 13%, of all transfers
+        List<Integer> topSenders = jdbcTemplate.queryForList("SELECT account_from - ? FROM transfer WHERE transfer_id >= ? " +
+                "GROUP BY account_from ORDER BY COUNT(*) DESC LIMIT 2", Integer.class, firstAccountId, dataset.getFirstTransferId());
+        Assert.assertEquals(List.of(0, 1), topSenders);
+        double topShare = share("account_from = ?", dataset, firstAccountId);
+        Assert.assertEquals(0.134, topShare, 0.02);
+
+        // The last 10 accounts get the hot share plus their even share of the rest
+        double hotShare = share("account_to >= ?", dataset, firstAccountId + USERS - 10);
+        Assert.assertEquals(0.1 + 0.9 * 10 / USERS, hotShare, 0.01);
+
+        double pendingShare = share("transfer_status_id = (SELECT transfer_status_id FROM transfer_status " +
+                "WHERE transfer_status_desc = ?)", dataset, "Pending");
+        Assert.assertEquals(0.02, pendingShare, 0.005);
+    }
+
+    private double share(String condition, DatasetGenerator.Dataset dataset, Object parameter) {
+        int matching = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transfer WHERE transfer_id >= ? AND " + condition,
+                int.class, dataset.getFirstTransferId(), parameter);
+        return (double) matching / TRANSFERS;
+    }
+
+    // Each transfer with its ids made relative to where the dataset's ids start
+    private List<String> transfers(DatasetGenerator.Dataset dataset) {
+        return jdbcTemplate.queryForList("SELECT concat_ws(',', transfer_id - ?, transfer_type_id, transfer_status_id, " +
+                        "account_from - ?, account_to - ?, amount) FROM transfer WHERE transfer_id BETWEEN ? AND ? ORDER BY transfer_id",
+                String.class, dataset.getFirstTransferId(), dataset.getFirstAccountId(), dataset.getFirstAccountId(),
+                dataset.getFirstTransferId(), dataset.getFirstTransferId() + TRANSFERS - 1);
+    }
+
+    private DatasetSpec spec(String usernamePrefix, long seed) {
+        DatasetSpec spec = new DatasetSpec();
+        spec.setUsernamePrefix(usernamePrefix);
+        spec.setUsers(USERS);
+        spec.setTransfers(TRANSFERS);
+        spec.setSeed(seed);
+        return spec;
+    }
+}
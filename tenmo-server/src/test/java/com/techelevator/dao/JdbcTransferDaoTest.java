@@ -3,8 +3,11 @@ import com.techelevator.tenmo.dao.JdbcTransferDao;
 import com.techelevator.tenmo.dao.JdbcUserDao;
 import com.techelevator.tenmo.dao.TransferDao;
 import com.techelevator.tenmo.exception.DaoException;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
 import com.techelevator.tenmo.model.Account;
 import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferPage;
+import com.techelevator.tenmo.model.TransferResult;
 import com.techelevator.tenmo.model.User;
 import org.junit.*;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -74,12 +77,69 @@ public class JdbcTransferDaoTest extends BaseDaoTests {
     }
 
     @Test
-    public void updateAccountBalances_should_update_both_balances_correctly() {
-        Transfer transfer = sut.retrieveTransferById(3001);
-        sut.updateAccountBalances(transfer);
+    public void sendTransfer_moves_money_and_posts_transfer() {
+        Transfer sentTransfer = sut.sendTransfer(testTransfer);
+        Assert.assertNotNull("Send should have been applied.", sentTransfer);
+        Assert.assertTrue("Did not return a new Id.", sentTransfer.getTransferId() > 0);
 
-        Assert.assertEquals("Sender's balance did not update correctly.",BigDecimal.valueOf(900.00).setScale(2), retrieveAccountBalanceByUserId(1001));
-        Assert.assertEquals("Recipient's balance did not update correctly.",BigDecimal.valueOf(2100.00).setScale(2), retrieveAccountBalanceByUserId(1002));
+        Assert.assertEquals("Sender's balance did not update correctly.", BigDecimal.valueOf(1975.00).setScale(2), retrieveAccountBalanceByUserId(1002));
+        Assert.assertEquals("Recipient's balance did not update correctly.", BigDecimal.valueOf(1025.00).setScale(2), retrieveAccountBalanceByUserId(1001));
+
+        Transfer retrievedTransfer = sut.retrieveTransferById(sentTransfer.getTransferId());
+        assertTransfersMatch(sentTransfer, retrievedTransfer);
+    }
+
+    @Test
+    public void sendTransfer_with_insufficient_funds_changes_nothing() {
+        Transfer transfer = new Transfer(0, 1001, 1002, BigDecimal.valueOf(1000.01), "Send", "Approved", "user1", "user2");
+
+        Assert.assertNull("Send should have been rejected.", sut.sendTransfer(transfer));
+        Assert.assertEquals("Sender's balance should not have changed.", BigDecimal.valueOf(1000.00).setScale(2), retrieveAccountBalanceByUserId(1001));
+        Assert.assertEquals("Recipient's balance should not have changed.", BigDecimal.valueOf(2000.00).setScale(2), retrieveAccountBalanceByUserId(1002));
+        Assert.assertEquals("No transfer should have been posted.", 3, sut.retrieveListOfTransfers(1001, 0, 50).getTransfers().size());
+    }
+
+    @Test
+    public void sendTransfers_applies_funded_sends_in_order_and_reports_the_rest() {
+        List<Transfer> batch = new ArrayList<>();
+        batch.add(new Transfer(0, 1001, 1002, BigDecimal.valueOf(600.00), "Send", "Approved", null, null));
+        batch.add(new Transfer(0, 1001, 1003, BigDecimal.valueOf(600.00), "Send", "Approved", null, null));
+        batch.add(new Transfer(0, 1003, 1001, BigDecimal.valueOf(300.00), "Send", "Approved", null, null));
+        batch.add(new Transfer(0, 1003, 9999, BigDecimal.valueOf(1.00), "Send", "Approved", null, null));
+
+        List<TransferResult> results = sut.sendTransfers(batch);
+        Assert.assertEquals("Every transfer should have a result.", 4, results.size());
+
+        // user1 can cover the first send but not the second
+        Assert.assertTrue(results.get(0).isSuccessful());
+        Assert.assertTrue(results.get(0).getTransfer().getTransferId() > 0);
+        Assert.assertFalse(results.get(1).isSuccessful());
+        Assert.assertEquals(0, results.get(1).getTransfer().getTransferId());
+        Assert.assertTrue(results.get(2).isSuccessful());
+        Assert.assertFalse("A missing recipient should be reported, not applied.", results.get(3).isSuccessful());
+
+        Assert.assertEquals(BigDecimal.valueOf(700.00).setScale(2), retrieveAccountBalanceByUserId(1001));
+        Assert.assertEquals(BigDecimal.valueOf(2600.00).setScale(2), retrieveAccountBalanceByUserId(1002));
+        Assert.assertEquals(BigDecimal.valueOf(2700.00).setScale(2), retrieveAccountBalanceByUserId(1003));
+
+        Transfer retrievedTransfer = sut.retrieveTransferById(results.get(2).getTransfer().getTransferId());
+        Assert.assertEquals("user3", retrievedTransfer.getSenderUsername());
+        Assert.assertEquals("user1", retrievedTransfer.getRecipientUsername());
+    }
+
+    @Test
+    public void approveTransfer_should_update_both_balances_and_the_status() {
+        Transfer transfer = sut.retrieveTransferById(3002);
+        Assert.assertTrue(sut.approveTransfer(transfer));
+
+        Assert.assertEquals("Sender's balance did not update correctly.",BigDecimal.valueOf(800.00).setScale(2), retrieveAccountBalanceByUserId(1001));
+        Assert.assertEquals("Recipient's balance did not update correctly.",BigDecimal.valueOf(2200.00).setScale(2), retrieveAccountBalanceByUserId(1002));
+        Assert.assertEquals("Approved", sut.retrieveTransferById(3002).getStatus());
+    }
+
+    @Test(expected = TransferNotPendingException.class)
+    public void approveTransfer_of_a_transfer_that_is_not_pending_throws() {
+        sut.approveTransfer(sut.retrieveTransferById(3001));
     }
 
 
@@ -100,8 +160,8 @@ public class JdbcTransferDaoTest extends BaseDaoTests {
 
     @Test
     public void retrieveListOfTransfers_should_return_all_transfers_associated_with_user_id() {
-        List<Transfer> transfersForUserTwo = sut.retrieveListOfTransfers(1002);
-        List<Transfer> transfersForUserThree = sut.retrieveListOfTransfers(1003);
+        List<Transfer> transfersForUserTwo = sut.retrieveListOfTransfers(1002, 0, 50).getTransfers();
+        List<Transfer> transfersForUserThree = sut.retrieveListOfTransfers(1003, 0, 50).getTransfers();
 
         // Assert transfers come back no matter if the user is the sender or recipient
         Assert.assertEquals("List of transfers was incorrect size for given user.", 4 , transfersForUserTwo.size());
@@ -112,17 +172,43 @@ public class JdbcTransferDaoTest extends BaseDaoTests {
         assertTransfersMatch(TRANSFER_3003 , transfersForUserThree.get(0));
     }
 
+    @Test
+    public void retrieveListOfTransfers_pages_through_history_with_the_cursor() {
+        TransferPage firstPage = sut.retrieveListOfTransfers(1002, 0, 3);
+        Assert.assertEquals(3, firstPage.getTransfers().size());
+        Assert.assertEquals(Integer.valueOf(3003), firstPage.getNextCursor());
+
+        TransferPage lastPage = sut.retrieveListOfTransfers(1002, firstPage.getNextCursor(), 3);
+        Assert.assertEquals(1, lastPage.getTransfers().size());
+        assertTransfersMatch(TRANSFER_3004, lastPage.getTransfers().get(0));
+        Assert.assertNull("The last page should not have a next cursor.", lastPage.getNextCursor());
+
+        // A page that exactly fills the limit is still the last one
+        Assert.assertNull(sut.retrieveListOfTransfers(1002, 0, 4).getNextCursor());
+    }
+
+    @Test
+    public void exportTransfers_hands_over_every_transfer_for_the_user_in_order() {
+        List<Transfer> exported = new ArrayList<>();
+
+        sut.exportTransfers(1002, exported::add);
+
+        Assert.assertEquals("Exported transfers were incorrect size for given user.", 4, exported.size());
+        assertTransfersMatch(TRANSFER_3001, exported.get(0));
+        assertTransfersMatch(TRANSFER_3004, exported.get(3));
+    }
+
     @Test
     public void retrieveListOfPendingTransfers_should_return_only_pending_transfers_associated_with_current_user() {
         // Asserting request transfers for user one
-        List<Transfer> requestTransfersForUserOne = sut.retrieveListOfPendingTransfers(1001);
+        List<Transfer> requestTransfersForUserOne = sut.retrieveListOfPendingTransfers(1001, 0, 50).getTransfers();
         // Asserting list size
         Assert.assertEquals("List of pending transfers for given user was incorrect size.", 1, requestTransfersForUserOne.size());
         // Asserting transfers match
         assertTransfersMatch(TRANSFER_3002, requestTransfersForUserOne.get(0));
 
         // Asserting that a user with no pending requests receives an empty list
-        List<Transfer> requestTransfersForUserThree = sut.retrieveListOfPendingTransfers(1003);
+        List<Transfer> requestTransfersForUserThree = sut.retrieveListOfPendingTransfers(1003, 0, 50).getTransfers();
         Assert.assertEquals("List of pending transfers for given user was incorrect size.", 0, requestTransfersForUserThree.size());
     }
 
@@ -154,6 +240,23 @@ public class JdbcTransferDaoTest extends BaseDaoTests {
         assertTransfersMatch(pulledTransfer, updatedTransfer);
     }
 
+    @Test
+    public void createTransfer_matches_type_and_status_case_insensitively() {
+        Transfer created = sut.createTransfer(new Transfer(0, 1001, 1003, BigDecimal.valueOf(5.00), "request", "PENDING", null, null));
+
+        Transfer pulledTransfer = sut.retrieveTransferById(created.getTransferId());
+        Assert.assertEquals("Request", pulledTransfer.getType());
+        Assert.assertEquals("Pending", pulledTransfer.getStatus());
+    }
+
+    @Test(expected = DaoException.class)
+    public void updateTransferStatus_with_unknown_status_throws() {
+        Transfer pulledTransfer = sut.retrieveTransferById(3002);
+        pulledTransfer.setStatus("Cancelled");
+
+        sut.updateTransferStatus(pulledTransfer);
+    }
+
     private BigDecimal retrieveAccountBalanceByUserId(int userId) {
         String sql = "SELECT balance FROM account WHERE user_id = ?";
         BigDecimal accountBalance = new BigDecimal(0.00);
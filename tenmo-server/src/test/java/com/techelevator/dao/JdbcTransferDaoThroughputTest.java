@@ -0,0 +1,188 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.concurrency.ContentionMetrics;
+import com.techelevator.tenmo.concurrency.OptimisticRetry;
+import com.techelevator.tenmo.dao.JdbcTransferDao;
+import com.techelevator.tenmo.dao.TransferDao;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class JdbcTransferDaoThroughputTest extends PooledDaoTests {
+
+    private static final int SENDERS = 64;
+    private static final int SENDS_PER_SENDER = 50;
+    private static final int BATCH_COMPARISON_SENDS = 10000;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private TransferDao sut;
+    private List<Integer> userIds;
+
+    @Before
+    public void setup() {
+        sut = new JdbcTransferDao(jdbcTemplate);
+        userIds = createAccounts(SENDERS);
+    }
+
+    @Test
+    public void sendTransfer_loses_no_updates_under_concurrent_opposing_sends() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Every sender alternates between its right and left neighbour, so each pair of neighbours sends in both
+        // directions at the same time and every account should end where it started.
+        for (int i = 0; i < SENDERS; i++) {
+            int senderId = userIds.get(i);
+            int rightId = userIds.get((i + 1) % SENDERS);
+            int leftId = userIds.get((i + SENDERS - 1) % SENDERS);
+            results.add(executor.submit(() -> {
+                start.await();
+                int applied = 0;
+                for (int n = 0; n < SENDS_PER_SENDER; n++) {
+                    int recipientId = n % 2 == 0 ? rightId : leftId;
+                    Transfer transfer = new Transfer(0, senderId, recipientId, AMOUNT, "Send", "Approved", null, null);
+                    if (sut.sendTransfer(transfer) != null) {
+                        applied++;
+                    }
+                }
+                return applied;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        int applied = 0;
+        for (Future<Integer> result : results) {
+            applied += result.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        executor.shutdown();
+
+        System.out.printf("sendTransfer: %d transfers from %d concurrent senders in %d ms (%.0f transfers/sec)%n",
+                applied, SENDERS, elapsedMillis, applied * 1000.0 / elapsedMillis);
+
+        Assert.assertEquals("Every send should have been applied.", SENDERS * SENDS_PER_SENDER, applied);
+        for (int userId : userIds) {
+            Assert.assertEquals("Balance drifted for user " + userId, STARTING_BALANCE, balanceOf(userId));
+        }
+        Assert.assertEquals("Every applied send should have posted exactly one transfer.", applied, transferCount());
+    }
+
+    @Test
+    public void approveTransfer_retries_conflicts_without_losing_updates() throws Exception {
+        ContentionMetrics metrics = new ContentionMetrics(new SimpleMeterRegistry());
+        OptimisticRetry retry = new OptimisticRetry(metrics, 100, 1, 20);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(pool));
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+
+        // Same opposing pattern as the sends above, but through the read-then-write path used for approvals
+        for (int i = 0; i < SENDERS; i++) {
+            int senderId = userIds.get(i);
+            int rightId = userIds.get((i + 1) % SENDERS);
+            int leftId = userIds.get((i + SENDERS - 1) % SENDERS);
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int n = 0; n < SENDS_PER_SENDER; n++) {
+                    int recipientId = n % 2 == 0 ? rightId : leftId;
+                    Transfer transfer = sut.createTransfer(new Transfer(0, senderId, recipientId, AMOUNT, "Request", "Pending", null, null));
+                    Assert.assertTrue(retry.execute(() -> transactionTemplate.execute(status -> sut.approveTransfer(transfer))));
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        System.out.printf("approveTransfer: %d updates from %d concurrent senders, %.0f version conflicts retried%n",
+                SENDERS * SENDS_PER_SENDER, SENDERS, metrics.conflictCount());
+
+        for (int userId : userIds) {
+            Assert.assertEquals("Balance drifted for user " + userId, STARTING_BALANCE, balanceOf(userId));
+        }
+    }
+
+    @Test
+    public void approveTransfer_moves_the_money_once_when_approved_concurrently() throws Exception {
+        OptimisticRetry retry = new OptimisticRetry(new ContentionMetrics(new SimpleMeterRegistry()), 100, 1, 20);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(pool));
+        Transfer request = sut.createTransfer(new Transfer(0, userIds.get(0), userIds.get(1), AMOUNT, "Request", "Pending", null, null));
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        for (int i = 0; i < SENDERS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return retry.execute(() -> transactionTemplate.execute(status -> sut.approveTransfer(request)));
+                } catch (TransferNotPendingException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int approved = 0;
+        for (Future<Boolean> result : results) {
+            approved += result.get(2, TimeUnit.MINUTES) ? 1 : 0;
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(1, approved);
+        Assert.assertEquals(STARTING_BALANCE.subtract(AMOUNT), balanceOf(userIds.get(0)));
+        Assert.assertEquals(STARTING_BALANCE.add(AMOUNT), balanceOf(userIds.get(1)));
+        Assert.assertEquals("Approved", sut.retrieveTransferById(request.getTransferId()).getStatus());
+    }
+
+    @Test
+    public void sendTransfers_batch_outpaces_single_sends() {
+        List<Transfer> transfers = new ArrayList<>(BATCH_COMPARISON_SENDS);
+        for (int n = 0; n < BATCH_COMPARISON_SENDS; n++) {
+            int senderId = userIds.get(n % SENDERS);
+            int recipientId = userIds.get((n + 1) % SENDERS);
+            transfers.add(new Transfer(0, senderId, recipientId, new BigDecimal("0.01"), "Send", "Approved", null, null));
+        }
+
+        long startNanos = System.nanoTime();
+        for (Transfer transfer : transfers) {
+            Assert.assertNotNull(sut.sendTransfer(transfer));
+        }
+        long singleMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        // Spring applies @Transactional in the running server; here the transaction is opened by hand
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(pool));
+        startNanos = System.nanoTime();
+        List<TransferResult> results = transactionTemplate.execute(status -> sut.sendTransfers(transfers));
+        long batchMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        System.out.printf("sendTransfer x %d: %d ms (%.0f transfers/sec), sendTransfers: %d ms (%.0f transfers/sec)%n",
+                BATCH_COMPARISON_SENDS, singleMillis, BATCH_COMPARISON_SENDS * 1000.0 / singleMillis,
+                batchMillis, BATCH_COMPARISON_SENDS * 1000.0 / batchMillis);
+
+        for (TransferResult result : results) {
+            Assert.assertTrue(result.getMessage(), result.isSuccessful());
+        }
+        Assert.assertEquals("Money was created or lost.", STARTING_BALANCE.multiply(BigDecimal.valueOf(SENDERS)), totalBalance());
+    }
+}
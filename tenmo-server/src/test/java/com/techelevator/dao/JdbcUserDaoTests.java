@@ -2,7 +2,6 @@ package com.techelevator.dao;
 
 import com.techelevator.tenmo.dao.JdbcUserDao;
 import com.techelevator.tenmo.exception.DaoException;
-import com.techelevator.tenmo.model.RegisterUserDto;
 import com.techelevator.tenmo.model.User;
 import org.junit.Assert;
 import org.junit.Before;
@@ -11,6 +10,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 public class JdbcUserDaoTests extends BaseDaoTests {
@@ -70,39 +70,55 @@ public class JdbcUserDaoTests extends BaseDaoTests {
 
     @Test(expected = DaoException.class)
     public void createUser_with_null_username() {
-        RegisterUserDto registerUserDto = new RegisterUserDto();
-        registerUserDto.setUsername(null);
-        registerUserDto.setPassword(USER_1.getPassword());
-        sut.createUser(registerUserDto);
+        sut.createUser(null, USER_1.getPassword());
     }
 
     @Test(expected = DaoException.class)
     public void createUser_with_existing_username() {
-        RegisterUserDto registerUserDto = new RegisterUserDto();
-        registerUserDto.setUsername(USER_1.getUsername());
-        registerUserDto.setPassword(USER_3.getPassword());
-        sut.createUser(registerUserDto);
+        sut.createUser(USER_1.getUsername(), USER_3.getPassword());
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void createUser_with_null_password() {
-        RegisterUserDto registerUserDto = new RegisterUserDto();
-        registerUserDto.setUsername(USER_3.getUsername());
-        registerUserDto.setPassword(null);
-        sut.createUser(registerUserDto);
+        sut.createUser(USER_3.getUsername(), null);
     }
 
     @Test
     public void createUser_creates_a_user() {
-        RegisterUserDto user = new RegisterUserDto();
-        user.setUsername("new");
-        user.setPassword("USER");
-
-        User createdUser = sut.createUser(user);
+        User createdUser = sut.createUser("new", "USER");
 
         Assert.assertNotNull(createdUser);
 
         User retrievedUser = sut.getUserByUsername(createdUser.getUsername());
         Assert.assertEquals(retrievedUser, createdUser);
     }
+
+    @Test
+    public void createUser_opens_an_account_for_the_user() {
+        User createdUser = sut.createUser("new", "USER");
+
+        BigDecimal balance = new JdbcTemplate(dataSource).queryForObject("SELECT balance FROM account WHERE user_id = ?",
+                BigDecimal.class, createdUser.getId());
+        Assert.assertEquals(new BigDecimal("1000.00"), balance);
+    }
+
+    @Test
+    public void importUsers_skips_taken_usernames() {
+        List<User> users = List.of(
+                new User(0, "imported", "hash", "USER"),
+                new User(0, USER_1.getUsername(), "hash", "USER"),
+                new User(0, "imported", "other hash", "USER"),
+                new User(0, "with \"quotes\", and a comma", "hash", "USER"));
+
+        int imported = sut.importUsers(users);
+
+        Assert.assertEquals(2, imported);
+        Assert.assertEquals(USER_1, sut.getUserByUsername(USER_1.getUsername()));
+        Assert.assertNotNull(sut.getUserByUsername("with \"quotes\", and a comma"));
+        User importedUser = sut.getUserByUsername("imported");
+        Assert.assertEquals("hash", importedUser.getPassword());
+        Integer accounts = new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM account WHERE user_id = ?",
+                Integer.class, importedUser.getId());
+        Assert.assertEquals(Integer.valueOf(1), accounts);
+    }
 }
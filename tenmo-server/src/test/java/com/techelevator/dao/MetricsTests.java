@@ -0,0 +1,95 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.dao.JdbcUserDao;
+import com.techelevator.tenmo.dao.UserDao;
+import com.techelevator.tenmo.metrics.DaoMetricsPostProcessor;
+import com.techelevator.tenmo.metrics.TransferMetrics;
+import com.techelevator.tenmo.model.Transfer;
+import com.techelevator.tenmo.model.TransferResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsTests extends BaseDaoTests {
+
+    private MeterRegistry registry;
+    private DaoMetricsPostProcessor postProcessor;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        postProcessor = new DaoMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+        postProcessor.setBeanFactory(beanFactory);
+    }
+
+    @Test
+    public void dao_calls_are_timed_per_method() {
+        UserDao dao = (UserDao) postProcessor.postProcessAfterInitialization(
+                new JdbcUserDao(new JdbcTemplate(dataSource)), "jdbcUserDao");
+
+        dao.getUsers();
+        dao.getUsers();
+        dao.getUserById(1001);
+
+        Assert.assertEquals(2, timer("getUsers", "none").count());
+        Assert.assertEquals(1, timer("getUserById", "none").count());
+        Assert.assertTrue(timer("getUsers", "none").totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void dao_calls_that_throw_are_timed_under_the_exception() {
+        UserDao dao = (UserDao) postProcessor.postProcessAfterInitialization(
+                new JdbcUserDao(new JdbcTemplate(dataSource)), "jdbcUserDao");
+
+        try {
+            dao.getUserByUsername(null);
+            Assert.fail("Expected getUserByUsername(null) to throw");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        Assert.assertEquals(1, timer("getUserByUsername", "IllegalArgumentException").count());
+        Assert.assertEquals(0, timer("getUserByUsername", "none").count());
+    }
+
+    @Test
+    public void beans_that_are_not_daos_are_left_alone() {
+        Object bean = new Object();
+
+        Assert.assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "other"));
+    }
+
+    @Test
+    public void batch_results_are_counted_by_outcome() {
+        TransferMetrics sut = new TransferMetrics(registry);
+
+        sut.recordBatch(Arrays.asList(
+                TransferResult.applied(new Transfer()),
+                TransferResult.applied(new Transfer()),
+                TransferResult.failed(new Transfer(), TransferResult.INSUFFICIENT_FUNDS),
+                TransferResult.failed(new Transfer(), "Only sends can be submitted in a batch.")));
+
+        Assert.assertEquals(2, transfers("sent"), 0);
+        Assert.assertEquals(1, transfers("insufficient_funds"), 0);
+        Assert.assertEquals(1, transfers("failed"), 0);
+    }
+
+    private Timer timer(String method, String exception) {
+        return registry.get(DaoMetricsPostProcessor.METRIC_NAME)
+                .tags("dao", "UserDao", "method", method, "exception", exception).timer();
+    }
+
+    private double transfers(String outcome) {
+        return registry.get(TransferMetrics.METRIC_NAME).tags("outcome", outcome, "source", "batch").counter().count();
+    }
+}
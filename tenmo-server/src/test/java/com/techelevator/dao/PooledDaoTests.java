@@ -0,0 +1,76 @@
+package com.techelevator.dao;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    The other DAO tests share one connection that is rolled back after each test, so they can't show what happens
+    when transfers race each other or how fast they go. Tests extending this class commit through their own
+    connection pool against freshly created accounts, which are removed again after each test.
+ */
+public abstract class PooledDaoTests extends BaseDaoTests {
+
+    protected static final BigDecimal STARTING_BALANCE = new BigDecimal("1000.00");
+    protected static final String USERNAME_PREFIX = "pooled_user_";
+
+    private static final int POOL_SIZE = 64;
+
+    protected HikariDataSource pool;
+    protected JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void createPool() {
+        SingleConnectionDataSource testDataSource = (SingleConnectionDataSource) dataSource;
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(testDataSource.getUrl());
+        pool.setUsername(testDataSource.getUsername());
+        pool.setPassword(testDataSource.getPassword());
+        pool.setMaximumPoolSize(POOL_SIZE);
+
+        jdbcTemplate = new JdbcTemplate(pool);
+    }
+
+    @After
+    public void removeAccounts() {
+        String accountsSql = "SELECT account_id FROM account JOIN tenmo_user USING (user_id) WHERE username LIKE '" + USERNAME_PREFIX + "%'";
+        jdbcTemplate.update("DELETE FROM transfer WHERE account_from IN (" + accountsSql + ") OR account_to IN (" + accountsSql + ")");
+        jdbcTemplate.update("DELETE FROM account WHERE account_id IN (" + accountsSql + ")");
+        jdbcTemplate.update("DELETE FROM tenmo_user WHERE username LIKE '" + USERNAME_PREFIX + "%'");
+        pool.close();
+    }
+
+    /**
+     * Creates users with accounts holding STARTING_BALANCE and returns their user ids.
+     */
+    protected List<Integer> createAccounts(int count) {
+        List<Integer> userIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int userId = jdbcTemplate.queryForObject("INSERT INTO tenmo_user (username, password_hash) VALUES (?, 'x') RETURNING user_id",
+                    int.class, USERNAME_PREFIX + i);
+            jdbcTemplate.update("INSERT INTO account (user_id, balance) VALUES (?, ?)", userId, STARTING_BALANCE);
+            userIds.add(userId);
+        }
+        return userIds;
+    }
+
+    protected BigDecimal balanceOf(int userId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE user_id = ?", BigDecimal.class, userId);
+    }
+
+    protected BigDecimal totalBalance() {
+        return jdbcTemplate.queryForObject("SELECT SUM(balance) FROM account JOIN tenmo_user USING (user_id) " +
+                "WHERE username LIKE '" + USERNAME_PREFIX + "%'", BigDecimal.class);
+    }
+
+    protected int transferCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transfer JOIN account ON account_from = account_id " +
+                "JOIN tenmo_user USING (user_id) WHERE username LIKE '" + USERNAME_PREFIX + "%'", int.class);
+    }
+}
@@ -0,0 +1,206 @@
+package com.techelevator.dao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techelevator.tenmo.admin.DatasetGenerator;
+import com.techelevator.tenmo.admin.DatasetSpec;
+import com.techelevator.tenmo.dao.BalanceCache;
+import com.techelevator.tenmo.dao.JdbcTransferDao;
+import com.techelevator.tenmo.dao.JdbcUserDao;
+import com.techelevator.tenmo.dao.TransferDao;
+import com.techelevator.tenmo.dao.UserDao;
+import com.techelevator.tenmo.model.Transfer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+    Runs each DAO method against a seeded database, then EXPLAINs every statement it sent with the same parameters
+    and fails if a WHERE condition is applied by a sequential scan, or a table is read through an index scan that has
+    no condition on the index. A query that loses its index shows up here instead of as a slow endpoint once the
+    tables grow. An unfiltered sequential scan is allowed: that's the planner hashing a small table for a join, as it
+    does with account when a long history is joined back to usernames.
+
+    retrieveListOfUsers, getUsers and the transfer_type/transfer_status reads in TransferLookups return whole tables,
+    so they aren't checked.
+ */
+public class QueryPlanTests extends BaseDaoTests {
+
+    private static final int SEEDED_USERS = 5000;
+    private static final int SEEDED_TRANSFERS = 50000;
+    private static final Set<String> INDEX_SCANS = new HashSet<>(Arrays.asList("Index Scan", "Index Only Scan", "Bitmap Index Scan"));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JdbcTemplate jdbcTemplate;
+    private StatementRecordingDataSource recording;
+    private TransferDao transferDao;
+    private UserDao userDao;
+    private int heavyUserId;
+    private int otherUserId;
+    private int lateTransferId;
+
+    @Before
+    public void setup() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        seed();
+
+        recording = new StatementRecordingDataSource(dataSource);
+        JdbcTemplate recordingTemplate = new JdbcTemplate(recording);
+        transferDao = new JdbcTransferDao(recordingTemplate);
+        userDao = new JdbcUserDao(recordingTemplate);
+        recording.clear();
+    }
+
+    @Test
+    public void retrieveAccountBalance_uses_indexes() {
+        // Once by username, then by the user id the cache learned from the first read
+        TransferDao cachingDao = new JdbcTransferDao(new JdbcTemplate(recording), new BalanceCache(null, 100, 30));
+        cachingDao.retrieveAccountBalance("PLAN_USER_1");
+        cachingDao.retrieveAccountBalance("PLAN_USER_1");
+        assertNoFullScans();
+    }
+
+    @Test
+    public void validateTransfer_uses_indexes() {
+        transferDao.validateTransfer(transfer("Send", "Approved"));
+        assertNoFullScans();
+    }
+
+    @Test
+    public void createTransfer_uses_indexes() {
+        transferDao.createTransfer(transfer("Request", "Pending"));
+        assertNoFullScans();
+    }
+
+    @Test
+    public void sendTransfer_uses_indexes() {
+        transferDao.sendTransfer(transfer("Send", "Approved"));
+        assertNoFullScans();
+    }
+
+    @Test
+    public void sendTransfers_uses_indexes() {
+        transferDao.sendTransfers(List.of(transfer("Send", "Approved"), transfer("Send", "Approved")));
+        assertNoFullScans();
+    }
+
+    @Test
+    public void approveTransfer_uses_indexes() {
+        Transfer request = transferDao.createTransfer(transfer("Request", "Pending"));
+        recording.clear();
+        transferDao.approveTransfer(request);
+        assertNoFullScans();
+    }
+
+    @Test
+    public void retrieveListOfTransfers_uses_indexes() {
+        transferDao.retrieveListOfTransfers(heavyUserId, 0, 50);
+        transferDao.retrieveListOfTransfers(heavyUserId, lateTransferId, 50);
+        assertNoFullScans();
+    }
+
+    @Test
+    public void retrieveListOfPendingTransfers_uses_status_index() {
+        transferDao.retrieveListOfPendingTransfers(heavyUserId, 0, 50);
+        Set<String> indexes = assertNoFullScans();
+        Assert.assertTrue("Pending transfers should be read through the status index, used " + indexes,
+                indexes.contains("ix_transfer_account_from_status"));
+    }
+
+    @Test
+    public void exportTransfers_uses_indexes() {
+        transferDao.exportTransfers(heavyUserId, transfer -> { });
+        assertNoFullScans();
+    }
+
+    @Test
+    public void retrieveTransferById_and_updateTransferStatus_use_indexes() {
+        Transfer transfer = transferDao.retrieveTransferById(3002);
+        transfer.setStatus("Rejected");
+        transferDao.updateTransferStatus(transfer);
+        assertNoFullScans();
+    }
+
+    @Test
+    public void user_lookups_use_indexes() {
+        userDao.getUserById(heavyUserId);
+        userDao.getUserByUsername("plan_user_1");
+        userDao.createUser("plan_new_user", "hash");
+        assertNoFullScans();
+    }
+
+    private Transfer transfer(String type, String status) {
+        return new Transfer(0, heavyUserId, otherUserId, new BigDecimal("1.00"), type, status, null, null);
+    }
+
+    // Enough users and transfers that a missing index costs more than using one. With the default zipf skew the user
+    // at index 0 sends over a tenth of them, which gives one long history to page through.
+    private void seed() {
+        DatasetSpec spec = new DatasetSpec();
+        spec.setUsernamePrefix("plan_user_");
+        spec.setUsers(SEEDED_USERS);
+        spec.setTransfers(SEEDED_TRANSFERS);
+        DatasetGenerator.Dataset dataset = new DatasetGenerator(jdbcTemplate).generate(spec);
+
+        heavyUserId = dataset.getFirstUserId();
+        otherUserId = dataset.getFirstUserId() + 1;
+        lateTransferId = dataset.getFirstTransferId() + SEEDED_TRANSFERS * 4 / 5;
+    }
+
+    /**
+     * EXPLAINs every statement recorded since setup and returns the names of the indexes they use.
+     */
+    private Set<String> assertNoFullScans() {
+        List<StatementRecordingDataSource.RecordedStatement> statements = recording.getStatements();
+        Assert.assertFalse("No statements were recorded.", statements.isEmpty());
+
+        Set<String> indexes = new HashSet<>();
+        try {
+            Connection connection = dataSource.getConnection();
+            for (StatementRecordingDataSource.RecordedStatement statement : statements) {
+                try (PreparedStatement explain = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.getSql())) {
+                    statement.bindTo(explain);
+                    try (ResultSet rs = explain.executeQuery()) {
+                        rs.next();
+                        JsonNode plan = objectMapper.readTree(rs.getString(1)).get(0).get("Plan");
+                        List<String> problems = new ArrayList<>();
+                        checkPlan(plan, problems, indexes);
+                        Assert.assertTrue(statement.getSql() + "\n" + problems + "\n" + plan.toPrettyString(), problems.isEmpty());
+                    }
+                }
+            }
+        } catch (AssertionError e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not explain the recorded statements.", e);
+        }
+        return indexes;
+    }
+
+    private void checkPlan(JsonNode node, List<String> problems, Set<String> indexes) {
+        String nodeType = node.path("Node Type").asText();
+        if (nodeType.equals("Seq Scan") && node.has("Filter")) {
+            problems.add("Seq Scan on " + node.path("Relation Name").asText() + " filtering " + node.path("Filter").asText());
+        } else if (INDEX_SCANS.contains(nodeType)) {
+            indexes.add(node.path("Index Name").asText());
+            if (!node.has("Index Cond")) {
+                problems.add(nodeType + " with no Index Cond on " + node.path("Index Name").asText());
+            }
+        }
+        for (JsonNode child : node.path("Plans")) {
+            checkPlan(child, problems, indexes);
+        }
+    }
+}
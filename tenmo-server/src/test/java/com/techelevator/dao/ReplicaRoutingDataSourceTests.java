@@ -0,0 +1,140 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.datasource.RecentWriters;
+import com.techelevator.tenmo.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+    Two extra local databases stand in for replicas of the test database. None of them replicate, so asking each
+    connection for current_database() shows where a query was routed.
+ */
+public class ReplicaRoutingDataSourceTests extends PooledDaoTests {
+
+    private static final List<String> REPLICA_NAMES = Arrays.asList("TestTenmoReplica0", "TestTenmoReplica1");
+    private static final long READ_YOUR_WRITES_MILLIS = 300;
+    private static final long NO_SCHEDULED_CHECK = 3_600_000;
+
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+    private RecentWriters recentWriters;
+    private ReplicaRoutingDataSource router;
+    private JdbcTemplate routedJdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private String primaryName;
+
+    @Before
+    public void setup() {
+        primaryName = jdbcTemplate.queryForObject("SELECT current_database()", String.class);
+        for (String name : REPLICA_NAMES) {
+            jdbcTemplate.update("DROP DATABASE IF EXISTS \"" + name + "\"");
+            jdbcTemplate.update("CREATE DATABASE \"" + name + "\"");
+            replicaPools.add(pool(pool.getJdbcUrl().replace("/" + primaryName, "/" + name)));
+        }
+        recentWriters = new RecentWriters(READ_YOUR_WRITES_MILLIS);
+    }
+
+    @After
+    public void dropReplicas() throws Exception {
+        SecurityContextHolder.clearContext();
+        if (router != null) {
+            router.close();
+        }
+        for (HikariDataSource replicaPool : replicaPools) {
+            replicaPool.close();
+        }
+        for (String name : REPLICA_NAMES) {
+            jdbcTemplate.update("DROP DATABASE IF EXISTS \"" + name + "\"");
+        }
+    }
+
+    @Test
+    public void read_only_scopes_go_round_robin_to_replicas_and_everything_else_to_primary() {
+        route(new ArrayList<>(replicaPools));
+
+        Set<String> readFrom = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            readFrom.add(readOnly());
+        }
+
+        Assert.assertEquals(new HashSet<>(REPLICA_NAMES), readFrom);
+        Assert.assertEquals(primaryName, routedJdbcTemplate.queryForObject("SELECT current_database()", String.class));
+        Assert.assertEquals(primaryName, new TransactionTemplate(transactionManager).execute(
+                status -> routedJdbcTemplate.queryForObject("SELECT current_database()", String.class)));
+    }
+
+    @Test
+    public void recent_writer_reads_from_primary_until_window_passes() throws InterruptedException {
+        route(replicaPools.subList(0, 1));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null));
+        recentWriters.recordWrite("writer");
+
+        Assert.assertEquals(primaryName, readOnly());
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("someone_else", null));
+        Assert.assertEquals(REPLICA_NAMES.get(0), readOnly());
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null));
+        Thread.sleep(READ_YOUR_WRITES_MILLIS + 100);
+        Assert.assertEquals(REPLICA_NAMES.get(0), readOnly());
+    }
+
+    @Test
+    public void unreachable_replica_falls_back_to_primary_until_health_check_passes() {
+        HikariDataSource down = pool(pool.getJdbcUrl().replace("/" + primaryName, "/TestTenmoMissingReplica"));
+        down.setConnectionTimeout(250);
+        route(Arrays.asList(down, replicaPools.get(0)));
+
+        // The missing database is taken out of rotation on its first failure, leaving only the healthy replica
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(REPLICA_NAMES.get(0), readOnly());
+        }
+
+        replicaPools.get(0).close();
+        router.checkReplicas();
+        Assert.assertEquals("With every replica down reads should go to the primary.", primaryName, readOnly());
+    }
+
+    private void route(List<? extends DataSource> replicas) {
+        // The router closes the pools it's given, so the primary gets its own rather than the test's
+        router = new ReplicaRoutingDataSource(pool(pool.getJdbcUrl()), new ArrayList<>(replicas), recentWriters,
+                NO_SCHEDULED_CHECK, 1000);
+        DataSource routed = new LazyConnectionDataSourceProxy(router);
+        routedJdbcTemplate = new JdbcTemplate(routed);
+        transactionManager = new DataSourceTransactionManager(routed);
+    }
+
+    // Runs a query the way a @Transactional(readOnly = true, propagation = SUPPORTS) DAO method does
+    private String readOnly() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+        return readOnly.execute(status -> routedJdbcTemplate.queryForObject("SELECT current_database()", String.class));
+    }
+
+    private HikariDataSource pool(String url) {
+        HikariDataSource newPool = new HikariDataSource();
+        newPool.setJdbcUrl(url);
+        newPool.setUsername(pool.getUsername());
+        newPool.setPassword(pool.getPassword());
+        newPool.setMaximumPoolSize(2);
+        newPool.setInitializationFailTimeout(-1);
+        return newPool;
+    }
+}
@@ -0,0 +1,203 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.dao.JdbcTransferDao;
+import com.techelevator.tenmo.dao.SequencedTransferDao;
+import com.techelevator.tenmo.dao.TransferDao;
+import com.techelevator.tenmo.exception.TransferNotPendingException;
+import com.techelevator.tenmo.model.Transfer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class SequencedTransferDaoTest extends PooledDaoTests {
+
+    private static final int SENDERS = 64;
+    private static final int SENDS_PER_SENDER = 50;
+    private static final long NO_SCHEDULED_FLUSH = TimeUnit.HOURS.toMillis(1);
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Rule
+    public TemporaryFolder journalFolder = new TemporaryFolder();
+
+    private List<Integer> userIds;
+
+    @Before
+    public void setup() {
+        userIds = createAccounts(SENDERS);
+    }
+
+    @Test
+    public void sendTransfer_applies_in_memory_and_writes_behind_on_flush() throws Exception {
+        SequencedTransferDao sut = newSequencedDao(journalFolder.getRoot().getPath());
+        int sender = userIds.get(0);
+        int recipient = userIds.get(1);
+
+        Transfer sent = sut.sendTransfer(new Transfer(0, sender, recipient, new BigDecimal("100.00"), "Send", "Approved", null, null));
+
+        Assert.assertNotNull(sent);
+        Assert.assertEquals(new BigDecimal("900.00"), sut.retrieveAccountBalance(USERNAME_PREFIX + 0).getBalance());
+        Assert.assertEquals("The account table should not change before the flush.", STARTING_BALANCE, balanceOf(sender));
+
+        sut.flush();
+
+        Assert.assertEquals(new BigDecimal("900.00"), balanceOf(sender));
+        Assert.assertEquals(new BigDecimal("1100.00"), balanceOf(recipient));
+        Assert.assertEquals(new BigDecimal("100.00"), sut.retrieveTransferById(sent.getTransferId()).getAmount());
+        sut.close();
+    }
+
+    @Test
+    public void sendTransfer_with_insufficient_funds_changes_nothing() throws Exception {
+        SequencedTransferDao sut = newSequencedDao(journalFolder.getRoot().getPath());
+
+        Transfer sent = sut.sendTransfer(new Transfer(0, userIds.get(0), userIds.get(1), new BigDecimal("1000.01"), "Send", "Approved", null, null));
+        sut.close();
+
+        Assert.assertNull(sent);
+        Assert.assertEquals(STARTING_BALANCE, balanceOf(userIds.get(0)));
+        Assert.assertEquals(0, transferCount());
+    }
+
+    @Test
+    public void approveTransfer_moves_the_money_once_when_approved_twice() throws Exception {
+        SequencedTransferDao sut = newSequencedDao(journalFolder.getRoot().getPath());
+        Transfer request = sut.createTransfer(new Transfer(0, userIds.get(0), userIds.get(1), AMOUNT, "Request", "Pending", null, null));
+
+        Assert.assertTrue(sut.approveTransfer(request));
+        try {
+            sut.approveTransfer(request);
+            Assert.fail("The second approval should have been refused.");
+        } catch (TransferNotPendingException expected) {
+        }
+        sut.flush();
+        sut.close();
+
+        Assert.assertEquals(STARTING_BALANCE.subtract(AMOUNT), balanceOf(userIds.get(0)));
+        Assert.assertEquals(STARTING_BALANCE.add(AMOUNT), balanceOf(userIds.get(1)));
+        Assert.assertEquals("Approved", sut.retrieveTransferById(request.getTransferId()).getStatus());
+    }
+
+    @Test
+    public void restart_replays_journal_entries_that_were_never_flushed() throws Exception {
+        String journalDirectory = journalFolder.getRoot().getPath();
+        SequencedTransferDao crashed = newSequencedDao(journalDirectory);
+        for (int n = 0; n < 3; n++) {
+            Assert.assertNotNull(crashed.sendTransfer(new Transfer(0, userIds.get(0), userIds.get(1), AMOUNT, "Send", "Approved", null, null)));
+        }
+
+        // The first instance never flushes, as if the process died right after acknowledging the sends
+        SequencedTransferDao restarted = newSequencedDao(journalDirectory);
+        Assert.assertEquals(new BigDecimal("997.00"), restarted.retrieveAccountBalance(USERNAME_PREFIX + 0).getBalance());
+        restarted.flush();
+
+        Assert.assertEquals(new BigDecimal("997.00"), balanceOf(userIds.get(0)));
+        Assert.assertEquals(new BigDecimal("1003.00"), balanceOf(userIds.get(1)));
+        Assert.assertEquals(3, transferCount());
+
+        // A late flush of the same entries must not apply them twice
+        crashed.close();
+        restarted.close();
+        Assert.assertEquals(new BigDecimal("997.00"), balanceOf(userIds.get(0)));
+        Assert.assertEquals(3, transferCount());
+    }
+
+    @Test
+    public void restart_drops_a_record_torn_by_a_crash() throws Exception {
+        String journalDirectory = journalFolder.getRoot().getPath();
+        SequencedTransferDao crashed = newSequencedDao(journalDirectory);
+        for (int n = 0; n < 2; n++) {
+            Assert.assertNotNull(crashed.sendTransfer(new Transfer(0, userIds.get(0), userIds.get(1), AMOUNT, "Send", "Approved", null, null)));
+        }
+
+        // Cutting the last record off inside its status, as a crash partway through the write would
+        Path segment;
+        try (Stream<Path> segments = Files.list(journalFolder.getRoot().toPath())) {
+            segment = segments.filter(path -> path.toFile().length() > 0).max(Comparator.naturalOrder()).get();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - "oved\n".length()));
+
+        SequencedTransferDao restarted = newSequencedDao(journalDirectory);
+        Assert.assertEquals(new BigDecimal("999.00"), restarted.retrieveAccountBalance(USERNAME_PREFIX + 0).getBalance());
+        restarted.flush();
+        restarted.close();
+
+        Assert.assertEquals(new BigDecimal("999.00"), balanceOf(userIds.get(0)));
+        Assert.assertEquals(new BigDecimal("1001.00"), balanceOf(userIds.get(1)));
+        Assert.assertEquals(1, transferCount());
+    }
+
+    @Test
+    public void sequenced_engine_against_row_locking_on_a_hot_account() throws Exception {
+        // Every sender pays the same recipient, which serializes JdbcTransferDao on that one account row
+        TransferDao jdbcDao = new JdbcTransferDao(jdbcTemplate);
+        sendToHotAccount("JdbcTransferDao", jdbcDao, userIds.get(0));
+
+        SequencedTransferDao sequencedDao = newSequencedDao(journalFolder.getRoot().getPath());
+        sendToHotAccount("SequencedTransferDao", sequencedDao, userIds.get(0));
+        sequencedDao.close();
+
+        int sends = 2 * (SENDERS - 1) * SENDS_PER_SENDER;
+        Assert.assertEquals(STARTING_BALANCE.add(AMOUNT.multiply(BigDecimal.valueOf(sends))), balanceOf(userIds.get(0)));
+        Assert.assertEquals("Money was created or lost.", STARTING_BALANCE.multiply(BigDecimal.valueOf(SENDERS)), totalBalance());
+        Assert.assertEquals(sends, transferCount());
+    }
+
+    private SequencedTransferDao newSequencedDao(String journalDirectory) throws Exception {
+        return new SequencedTransferDao(jdbcTemplate, new DataSourceTransactionManager(pool), 4, journalDirectory, NO_SCHEDULED_FLUSH);
+    }
+
+    private void sendToHotAccount(String name, TransferDao dao, int recipientId) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+
+        long startNanos = System.nanoTime();
+        for (int i = 1; i < SENDERS; i++) {
+            int senderId = userIds.get(i);
+            results.add(executor.submit(() -> {
+                start.await();
+                long[] latencies = new long[SENDS_PER_SENDER];
+                for (int n = 0; n < SENDS_PER_SENDER; n++) {
+                    long sendStart = System.nanoTime();
+                    Assert.assertNotNull(dao.sendTransfer(new Transfer(0, senderId, recipientId, AMOUNT, "Send", "Approved", null, null)));
+                    latencies[n] = System.nanoTime() - sendStart;
+                }
+                return latencies;
+            }));
+        }
+        start.countDown();
+
+        long[] latencies = new long[(SENDERS - 1) * SENDS_PER_SENDER];
+        int index = 0;
+        for (Future<long[]> result : results) {
+            for (long latency : result.get(2, TimeUnit.MINUTES)) {
+                latencies[index++] = latency;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%s: %.0f transfers/sec from %d concurrent senders, p50 %.2f ms, p99 %.2f ms%n",
+                name, latencies.length / (elapsedNanos / 1e9), SENDERS - 1,
+                latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6);
+    }
+}
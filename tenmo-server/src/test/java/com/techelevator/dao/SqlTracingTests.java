@@ -0,0 +1,94 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.dao.JdbcUserDao;
+import com.techelevator.tenmo.dao.UserDao;
+import com.techelevator.tenmo.metrics.DaoMetricsPostProcessor;
+import com.techelevator.tenmo.model.User;
+import com.techelevator.tenmo.sqltrace.StatementTracer;
+import com.techelevator.tenmo.sqltrace.TracingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class SqlTracingTests extends BaseDaoTests {
+
+    private MeterRegistry registry;
+    private ObjectProvider<MeterRegistry> registryProvider;
+    private StatementTracer tracer;
+    private UserDao sut;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        registryProvider = beanFactory.getBeanProvider(MeterRegistry.class);
+        tracer = new StatementTracer(-1, 50, 15, registryProvider);
+
+        DaoMetricsPostProcessor postProcessor = new DaoMetricsPostProcessor(registryProvider);
+        postProcessor.setBeanFactory(beanFactory);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new TracingDataSource(dataSource, tracer, true));
+        sut = (UserDao) postProcessor.postProcessAfterInitialization(new JdbcUserDao(jdbcTemplate), "jdbcUserDao");
+    }
+
+    @Test
+    public void statements_are_recorded_with_their_caller_and_parameter_types() {
+        Assert.assertNotNull(sut.getUserById(1001));
+
+        StatementTracer.SlowQuery query = find("UserDao.getUserById");
+        Assert.assertEquals("SELECT user_id, username, password_hash FROM tenmo_user WHERE user_id = ?", query.getSql());
+        Assert.assertEquals("[Integer]", query.getParameters());
+        Assert.assertEquals(1, registry.get(StatementTracer.METRIC_NAME).tag("caller", "UserDao.getUserById")
+                .timer().count());
+    }
+
+    @Test
+    public void statements_outside_a_dao_method_are_recorded_as_other() {
+        new JdbcTemplate(new TracingDataSource(dataSource, tracer, true))
+                .queryForObject("SELECT COUNT(*) FROM tenmo_user WHERE username = ?", Integer.class, "user1");
+
+        Assert.assertEquals("[String]", find("other").getParameters());
+    }
+
+    @Test
+    public void copy_still_reaches_the_driver_through_the_wrapper() {
+        int imported = sut.importUsers(List.of(new User(0, "traced", "hash", "USER")));
+
+        Assert.assertEquals(1, imported);
+        Assert.assertNotNull(sut.getUserByUsername("traced"));
+    }
+
+    @Test
+    public void slowest_keeps_the_slowest_run_of_the_slowest_statements() {
+        StatementTracer sut = new StatementTracer(-1, 3, 15, registryProvider);
+        for (int i = 1; i <= 5; i++) {
+            sut.record("SELECT " + i, "[]", "TransferDao.test", TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        sut.record("SELECT 4", "[Integer]", "TransferDao.test", TimeUnit.MILLISECONDS.toNanos(10));
+        sut.record("SELECT 5", "[Integer]", "TransferDao.test", TimeUnit.MILLISECONDS.toNanos(1));
+
+        List<String> slowest = sut.slowest().stream().map(StatementTracer.SlowQuery::getSql).collect(Collectors.toList());
+        Assert.assertEquals(List.of("SELECT 4", "SELECT 5", "SELECT 3"), slowest);
+        Assert.assertEquals("[Integer]", sut.slowest().get(0).getParameters());
+        Assert.assertEquals(10.0, sut.slowest().get(0).getMillis(), 0.001);
+
+        sut.reset();
+        Assert.assertTrue(sut.slowest().isEmpty());
+    }
+
+    private StatementTracer.SlowQuery find(String caller) {
+        return tracer.slowest().stream()
+                .filter(query -> query.getCaller().equals(caller))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Nothing recorded for " + caller + ": " + tracer.slowest()));
+    }
+}
@@ -0,0 +1,128 @@
+package com.techelevator.dao;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.SmartDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+    Hands out connections that remember every prepared statement run through them, with the parameters bound the
+    first time it ran, so a test can replay the exact SQL a DAO sent (e.g. under EXPLAIN) without copying it.
+ */
+public class StatementRecordingDataSource extends DelegatingDataSource {
+
+    private final Map<String, RecordedStatement> statements = new LinkedHashMap<>();
+
+    public StatementRecordingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    public List<RecordedStatement> getStatements() {
+        return new ArrayList<>(statements.values());
+    }
+
+    public void clear() {
+        statements.clear();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    // The test data source shares one connection that has to stay open between statements
+                    if (method.getName().equals("close") && getTargetDataSource() instanceof SmartDataSource
+                            && !((SmartDataSource) getTargetDataSource()).shouldClose(connection)) {
+                        return null;
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (method.getName().equals("prepareStatement") && args[0] instanceof String) {
+                        return recording((PreparedStatement) result, (String) args[0]);
+                    }
+                    return result;
+                });
+    }
+
+    private PreparedStatement recording(PreparedStatement statement, String sql) {
+        RecordedStatement recorded = new RecordedStatement(sql);
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        recorded.parameters.put((Integer) args[0], new ParameterBinding(method, args));
+                    } else if (name.startsWith("execute") || name.equals("addBatch")) {
+                        statements.putIfAbsent(sql, recorded.copy());
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static class RecordedStatement {
+
+        private final String sql;
+        private final Map<Integer, ParameterBinding> parameters = new TreeMap<>();
+
+        private RecordedStatement(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Binds the recorded parameters, by the same setter they were bound with, to another statement.
+         */
+        public void bindTo(PreparedStatement statement) throws SQLException {
+            for (ParameterBinding binding : parameters.values()) {
+                binding.bindTo(statement);
+            }
+        }
+
+        private RecordedStatement copy() {
+            RecordedStatement copy = new RecordedStatement(sql);
+            copy.parameters.putAll(parameters);
+            return copy;
+        }
+    }
+
+    private static class ParameterBinding {
+
+        private final Method setter;
+        private final Object[] args;
+
+        private ParameterBinding(Method setter, Object[] args) {
+            this.setter = setter;
+            this.args = args.clone();
+        }
+
+        private void bindTo(PreparedStatement statement) throws SQLException {
+            try {
+                setter.invoke(statement, args);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw new SQLException(e.getCause());
+            }
+        }
+    }
+}
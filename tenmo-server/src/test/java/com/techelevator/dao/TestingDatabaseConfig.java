@@ -1,5 +1,6 @@
 package com.techelevator.dao;
 
+import org.flywaydb.core.Flyway;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
@@ -54,6 +55,11 @@ public class TestingDatabaseConfig {
         dataSource.setPassword(DB_PASSWORD);
         dataSource.setAutoCommit(false); //So we can rollback after each test.
 
+        // Builds the schema the same way the server does, starting over if the database already has one
+        Flyway flyway = Flyway.configure().dataSource(dataSource.getUrl(), DB_USERNAME, DB_PASSWORD).load();
+        flyway.clean();
+        flyway.migrate();
+
         ScriptUtils.executeSqlScript(dataSource.getConnection(), new ClassPathResource("test-data.sql"));
 
         return dataSource;
@@ -0,0 +1,83 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.events.TransferEvent;
+import com.techelevator.tenmo.events.TransferEventBus;
+import com.techelevator.tenmo.model.Transfer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransferEventBusTests {
+
+    private MeterRegistry registry;
+    private TransferEventBus sut;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        sut = new TransferEventBus(registry, 2);
+    }
+
+    @Test
+    public void events_go_to_the_sender_and_the_recipient_only() {
+        AtomicInteger signals = new AtomicInteger();
+        TransferEventBus.Subscription sender = sut.subscribe(1001, signals::incrementAndGet);
+        TransferEventBus.Subscription recipient = sut.subscribe(1002, signals::incrementAndGet);
+        TransferEventBus.Subscription bystander = sut.subscribe(1003, signals::incrementAndGet);
+
+        sut.publish(event(TransferEvent.Type.SENT, 1001, 1002));
+
+        Assert.assertEquals(TransferEvent.Type.SENT, sender.poll().getType());
+        Assert.assertEquals(3001, recipient.poll().getTransfer().getTransferId());
+        Assert.assertNull(bystander.poll());
+        Assert.assertEquals(2, signals.get());
+        Assert.assertEquals(3, registry.get(TransferEventBus.SUBSCRIBERS_METRIC).gauge().value(), 0);
+    }
+
+    @Test
+    public void closed_subscriptions_get_nothing() {
+        TransferEventBus.Subscription subscription = sut.subscribe(1001, () -> { });
+        subscription.close();
+        subscription.close();
+
+        sut.publish(event(TransferEvent.Type.REQUESTED, 1001, 1002));
+
+        Assert.assertNull(subscription.poll());
+        Assert.assertEquals(0, registry.get(TransferEventBus.SUBSCRIBERS_METRIC).gauge().value(), 0);
+    }
+
+    @Test
+    public void a_full_buffer_closes_the_subscription_but_keeps_what_it_holds() {
+        AtomicInteger signals = new AtomicInteger();
+        TransferEventBus.Subscription slow = sut.subscribe(1001, signals::incrementAndGet);
+        TransferEventBus.Subscription other = sut.subscribe(1001, () -> { });
+
+        for (int i = 0; i < 2; i++) {
+            sut.publish(event(TransferEvent.Type.SENT, 1001, 1002));
+            other.poll();
+        }
+        sut.publish(event(TransferEvent.Type.APPROVED, 1001, 1002));
+        sut.publish(event(TransferEvent.Type.APPROVED, 1001, 1002));
+
+        Assert.assertTrue(slow.isOverflowed());
+        Assert.assertFalse(other.isOverflowed());
+        Assert.assertEquals(TransferEvent.Type.APPROVED, other.poll().getType());
+        // Signalled for both events it holds and once for the overflow, not for what came after
+        Assert.assertEquals(3, signals.get());
+        Assert.assertEquals(TransferEvent.Type.SENT, slow.poll().getType());
+        Assert.assertEquals(TransferEvent.Type.SENT, slow.poll().getType());
+        Assert.assertNull(slow.poll());
+        Assert.assertEquals(1, registry.get(TransferEventBus.OVERFLOWS_METRIC).counter().count(), 0);
+        Assert.assertEquals(1, registry.get(TransferEventBus.SUBSCRIBERS_METRIC).gauge().value(), 0);
+    }
+
+    private static TransferEvent event(TransferEvent.Type type, int senderId, int recipientId) {
+        return new TransferEvent(type, new Transfer(3001, senderId, recipientId, new BigDecimal("5.00"),
+                "Send", "Approved", "sender", "recipient"));
+    }
+}
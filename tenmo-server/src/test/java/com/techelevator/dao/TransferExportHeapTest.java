@@ -0,0 +1,69 @@
+package com.techelevator.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techelevator.tenmo.dao.JdbcTransferDao;
+import com.techelevator.tenmo.export.TransferExportWriter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Exports 5M transfers in a JVM whose heap is far too small to hold them, so it only passes if the export streams.
+    It takes a few minutes, so it is left out of the normal build; run it with: mvn test -P export-heap-test
+ */
+public class TransferExportHeapTest extends BaseDaoTests {
+
+    private static final int TRANSFERS = 5_000_000;
+    private static final long MAX_HEAP_BYTES = 64L * 1024 * 1024;
+
+    @Test
+    public void exportTransfers_streams_five_million_rows_in_a_small_heap() throws Exception {
+        Assert.assertTrue("Run this test with -Xmx64m (mvn test -P export-heap-test).",
+                Runtime.getRuntime().maxMemory() <= MAX_HEAP_BYTES);
+
+        // Inserted on the test connection, so they are rolled back with the rest of the test
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO transfer (transfer_type_id, transfer_status_id, account_from, account_to, amount) " +
+                "SELECT 2, 2, 2001, 2002, 1.00 FROM generate_series(1, ?)", TRANSFERS);
+
+        CountingOutputStream out = new CountingOutputStream();
+        TransferExportWriter writer = new TransferExportWriter(TransferExportWriter.Format.CSV, out, new ObjectMapper());
+        long startNanos = System.nanoTime();
+        writer.writeHeader();
+        new JdbcTransferDao(jdbcTemplate).exportTransfers(1001, writer::write);
+        writer.flush();
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        System.out.printf("exportTransfers: %d rows, %d MB of CSV in %d ms with a %d MB heap%n",
+                out.lines - 1, out.bytes / (1024 * 1024), elapsedMillis, Runtime.getRuntime().maxMemory() / (1024 * 1024));
+
+        // The three transfers from test-data.sql that involve user 1001, plus the header
+        Assert.assertEquals(TRANSFERS + 3 + 1, out.lines);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long bytes;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
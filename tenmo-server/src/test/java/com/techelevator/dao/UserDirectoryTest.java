@@ -0,0 +1,106 @@
+package com.techelevator.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.techelevator.tenmo.dao.JdbcTransferDao;
+import com.techelevator.tenmo.dao.JdbcUserDao;
+import com.techelevator.tenmo.dao.TransferDao;
+import com.techelevator.tenmo.dao.UserDirectory;
+import com.techelevator.tenmo.model.User;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+public class UserDirectoryTest extends BaseDaoTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private TransferDao transferDao;
+    private AtomicInteger loads;
+    private UserDirectory sut;
+    private JdbcUserDao userDao;
+
+    @Before
+    public void setup() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        transferDao = new JdbcTransferDao(jdbcTemplate);
+        loads = new AtomicInteger();
+        sut = new UserDirectory(() -> {
+            loads.incrementAndGet();
+            return transferDao.retrieveListOfUsers();
+        }, objectMapper, 60);
+        userDao = new JdbcUserDao(jdbcTemplate, sut);
+    }
+
+    @Test
+    public void snapshot_holds_the_serialized_user_list() throws Exception {
+        UserDirectory.Snapshot snapshot = sut.snapshot();
+
+        Assert.assertEquals(3, snapshot.getUsers().size());
+        Assert.assertArrayEquals(objectMapper.writeValueAsBytes(transferDao.retrieveListOfUsers()), snapshot.getJson());
+        Assert.assertSame(snapshot, sut.snapshot());
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void gzipped_copy_unpacks_to_the_json_under_its_own_strong_etag() throws Exception {
+        UserDirectory.Snapshot snapshot = sut.snapshot();
+
+        try (GZIPInputStream gzipped = new GZIPInputStream(new ByteArrayInputStream(snapshot.getGzippedJson()))) {
+            Assert.assertArrayEquals(snapshot.getJson(), gzipped.readAllBytes());
+        }
+        Assert.assertFalse(snapshot.getETag().startsWith("W/"));
+        Assert.assertFalse(snapshot.getGzippedETag().startsWith("W/"));
+        Assert.assertNotEquals(snapshot.getETag(), snapshot.getGzippedETag());
+    }
+
+    @Test
+    public void createUser_adds_user_without_reloading() throws Exception {
+        String eTag = sut.snapshot().getETag();
+
+        User user = userDao.createUser("directory_user", "hash");
+
+        UserDirectory.Snapshot snapshot = sut.snapshot();
+        Assert.assertEquals(user.getId(), snapshot.getUsers().get(3).getId());
+        Assert.assertArrayEquals(objectMapper.writeValueAsBytes(transferDao.retrieveListOfUsers()), snapshot.getJson());
+        Assert.assertNotEquals(eTag, snapshot.getETag());
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void user_added_out_of_order_is_sorted_into_the_list() throws Exception {
+        sut.snapshot();
+
+        sut.add(1, "early_user");
+        sut.add(1, "early_user");
+
+        UserDirectory.Snapshot snapshot = sut.snapshot();
+        Assert.assertEquals(4, snapshot.getUsers().size());
+        Assert.assertEquals(1, snapshot.getUsers().get(0).getId());
+        Assert.assertArrayEquals(objectMapper.writeValueAsBytes(snapshot.getUsers()), snapshot.getJson());
+    }
+
+    @Test
+    public void same_users_give_same_etag() {
+        UserDirectory other = new UserDirectory(transferDao::retrieveListOfUsers, objectMapper, 60);
+
+        Assert.assertEquals(sut.snapshot().getETag(), other.snapshot().getETag());
+    }
+
+    @Test
+    public void snapshot_is_read_again_after_reload_interval() {
+        UserDirectory alwaysReloads = new UserDirectory(() -> {
+            loads.incrementAndGet();
+            return transferDao.retrieveListOfUsers();
+        }, objectMapper, 0);
+
+        alwaysReloads.snapshot();
+        alwaysReloads.snapshot();
+
+        Assert.assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,112 @@
+package com.techelevator.dao;
+
+import com.techelevator.tenmo.admin.UserImporter;
+import com.techelevator.tenmo.dao.JdbcUserDao;
+import com.techelevator.tenmo.model.User;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Run with -Dimport.users=1000000 for the full-size figure. The database side is measured with passwords that are
+    already hashed; hashing is measured on its own at BCrypt's default cost, since at that cost it takes far longer
+    than the writes and grows only with the number of cores.
+ */
+public class UserImportThroughputTest extends PooledDaoTests {
+
+    private static final int IMPORT_USERS = Integer.getInteger("import.users", 20000);
+    private static final int CREATE_USERS = 1000;
+    private static final int CHUNK_SIZE = 10000;
+    private static final int HASH_SAMPLES = 20;
+
+    private final BCryptPasswordEncoder cheapEncoder = new BCryptPasswordEncoder(4);
+    private JdbcUserDao sut;
+
+    @Before
+    public void setup() {
+        sut = new JdbcUserDao(jdbcTemplate);
+    }
+
+    @Test
+    public void importUsers_writes_users_faster_than_createUser() {
+        String hash = cheapEncoder.encode("password");
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < CREATE_USERS; i++) {
+            sut.createUser(USERNAME_PREFIX + "created_" + i, hash);
+        }
+        double createRate = rate(CREATE_USERS, startNanos);
+
+        startNanos = System.nanoTime();
+        int imported = 0;
+        for (int from = 0; from < IMPORT_USERS; from += CHUNK_SIZE) {
+            List<User> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (int i = from; i < Math.min(from + CHUNK_SIZE, IMPORT_USERS); i++) {
+                chunk.add(new User(0, USERNAME_PREFIX + i, hash, "USER"));
+            }
+            imported += sut.importUsers(chunk);
+        }
+        double importRate = rate(IMPORT_USERS, startNanos);
+
+        System.out.printf("createUser: %.0f users/sec; importUsers: %d users in chunks of %d at %.0f users/sec " +
+                        "(%.0f s per million before hashing)%n",
+                createRate, IMPORT_USERS, CHUNK_SIZE, importRate, 1_000_000 / importRate);
+
+        Assert.assertEquals(IMPORT_USERS, imported);
+        Assert.assertEquals(Integer.valueOf(IMPORT_USERS + CREATE_USERS), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM account JOIN tenmo_user USING (user_id) WHERE username LIKE '" + USERNAME_PREFIX + "%'",
+                Integer.class));
+        Assert.assertTrue("COPY should beat one statement per user.", importRate > createRate);
+    }
+
+    @Test
+    public void hashing_throughput_at_default_cost() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(10);
+        encoder.encode("warm-up");
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < HASH_SAMPLES; i++) {
+            encoder.encode("password" + i);
+        }
+        double perCore = rate(HASH_SAMPLES, startNanos);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("BCrypt cost 10: %.0f hashes/sec per core; with %d cores a million users take about %.0f s to hash%n",
+                perCore, cores, 1_000_000 / (perCore * cores));
+    }
+
+    @Test
+    public void importer_hashes_and_imports_valid_lines() throws Exception {
+        StringBuilder lines = new StringBuilder("username,password\n");
+        for (int i = 0; i < 50; i++) {
+            lines.append(USERNAME_PREFIX).append("imported_").append(i).append(",pass,word ").append(i).append('\n');
+        }
+        lines.append(USERNAME_PREFIX).append("imported_0,again\n")
+                .append("no_password\n")
+                .append(",no_username\n")
+                .append("\n");
+        UserImporter importer = new UserImporter(sut, cheapEncoder, 16, 2);
+
+        UserImporter.Result result = importer.importUsers(new BufferedReader(new StringReader(lines.toString())));
+
+        Assert.assertEquals(53, result.getRead());
+        Assert.assertEquals(50, result.getImported());
+        Assert.assertEquals(2, result.getInvalid());
+        Assert.assertEquals(1, result.getDuplicates());
+        String passwordHash = jdbcTemplate.queryForObject("SELECT password_hash FROM tenmo_user WHERE username = ?",
+                String.class, USERNAME_PREFIX + "imported_7");
+        Assert.assertTrue(cheapEncoder.matches("pass,word 7", passwordHash));
+    }
+
+    private static double rate(int count, long startNanos) {
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return count * 1000.0 / elapsedMillis;
+    }
+}